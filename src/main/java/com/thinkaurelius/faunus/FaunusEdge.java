@@ -93,7 +93,7 @@ public class FaunusEdge extends FaunusElement implements Edge {
         WritableUtils.writeVLong(out, this.inVertex);
         WritableUtils.writeVLong(out, this.outVertex);
         //WritableUtils.writeCompressedString(out,this.getLabel());
-        out.writeUTF(this.label);
+        writeType(this.label, out, this.dictionary);
     }
 
     public void readFields(final DataInput in) throws IOException {
@@ -101,11 +101,15 @@ public class FaunusEdge extends FaunusElement implements Edge {
         this.inVertex = WritableUtils.readVLong(in);
         this.outVertex = WritableUtils.readVLong(in);
         //setLabel(WritableUtils.readCompressedString(in));
-        setLabel(in.readUTF());
+        setLabel(this.readType(in));
     }
 
     public void writeCompressed(final DataOutput out, final Direction idToWrite) throws IOException {
-        super.write(out);
+        this.writeCompressed(out, idToWrite, this.dictionary);
+    }
+
+    public void writeCompressed(final DataOutput out, final Direction idToWrite, final TypeDictionary dictionary) throws IOException {
+        super.write(out, dictionary);
         if (idToWrite.equals(Direction.IN))
             WritableUtils.writeVLong(out, this.inVertex);
         else if (idToWrite.equals(Direction.OUT))
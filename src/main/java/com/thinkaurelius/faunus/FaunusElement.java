@@ -7,19 +7,36 @@ import com.thinkaurelius.titan.diskstorage.util.ReadByteBuffer;
 import com.thinkaurelius.titan.graphdb.database.serialize.kryo.KryoSerializer;
 import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.util.ElementHelper;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.LocalDirAllocator;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.io.WritableUtils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Marko A. Rodriguez (http://markorodriguez.com)
@@ -30,16 +47,27 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
         WritableComparator.define(FaunusElement.class, new Comparator());
     }
 
-    protected static final KryoSerializer serialize = new KryoSerializer();
+    // a KryoSerializer is not thread-safe and the threads of a multi-threaded map task (de)serialize elements at once
+    protected static final ThreadLocal<KryoSerializer> serialize = new ThreadLocal<KryoSerializer>() {
+        @Override
+        protected KryoSerializer initialValue() {
+            return new KryoSerializer();
+        }
+    };
+
+    private static final byte PATH_ENABLED_FLAG = 0x01;
+    private static final byte TYPES_ENCODED_FLAG = 0x02;
 
-    protected static final Map<String, String> TYPE_MAP = new HashMap<String, String>() {
+    protected static final Map<String, String> TYPE_MAP = new ConcurrentHashMap<String, String>() {
         @Override
         public final String get(final Object object) {
             final String label = (String) object;
+            if (null == label)
+                return null;
             final String existing = super.get(label);
             if (null == existing) {
-                super.put(label, label);
-                return label;
+                final String previous = super.putIfAbsent(label, label);
+                return null == previous ? label : previous;
             } else {
                 return existing;
             }
@@ -48,10 +76,20 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
 
     protected long id;
     protected Map<String, Object> properties = null;
-    protected List<List<MicroElement>> paths = null;
+    private byte[] propertyBytes = null;
+    private int propertyCount = 0;
+    private boolean propertyTypesEncoded = false;
+    protected MicroPaths paths = null;
     private MicroElement microVersion = null;
     protected boolean pathEnabled = false;
     protected long pathCounter = 0;
+    protected TypeDictionary dictionary = null;
+    protected boolean typesEncoded = false;
+    // the number of distinct paths that are read into memory before they spill to local disk (see MicroPaths)
+    protected int pathSpillOver = 0;
+    // locates the local directories of the task that the paths spill to (see MicroPaths)
+    protected Configuration pathSpillConfiguration = null;
+    protected byte flags = 0;
 
 
     public FaunusElement(final long id) {
@@ -61,10 +99,53 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
     protected FaunusElement reuse(final long id) {
         this.id = id;
         this.properties = null;
+        this.propertyBytes = null;
         this.clearPaths();
         return this;
     }
 
+    /**
+     * Properties that were read lazily are kept in their serialized form until first accessed.
+     */
+    private void decodeProperties() {
+        if (null != this.propertyBytes) {
+            this.properties = ElementProperties.readFields(this.propertyBytes, this.propertyCount, this.propertyTypesEncoded ? this.dictionary : null);
+            this.propertyBytes = null;
+        }
+    }
+
+    protected void shareProperties(final FaunusElement element) {
+        this.properties = element.properties;
+        this.propertyBytes = element.propertyBytes;
+        this.propertyCount = element.propertyCount;
+        this.propertyTypesEncoded = element.propertyTypesEncoded;
+    }
+
+    /**
+     * When a dictionary is provided, labels and property keys are written as dictionary ids.
+     * Elements written with a dictionary can only be read by elements that have the same dictionary.
+     *
+     * @param dictionary the dictionary of labels and property keys (or null to write them as strings)
+     */
+    public void setTypeDictionary(final TypeDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public TypeDictionary getTypeDictionary() {
+        return this.dictionary;
+    }
+
+    protected static void writeType(final String type, final DataOutput out, final TypeDictionary dictionary) throws IOException {
+        if (null == dictionary)
+            out.writeUTF(type);
+        else
+            dictionary.writeType(type, out);
+    }
+
+    protected String readType(final DataInput in) throws IOException {
+        return this.typesEncoded ? this.dictionary.readType(in) : in.readUTF();
+    }
+
     @Override
     public void remove() throws UnsupportedOperationException {
         //TODO: should this be supported?
@@ -77,23 +158,41 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
             if (null == this.microVersion)
                 this.microVersion = (this instanceof FaunusVertex) ? new FaunusVertex.MicroVertex(this.id) : new FaunusEdge.MicroEdge(this.id);
             if (null == this.paths)
-                this.paths = new ArrayList<List<MicroElement>>();
+                this.paths = new MicroPaths();
         }
         // TODO: else make pathCounter = paths.size()?
     }
 
+    /**
+     * @param path   the path to add (it is not altered)
+     * @param append whether the path is extended by this element (the extended path shares the path as its prefix)
+     */
     public void addPath(final List<MicroElement> path, final boolean append) throws IllegalStateException {
+        this.addPath(path, 1l, append);
+    }
+
+    /**
+     * @param path         the path to add (it is not altered)
+     * @param multiplicity the number of traversers on the path
+     * @param append       whether the path is extended by this element (the extended path shares the path as its prefix)
+     */
+    public void addPath(final List<MicroElement> path, final long multiplicity, final boolean append) throws IllegalStateException {
         if (this.pathEnabled) {
-            if (append) path.add(this.microVersion);
-            this.paths.add(path);
+            this.paths.add(append ? MicroPath.append(path, this.microVersion) : path, multiplicity);
         } else {
             throw new IllegalStateException("Path calculations are not enabled");
         }
     }
 
+    /**
+     * @param paths  the paths to add (the multiplicities of MicroPaths are kept)
+     * @param append whether the paths are extended by this element
+     */
     public void addPaths(final List<List<MicroElement>> paths, final boolean append) throws IllegalStateException {
         if (this.pathEnabled) {
-            if (append) {
+            if (paths instanceof MicroPaths) {
+                ((MicroPaths) paths).addTo(this.paths, append ? this.microVersion : null);
+            } else if (append) {
                 for (final List<MicroElement> path : paths) {
                     this.addPath(path, append);
                 }
@@ -104,7 +203,10 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
         }
     }
 
-    public List<List<MicroElement>> getPaths() throws IllegalStateException {
+    /**
+     * @return the distinct paths of the element (see MicroPaths for their multiplicities)
+     */
+    public MicroPaths getPaths() throws IllegalStateException {
         if (this.pathEnabled)
             return this.paths;
         else
@@ -129,32 +231,64 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
 
     public boolean hasPaths() {
         if (this.pathEnabled)
-            return !this.paths.isEmpty();
+            return this.paths.count() > 0;
         else
             return this.pathCounter > 0;
     }
 
     public void clearPaths() {
         if (this.pathEnabled) {
-            this.paths = new ArrayList<List<MicroElement>>();
+            if (null != this.paths)
+                this.paths.deleteRuns();
+            this.paths = new MicroPaths();
             this.microVersion = (this instanceof FaunusVertex) ? new FaunusVertex.MicroVertex(this.id) : new FaunusEdge.MicroEdge(this.id);
         } else
             this.pathCounter = 0;
     }
 
+    /**
+     * @param spillOver the number of distinct paths to hold in memory before they spill to local disk (see MicroPaths)
+     */
+    public void setPathSpillOver(final int spillOver) {
+        if (this.pathEnabled)
+            this.paths.setSpillOver(spillOver);
+    }
+
+    /**
+     * @param spillOver     the number of distinct paths to hold in memory before they spill to local disk (see MicroPaths)
+     * @param configuration the configuration of the task whose local directories (mapred.local.dir) the paths spill to
+     */
+    public void setPathSpillOver(final int spillOver, final Configuration configuration) {
+        if (this.pathEnabled)
+            this.paths.setSpillOver(spillOver, configuration);
+    }
+
+    /**
+     * @param sample the number of distinct paths to hold (the other paths are only counted, see MicroPaths)
+     */
+    public void setPathSample(final int sample) {
+        if (this.pathEnabled)
+            this.paths.setSample(sample);
+    }
+
     public long pathCount() {
         if (this.pathEnabled)
-            return this.paths.size();
+            return this.paths.count();
         else
             return this.pathCounter;
     }
 
     public void startPath() {
+        this.startPath(MicroPath.RETAIN_ALL);
+    }
+
+    /**
+     * @param retain the positions of the path elements to retain (see MicroPath)
+     */
+    public void startPath(final long retain) {
         if (this.pathEnabled) {
             this.clearPaths();
-            final List<MicroElement> startPath = new ArrayList<MicroElement>();
-            startPath.add(this.microVersion);
-            this.paths.add(startPath);
+            this.paths.add(MicroPath.start(this.microVersion, retain));
         } else {
             this.pathCounter = 1;
         }
@@ -165,26 +299,31 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
         if (key.equals(Tokens._COUNT))
             throw new IllegalArgumentException("_count is a reserved property");
 
+        this.decodeProperties();
         if (null == this.properties)
             this.properties = new HashMap<String, Object>();
         this.properties.put(TYPE_MAP.get(key), value);
     }
 
     public <T> T removeProperty(final String key) {
+        this.decodeProperties();
         return null == this.properties ? null : (T) this.properties.remove(key);
     }
 
     public <T> T getProperty(final String key) {
         if (key.equals(Tokens._COUNT))
             return (T) Long.valueOf(this.pathCount());
+        this.decodeProperties();
         return null == this.properties ? null : (T) this.properties.get(key);
     }
 
     public Set<String> getPropertyKeys() {
+        this.decodeProperties();
         return null == this.properties ? (Set) Collections.emptySet() : this.properties.keySet();
     }
 
     public Map<String, Object> getProperties() {
+        this.decodeProperties();
         return null == this.properties ? this.properties = new HashMap<String, Object>() : this.properties;
     }
 
@@ -197,24 +336,66 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
     }
 
     public void readFields(final DataInput in) throws IOException {
+        this.readFields(in, false);
+    }
+
+    protected void readFields(final DataInput in, final boolean lazyProperties) throws IOException {
         this.id = WritableUtils.readVLong(in);
-        this.pathEnabled = in.readBoolean();
+        this.flags = in.readByte();
+        this.pathEnabled = (this.flags & PATH_ENABLED_FLAG) != 0;
+        this.typesEncoded = (this.flags & TYPES_ENCODED_FLAG) != 0;
+        if (this.typesEncoded && null == this.dictionary)
+            throw new IOException("The element was written with a type dictionary, but no dictionary is configured: " + Tokens.FAUNUS_GRAPH_DICTIONARY);
+        // the runs of the replaced paths are not referenced once the paths are read
+        if (null != this.paths)
+            this.paths.deleteRuns();
         if (this.pathEnabled) {
-            this.paths = ElementPaths.readFields(in);
+            this.paths = ElementPaths.readFields(in, this.pathSpillOver, this.pathSpillConfiguration);
             this.microVersion = (this instanceof FaunusVertex) ? new FaunusVertex.MicroVertex(this.id) : new FaunusEdge.MicroEdge(this.id);
         } else
             this.pathCounter = WritableUtils.readVLong(in);
-        this.properties = ElementProperties.readFields(in);
+        if (lazyProperties) {
+            this.properties = null;
+            this.propertyTypesEncoded = this.typesEncoded;
+            this.propertyCount = WritableUtils.readVInt(in);
+            if (this.propertyCount == 0)
+                this.propertyBytes = null;
+            else {
+                this.propertyBytes = new byte[WritableUtils.readVInt(in)];
+                in.readFully(this.propertyBytes);
+            }
+        } else {
+            this.propertyBytes = null;
+            this.properties = ElementProperties.readFields(in, this.typesEncoded ? this.dictionary : null);
+        }
     }
 
     public void write(final DataOutput out) throws IOException {
+        this.write(out, this.dictionary);
+    }
+
+    protected void write(final DataOutput out, final TypeDictionary dictionary) throws IOException {
         WritableUtils.writeVLong(out, this.id);
-        out.writeBoolean(this.pathEnabled);
+        out.writeByte(this.writeFlags(dictionary));
         if (this.pathEnabled)
             ElementPaths.write(this.paths, out);
         else
             WritableUtils.writeVLong(out, this.pathCounter);
-        ElementProperties.write(this.properties, out);
+        if (null != this.propertyBytes && this.propertyTypesEncoded == (null != dictionary)) {
+            WritableUtils.writeVInt(out, this.propertyCount);
+            WritableUtils.writeVInt(out, this.propertyBytes.length);
+            out.write(this.propertyBytes);
+        } else {
+            this.decodeProperties();
+            ElementProperties.write(this.properties, out, dictionary);
+        }
+    }
+
+    /**
+     * The header byte of the serialized element (subclasses may add their own flags above 0x02).
+     */
+    protected int writeFlags(final TypeDictionary dictionary) {
+        return (this.pathEnabled ? PATH_ENABLED_FLAG : 0) | (null != dictionary ? TYPES_ENCODED_FLAG : 0);
     }
 
     @Override
@@ -224,23 +405,31 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
 
     @Override
     public int hashCode() {
-        return ((Long) this.id).hashCode();
+        return (int) (this.id ^ (this.id >>> 32));
     }
 
     public int compareTo(final FaunusElement other) {
-        return new Long(this.id).compareTo((Long) other.getId());
+        final long id = other.getIdAsLong();
+        return this.id < id ? -1 : (this.id == id ? 0 : 1);
     }
 
     public static class ElementProperties {
 
         public static void write(final Map<String, Object> properties, final DataOutput out) throws IOException {
+            write(properties, out, null);
+        }
+
+        public static void write(final Map<String, Object> properties, final DataOutput out, final TypeDictionary dictionary) throws IOException {
             if (null == properties || properties.size() == 0)
                 WritableUtils.writeVInt(out, 0);
             else {
                 WritableUtils.writeVInt(out, properties.size());
-                final com.thinkaurelius.titan.graphdb.database.serialize.DataOutput o = serialize.getDataOutput(128, true);
+                final com.thinkaurelius.titan.graphdb.database.serialize.DataOutput o = serialize.get().getDataOutput(128, true);
                 for (final Map.Entry<String, Object> entry : properties.entrySet()) {
-                    o.writeObject(entry.getKey(), String.class);
+                    if (null == dictionary)
+                        o.writeObject(entry.getKey(), String.class);
+                    else
+                        dictionary.writeType(entry.getKey(), o);
                     o.writeClassAndObject(entry.getValue());
                 }
                 final StaticBuffer buffer = o.getStaticBuffer();
@@ -250,66 +439,224 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
         }
 
         public static Map<String, Object> readFields(final DataInput in) throws IOException {
+            return readFields(in, null);
+        }
+
+        public static Map<String, Object> readFields(final DataInput in, final TypeDictionary dictionary) throws IOException {
             final int numberOfProperties = WritableUtils.readVInt(in);
             if (numberOfProperties == 0)
                 return null;
             else {
-                final Map<String, Object> properties = new HashMap<String, Object>();
                 byte[] bytes = new byte[WritableUtils.readVInt(in)];
                 in.readFully(bytes);
-                final ReadBuffer buffer = new ReadByteBuffer(bytes);
-                for (int i = 0; i < numberOfProperties; i++) {
-                    final String key = serialize.readObject(buffer, String.class);
-                    final Object valueObject = serialize.readClassAndObject(buffer);
-                    properties.put(TYPE_MAP.get(key), valueObject);
-                }
-                return properties;
+                return readFields(bytes, numberOfProperties, dictionary);
+            }
+        }
+
+        public static Map<String, Object> readFields(final byte[] bytes, final int numberOfProperties, final TypeDictionary dictionary) {
+            final Map<String, Object> properties = new HashMap<String, Object>();
+            final ReadBuffer buffer = new ReadByteBuffer(bytes);
+            final KryoSerializer serializer = serialize.get();
+            for (int i = 0; i < numberOfProperties; i++) {
+                final String key = null == dictionary ? serializer.readObject(buffer, String.class) : dictionary.readType(buffer, serializer);
+                final Object valueObject = serializer.readClassAndObject(buffer);
+                properties.put(TYPE_MAP.get(key), valueObject);
             }
+            return properties;
+        }
+
+        public static void writeValue(final Object value, final DataOutput out) throws IOException {
+            final com.thinkaurelius.titan.graphdb.database.serialize.DataOutput o = serialize.get().getDataOutput(32, true);
+            o.writeClassAndObject(value);
+            final StaticBuffer buffer = o.getStaticBuffer();
+            WritableUtils.writeVInt(out, buffer.length());
+            out.write(ByteBufferUtil.getArray(buffer.asByteBuffer()));
+        }
+
+        public static Object readValue(final DataInput in) throws IOException {
+            final byte[] bytes = new byte[WritableUtils.readVInt(in)];
+            in.readFully(bytes);
+            return serialize.get().readClassAndObject(new ReadByteBuffer(bytes));
         }
     }
 
+    /**
+     * Each path is written as its size, the number of retained elements it shares with the path before it, its retain
+     * mask (only if it shares no element, as otherwise it is that of the path before it), the retained elements that
+     * follow the shared ones (the types of the elements as a bit set, 1 for an edge, and then the ids of the elements)
+     * and its multiplicity. The paths that are read share their common prefixes (see MicroPath).
+     * Sampled paths are written with a negative number of paths (-1 - the number of paths) that is followed by the
+     * number of unsampled traversers (see MicroPaths.setSample()).
+     */
     public static class ElementPaths {
 
+        private static final MicroElement[] EMPTY = new MicroElement[0];
+
         public static void write(final List<List<MicroElement>> paths, final DataOutput out) throws IOException {
             if (null == paths) {
                 WritableUtils.writeVInt(out, 0);
+            } else if (paths instanceof MicroPaths) {
+                ((MicroPaths) paths).write(out);
             } else {
                 WritableUtils.writeVInt(out, paths.size());
-                for (final List<MicroElement> path : paths) {
-                    WritableUtils.writeVInt(out, path.size());
-                    for (MicroElement element : path) {
-                        if (element instanceof FaunusVertex.MicroVertex)
-                            out.writeChar('v');
-                        else
-                            out.writeChar('e');
-                        WritableUtils.writeVLong(out, element.getId());
+                writePaths(paths, null, out);
+            }
+        }
+
+        /**
+         * Writes the paths one after the other (but not their number).
+         *
+         * @param multiplicities the multiplicities of the paths (or null if each path has a multiplicity of 1)
+         */
+        private static void writePaths(final List<List<MicroElement>> paths, final long[] multiplicities, final DataOutput out) throws IOException {
+            MicroElement[] previous = EMPTY;
+            long previousRetain = MicroPath.RETAIN_ALL;
+            for (int p = 0; p < paths.size(); p++) {
+                final List<MicroElement> path = paths.get(p);
+                final MicroElement[] elements;
+                final long retain;
+                if (path instanceof MicroPath) {
+                    elements = ((MicroPath) path).getRetained();
+                    retain = ((MicroPath) path).getRetain();
+                } else {
+                    elements = path.toArray(new MicroElement[path.size()]);
+                    retain = MicroPath.RETAIN_ALL;
+                }
+                int shared = 0;
+                if (retain == previousRetain) {
+                    final int max = Math.min(previous.length, elements.length);
+                    while (shared < max && (elements[shared] == previous[shared] || elements[shared].equals(previous[shared]))) {
+                        shared++;
                     }
                 }
+                WritableUtils.writeVInt(out, path.size());
+                WritableUtils.writeVInt(out, shared);
+                if (shared == 0)
+                    WritableUtils.writeVLong(out, retain);
+                for (int i = shared; i < elements.length; i = i + 8) {
+                    int types = 0;
+                    for (int j = i; j < Math.min(i + 8, elements.length); j++) {
+                        if (elements[j] instanceof FaunusEdge.MicroEdge)
+                            types = types | (1 << (j - i));
+                    }
+                    out.writeByte(types);
+                }
+                for (int i = shared; i < elements.length; i++) {
+                    WritableUtils.writeVLong(out, elements[i].getId());
+                }
+                WritableUtils.writeVLong(out, null == multiplicities ? 1l : multiplicities[p]);
+                previous = elements;
+                previousRetain = retain;
             }
         }
 
-        public static List<List<MicroElement>> readFields(final DataInput in) throws IOException {
-            int pathsSize = WritableUtils.readVInt(in);
-            if (pathsSize == 0)
-                return new ArrayList<List<MicroElement>>();
-            else {
-                final List<List<MicroElement>> paths = new ArrayList<List<MicroElement>>(pathsSize);
-                for (int i = 0; i < pathsSize; i++) {
-                    int pathSize = WritableUtils.readVInt(in);
-                    final List<MicroElement> path = new ArrayList<MicroElement>(pathSize);
-                    for (int j = 0; j < pathSize; j++) {
-                        char type = in.readChar();
-                        if (type == 'v')
-                            path.add(new FaunusVertex.MicroVertex(WritableUtils.readVLong(in)));
-                        else
-                            path.add(new FaunusEdge.MicroEdge(WritableUtils.readVLong(in)));
+        public static MicroPaths readFields(final DataInput in) throws IOException {
+            return readFields(in, 0);
+        }
+
+        /**
+         * @param spillOver the number of distinct paths to read into memory before they spill (see MicroPaths)
+         */
+        public static MicroPaths readFields(final DataInput in, final int spillOver) throws IOException {
+            return readFields(in, spillOver, null);
+        }
+
+        /**
+         * @param spillOver     the number of distinct paths to read into memory before they spill (see MicroPaths)
+         * @param configuration the configuration of the task whose local directories the paths spill to
+         */
+        public static MicroPaths readFields(final DataInput in, final int spillOver, final Configuration configuration) throws IOException {
+            final int pathsSize = WritableUtils.readVInt(in);
+            final MicroPaths paths = new MicroPaths(Math.min(pathsSize < 0 ? -pathsSize - 1 : pathsSize, spillOver > 0 ? spillOver : Integer.MAX_VALUE));
+            paths.setSpillOver(spillOver, configuration);
+            if (pathsSize < 0) {
+                paths.addUnsampled(WritableUtils.readVLong(in));
+                readPaths(in, -pathsSize - 1, paths);
+            } else
+                readPaths(in, pathsSize, paths);
+            return paths;
+        }
+
+        /**
+         * Reads the paths that writePaths() wrote into the given paths.
+         */
+        private static void readPaths(final DataInput in, final int pathsSize, final MicroPaths paths) throws IOException {
+            MicroPath previous = null;
+            for (int i = 0; i < pathsSize; i++) {
+                final int size = WritableUtils.readVInt(in);
+                final int shared = WritableUtils.readVInt(in);
+                if (shared > 0 && (null == previous || shared > retainedSize(previous)))
+                    throw new IOException("A path shares more elements than the path before it has: " + shared);
+                final long retain = shared == 0 ? WritableUtils.readVLong(in) : previous.getRetain();
+                final int suffixSize = MicroPath.retainedSize(size, retain) - shared;
+                if (suffixSize < 0)
+                    throw new IOException("A path shares more elements than it retains: " + shared);
+                final byte[] types = new byte[(suffixSize + 7) / 8];
+                in.readFully(types);
+                MicroPath path = shared == 0 ? null : previous.getRetainedPrefix(shared);
+                int position = null == path ? 0 : path.size;
+                for (int j = 0; j < suffixSize; j++) {
+                    while (!MicroPath.isRetained(position, retain)) {
+                        position++;
                     }
-                    paths.add(path);
+                    final long id = WritableUtils.readVLong(in);
+                    path = new MicroPath(path, (types[j / 8] & (1 << (j % 8))) == 0 ? new FaunusVertex.MicroVertex(id) : new FaunusEdge.MicroEdge(id), ++position, retain);
+                }
+                final long multiplicity = WritableUtils.readVLong(in);
+                if (size == 0) {
+                    paths.add(new ArrayList<MicroElement>(), multiplicity);
+                    previous = null;
+                } else {
+                    // the positions after the last retained element are not retained
+                    if (null == path || path.size < size)
+                        path = new MicroPath(path, null, size, retain);
+                    paths.add(path, multiplicity);
+                    previous = path;
+                }
+            }
+        }
+
+        /**
+         * Copies the written paths from the input to the output (re-encoding the variable length numbers yields the
+         * exact bytes that were read).
+         */
+        public static void copy(final DataInput in, final DataOutput out) throws IOException {
+            int pathsSize = WritableUtils.readVInt(in);
+            WritableUtils.writeVInt(out, pathsSize);
+            if (pathsSize < 0) {
+                WritableUtils.writeVLong(out, WritableUtils.readVLong(in));
+                pathsSize = -pathsSize - 1;
+            }
+            int previousSize = 0;
+            long previousRetain = MicroPath.RETAIN_ALL;
+            for (int i = 0; i < pathsSize; i++) {
+                final int size = WritableUtils.readVInt(in);
+                final int shared = WritableUtils.readVInt(in);
+                if (shared > previousSize)
+                    throw new IOException("A path shares more elements than the path before it has: " + shared);
+                WritableUtils.writeVInt(out, size);
+                WritableUtils.writeVInt(out, shared);
+                final long retain = shared == 0 ? WritableUtils.readVLong(in) : previousRetain;
+                if (shared == 0)
+                    WritableUtils.writeVLong(out, retain);
+                final int suffixSize = MicroPath.retainedSize(size, retain) - shared;
+                if (suffixSize < 0)
+                    throw new IOException("A path shares more elements than it retains: " + shared);
+                final byte[] types = new byte[(suffixSize + 7) / 8];
+                in.readFully(types);
+                out.write(types);
+                for (int j = 0; j < suffixSize; j++) {
+                    WritableUtils.writeVLong(out, WritableUtils.readVLong(in));
                 }
-                return paths;
+                WritableUtils.writeVLong(out, WritableUtils.readVLong(in));
+                previousSize = shared + suffixSize;
+                previousRetain = retain;
             }
         }
 
+        private static int retainedSize(final MicroPath path) {
+            return MicroPath.retainedSize(path.size(), path.getRetain());
+        }
     }
 
     public static class Comparator extends WritableComparator {
@@ -320,7 +667,9 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
         @Override
         public int compare(final byte[] element1, final int start1, final int length1, final byte[] element2, final int start2, final int length2) {
             try {
-                return Long.valueOf(readVLong(element1, start1)).compareTo(readVLong(element2, start2));
+                final long id1 = readVLong(element1, start1);
+                final long id2 = readVLong(element2, start2);
+                return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
             } catch (IOException e) {
                 return -1;
             }
@@ -328,9 +677,11 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
 
         @Override
         public int compare(final WritableComparable a, final WritableComparable b) {
-            if (a instanceof FaunusElement && b instanceof FaunusElement)
-                return ((Long) (((FaunusElement) a).getIdAsLong())).compareTo(((FaunusElement) b).getIdAsLong());
-            else
+            if (a instanceof FaunusElement && b instanceof FaunusElement) {
+                final long id1 = ((FaunusElement) a).getIdAsLong();
+                final long id2 = ((FaunusElement) b).getIdAsLong();
+                return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+            } else
                 return super.compare(a, b);
         }
     }
@@ -348,11 +699,586 @@ public abstract class FaunusElement implements Element, WritableComparable<Faunu
         }
 
         public int hashCode() {
-            return Long.valueOf(this.id).hashCode();
+            return (int) (this.id ^ (this.id >>> 32));
         }
 
         public boolean equals(final Object object) {
             return (object.getClass().equals(this.getClass()) && this.id == ((MicroElement) object).getId());
         }
     }
+
+    /**
+     * MicroPaths are the distinct paths of an element and their multiplicities: adding a path that is already held
+     * only adds to its multiplicity. As such, the traversers that reach an element by the same path cost a single path.
+     * The paths can spill to local disk (see setSpillOver()) or be sampled (see setSample()).
+     */
+    public static class MicroPaths extends AbstractList<List<MicroElement>> {
+
+        // paths are looked up by a scan until there are enough of them to index
+        private static final int INDEX_SIZE = 8;
+        private static final Random RANDOM = new Random();
+        private static final LocalDirAllocator LOCAL_DIRS = new LocalDirAllocator("mapred.local.dir");
+
+        private final List<List<MicroElement>> paths;
+        private long[] multiplicities;
+        private Map<List<MicroElement>, Integer> indices = null;
+        private long count = 0l;
+        private int spillOver = 0;
+        private Configuration spillConfiguration = null;
+        // the sorted runs of paths spilled to local disk
+        private List<File> runs = null;
+        private int spilledSize = 0;
+        private long spilledCount = 0l;
+        private int sample = 0;
+        // the traversers that are counted, but whose paths were not sampled
+        private long unsampledCount = 0l;
+
+        public MicroPaths() {
+            this(1);
+        }
+
+        public MicroPaths(final int capacity) {
+            this.paths = new ArrayList<List<MicroElement>>(capacity);
+            this.multiplicities = new long[Math.max(1, capacity)];
+        }
+
+        public boolean add(final List<MicroElement> path) {
+            this.add(path, 1l);
+            return true;
+        }
+
+        public void add(final List<MicroElement> path, final long multiplicity) {
+            final int index = this.find(path);
+            this.count = this.count + multiplicity;
+            if (index == -1 && this.sample > 0 && this.paths.size() >= this.sample) {
+                this.replace(path, multiplicity);
+            } else if (index == -1) {
+                if (this.paths.size() == this.multiplicities.length)
+                    this.multiplicities = Arrays.copyOf(this.multiplicities, this.multiplicities.length * 2);
+                this.multiplicities[this.paths.size()] = multiplicity;
+                if (null != this.indices)
+                    this.indices.put(path, this.paths.size());
+                this.paths.add(path);
+                this.modCount++;
+            } else
+                this.multiplicities[index] = this.multiplicities[index] + multiplicity;
+            if (this.spillOver > 0 && this.paths.size() >= this.spillOver)
+                this.spill();
+        }
+
+        public boolean addAll(final Collection<? extends List<MicroElement>> paths) {
+            if (paths instanceof MicroPaths) {
+                ((MicroPaths) paths).addTo(this, null);
+                return ((MicroPaths) paths).count() > 0;
+            } else {
+                for (final List<MicroElement> path : paths) {
+                    this.add(path, 1l);
+                }
+                return !paths.isEmpty();
+            }
+        }
+
+        /**
+         * Adds the paths and their multiplicities to the target paths. The spilled runs are read one at a time (rather
+         * than read back into memory) and the target takes the spill budget of the paths if it has none of its own.
+         *
+         * @param target  the paths to add to
+         * @param element the element that extends each path (or null to add the paths as they are)
+         */
+        public void addTo(final MicroPaths target, final MicroElement element) {
+            if (target.spillOver == 0) {
+                target.spillOver = this.spillOver;
+                target.spillConfiguration = this.spillConfiguration;
+            }
+            target.addUnsampled(this.unsampledCount);
+            if (null != this.runs) {
+                for (final File run : this.runs) {
+                    readRun(run).addTo(target, element);
+                }
+            }
+            for (int i = 0; i < this.paths.size(); i++) {
+                target.add(null == element ? this.paths.get(i) : MicroPath.append(this.paths.get(i), element), this.multiplicities[i]);
+            }
+        }
+
+        public int indexOf(final Object path) {
+            this.restore();
+            return this.find(path);
+        }
+
+        // the index of the path among the paths held in memory
+        private int find(final Object path) {
+            if (null == this.indices && this.paths.size() >= INDEX_SIZE) {
+                this.indices = new HashMap<List<MicroElement>, Integer>();
+                for (int i = 0; i < this.paths.size(); i++) {
+                    this.indices.put(this.paths.get(i), i);
+                }
+            }
+            if (null != this.indices) {
+                final Integer index = this.indices.get(path);
+                return null == index ? -1 : index;
+            }
+            return this.paths.indexOf(path);
+        }
+
+        public List<MicroElement> get(final int index) {
+            this.restore();
+            return this.paths.get(index);
+        }
+
+        /**
+         * @return the number of traversers on the path at the index
+         */
+        public long getMultiplicity(final int index) {
+            this.restore();
+            if (index >= this.paths.size())
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.paths.size());
+            return this.multiplicities[index];
+        }
+
+        public int size() {
+            this.restore();
+            return this.paths.size();
+        }
+
+        /**
+         * @return the sum of the multiplicities of the paths (spilled or not)
+         */
+        public long count() {
+            return this.count;
+        }
+
+        /**
+         * @return the number of traversers that are counted, but whose paths were not sampled (see setSample())
+         */
+        public long unsampledCount() {
+            return this.unsampledCount;
+        }
+
+        /**
+         * @param count the number of traversers to count without a path (e.g. the unsampled traversers of other paths)
+         */
+        public void addUnsampled(final long count) {
+            this.unsampledCount = this.unsampledCount + count;
+            this.count = this.count + count;
+        }
+
+        public List<MicroElement> remove(final int index) {
+            this.restore();
+            final long multiplicity = this.multiplicities[index];
+            if (this.unsampledCount > 0) {
+                // the unsampled traversers are assumed to be removed in the same proportion as the sampled ones
+                final long removed = Math.round((double) this.unsampledCount * multiplicity / (this.count - this.unsampledCount));
+                this.unsampledCount = this.unsampledCount - removed;
+                this.count = this.count - removed;
+            }
+            final List<MicroElement> path = this.paths.remove(index);
+            this.count = this.count - multiplicity;
+            System.arraycopy(this.multiplicities, index + 1, this.multiplicities, index, this.paths.size() - index);
+            // the index is rebuilt on the next lookup
+            this.indices = null;
+            this.modCount++;
+            return path;
+        }
+
+        public void clear() {
+            this.deleteRuns();
+            this.paths.clear();
+            this.indices = null;
+            this.count = 0l;
+            this.unsampledCount = 0l;
+            this.modCount++;
+        }
+
+        /**
+         * Once sample distinct paths are held, a new path replaces a random held path or it is not sampled (weighted
+         * reservoir sampling, where the weight of a path is its multiplicity). The traversers of the paths that are
+         * not held are still counted (see count() and unsampledCount()).
+         *
+         * @param sample the number of distinct paths to hold (0 to hold every path)
+         */
+        public void setSample(final int sample) {
+            this.sample = sample;
+        }
+
+        public boolean isSampled() {
+            return this.unsampledCount > 0;
+        }
+
+        // the path is sampled with a probability of sample * multiplicity / count and replaces a random held path
+        private void replace(final List<MicroElement> path, final long multiplicity) {
+            if (RANDOM.nextDouble() * (this.count - this.spilledCount) >= (double) this.sample * multiplicity) {
+                this.unsampledCount = this.unsampledCount + multiplicity;
+                return;
+            }
+            final int index = RANDOM.nextInt(this.paths.size());
+            this.unsampledCount = this.unsampledCount + this.multiplicities[index];
+            if (null != this.indices) {
+                this.indices.remove(this.paths.get(index));
+                this.indices.put(path, index);
+            }
+            this.paths.set(index, path);
+            this.multiplicities[index] = multiplicity;
+            this.modCount++;
+        }
+
+        /**
+         * Once spillOver distinct paths are held in memory, they are sorted and spilled to a local file as a run (sorted
+         * paths share longer prefixes in the path encoding). The runs are streamed into the written paths and into
+         * the paths they are added to (see addTo()). They are only read back into memory if the paths are accessed by
+         * index (e.g. get() or size()). A path may be held by more than one run.
+         *
+         * @param spillOver the number of distinct paths to hold in memory (0 to never spill)
+         */
+        public void setSpillOver(final int spillOver) {
+            this.spillOver = spillOver;
+        }
+
+        /**
+         * The runs are written to the local directories of the task (mapred.local.dir) when the configuration has
+         * them and to java.io.tmpdir otherwise. The runs are deleted as the paths are cleared, read over or restored.
+         *
+         * @param spillOver     the number of distinct paths to hold in memory (0 to never spill)
+         * @param configuration the configuration of the task (or null)
+         */
+        public void setSpillOver(final int spillOver, final Configuration configuration) {
+            this.spillOver = spillOver;
+            this.spillConfiguration = configuration;
+        }
+
+        public boolean isSpilled() {
+            return null != this.runs;
+        }
+
+        private void spill() {
+            final MicroElement[][] elements = new MicroElement[this.paths.size()][];
+            final Integer[] order = new Integer[this.paths.size()];
+            for (int i = 0; i < order.length; i++) {
+                final List<MicroElement> path = this.paths.get(i);
+                elements[i] = path instanceof MicroPath ? ((MicroPath) path).getRetained() : path.toArray(new MicroElement[path.size()]);
+                order[i] = i;
+            }
+            Arrays.sort(order, new java.util.Comparator<Integer>() {
+                public int compare(final Integer i, final Integer j) {
+                    return compareElements(elements[i], elements[j]);
+                }
+            });
+            final List<List<MicroElement>> sorted = new ArrayList<List<MicroElement>>(order.length);
+            final long[] multiplicities = new long[order.length];
+            long count = 0l;
+            for (int i = 0; i < order.length; i++) {
+                sorted.add(this.paths.get(order[i]));
+                multiplicities[i] = this.multiplicities[order[i]];
+                count = count + multiplicities[i];
+            }
+            try {
+                final File run = this.createRun();
+                final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)));
+                try {
+                    WritableUtils.writeVInt(out, sorted.size());
+                    ElementPaths.writePaths(sorted, multiplicities, out);
+                } finally {
+                    out.close();
+                }
+                if (null == this.runs)
+                    this.runs = new ArrayList<File>();
+                this.runs.add(run);
+            } catch (final IOException e) {
+                throw new IllegalStateException("The paths could not be spilled to local disk", e);
+            }
+            this.spilledSize = this.spilledSize + sorted.size();
+            this.spilledCount = this.spilledCount + count;
+            this.paths.clear();
+            this.indices = null;
+            this.modCount++;
+        }
+
+        private File createRun() throws IOException {
+            final File directory;
+            if (null != this.spillConfiguration && null != this.spillConfiguration.get("mapred.local.dir")) {
+                final Path path = LOCAL_DIRS.getLocalPathForWrite("faunus-paths/run", this.spillConfiguration);
+                directory = new File(path.getParent().toUri().getPath());
+            } else
+                directory = new File(System.getProperty("java.io.tmpdir"));
+            return File.createTempFile("faunus-paths", ".run", directory);
+        }
+
+        // paths are sorted by the ids (and then the types) of their retained elements
+        private static int compareElements(final MicroElement[] elements1, final MicroElement[] elements2) {
+            for (int i = 0; i < Math.min(elements1.length, elements2.length); i++) {
+                if (elements1[i].getId() != elements2[i].getId())
+                    return elements1[i].getId() < elements2[i].getId() ? -1 : 1;
+                final boolean edge1 = elements1[i] instanceof FaunusEdge.MicroEdge;
+                if (edge1 != elements2[i] instanceof FaunusEdge.MicroEdge)
+                    return edge1 ? 1 : -1;
+            }
+            return elements1.length - elements2.length;
+        }
+
+        // the spilled runs are read back into memory (the paths spill again once more paths are added)
+        private void restore() {
+            if (null == this.runs)
+                return;
+            final List<File> runs = this.runs;
+            final int spillOver = this.spillOver;
+            this.runs = null;
+            this.spillOver = 0;
+            this.count = this.count - this.spilledCount;
+            this.spilledSize = 0;
+            this.spilledCount = 0l;
+            try {
+                for (final File run : runs) {
+                    readRun(run).addTo(this, null);
+                    run.delete();
+                }
+            } finally {
+                this.spillOver = spillOver;
+            }
+        }
+
+        private static MicroPaths readRun(final File run) {
+            try {
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+                try {
+                    final int size = WritableUtils.readVInt(in);
+                    final MicroPaths paths = new MicroPaths(size);
+                    ElementPaths.readPaths(in, size, paths);
+                    return paths;
+                } finally {
+                    in.close();
+                }
+            } catch (final IOException e) {
+                throw new IllegalStateException("The spilled paths could not be read from local disk", e);
+            }
+        }
+
+        /**
+         * Writes the spilled runs as they are and then the paths held in memory.
+         */
+        private void write(final DataOutput out) throws IOException {
+            if (this.unsampledCount > 0) {
+                WritableUtils.writeVInt(out, -(this.spilledSize + this.paths.size()) - 1);
+                WritableUtils.writeVLong(out, this.unsampledCount);
+            } else
+                WritableUtils.writeVInt(out, this.spilledSize + this.paths.size());
+            if (null != this.runs) {
+                final byte[] buffer = new byte[4096];
+                for (final File run : this.runs) {
+                    final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+                    try {
+                        // the number of paths in the run is part of the total
+                        WritableUtils.readVInt(in);
+                        int length;
+                        while ((length = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, length);
+                        }
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+            ElementPaths.writePaths(this.paths, this.multiplicities, out);
+        }
+
+        private void deleteRuns() {
+            if (null != this.runs) {
+                for (final File run : this.runs) {
+                    run.delete();
+                }
+                this.runs = null;
+                this.count = this.count - this.spilledCount;
+                this.spilledSize = 0;
+                this.spilledCount = 0l;
+            }
+        }
+    }
+
+    /**
+     * A MicroPath is an immutable path that shares its prefix with the path it extends: a path of n elements is its
+     * prefix of n-1 elements (its parent) and its last element. As such, extending a path does not copy it and the
+     * paths of a traversal share their common history in memory.
+     * A path may only retain the elements at the positions of a bit mask (see FaunusCompiler.PATH_RETAIN): the elements
+     * at the other positions count towards the size of the path, but they are not kept and get() fails for them.
+     */
+    public static class MicroPath extends AbstractList<MicroElement> {
+
+        public static final long RETAIN_ALL = -1l;
+
+        private final MicroPath parent;
+        private final MicroElement element;
+        private final int size;
+        private final long retain;
+        // the hash code of the (immutable) path as a list
+        private final int hash;
+
+        public MicroPath(final MicroPath parent, final MicroElement element) {
+            this(parent, element, null == parent ? 1 : parent.size + 1, RETAIN_ALL);
+        }
+
+        /**
+         * @param parent  the path of the retained elements before the element
+         * @param element the element at position size - 1 (null if that position is not retained)
+         */
+        private MicroPath(final MicroPath parent, final MicroElement element, final int size, final long retain) {
+            this.parent = parent;
+            this.element = element;
+            this.size = size;
+            this.retain = retain;
+            int hash = null == parent ? 1 : parent.hash;
+            for (int i = null == parent ? 0 : parent.size; i < size - 1; i++) {
+                hash = 31 * hash;
+            }
+            this.hash = 31 * hash + (null == element ? 0 : element.hashCode());
+        }
+
+        /**
+         * @return the path of the element that only retains the elements at the positions of the retain mask
+         */
+        public static MicroPath start(final MicroElement element, final long retain) {
+            return new MicroPath(null, isRetained(0, retain) ? element : null, 1, retain);
+        }
+
+        /**
+         * @return the path extended by the element (the path itself is not altered)
+         */
+        public static MicroPath append(final List<MicroElement> path, final MicroElement element) {
+            MicroPath prefix = null;
+            if (path instanceof MicroPath)
+                prefix = (MicroPath) path;
+            else {
+                for (final MicroElement e : path) {
+                    prefix = new MicroPath(prefix, e);
+                }
+            }
+            if (null == prefix)
+                return new MicroPath(null, element);
+            return new MicroPath(prefix.last(), isRetained(prefix.size, prefix.retain) ? element : null, prefix.size + 1, prefix.retain);
+        }
+
+        public static boolean isRetained(final int position, final long retain) {
+            return position < 64 ? ((retain >>> position) & 1l) != 0 : retain == RETAIN_ALL;
+        }
+
+        /**
+         * @return the number of retained elements in a path of the given size
+         */
+        public static int retainedSize(final int size, final long retain) {
+            if (retain == RETAIN_ALL)
+                return size;
+            return Long.bitCount(size >= 64 ? retain : retain & ((1l << size) - 1));
+        }
+
+        /**
+         * @return the path of the last retained element (null if no element is retained)
+         */
+        private MicroPath last() {
+            return null == this.element ? this.parent : this;
+        }
+
+        /**
+         * @return the path of the first size elements of this path (shared, not copied)
+         */
+        public MicroPath getPrefix(final int size) {
+            if (size < 1 || size > this.size)
+                throw new IndexOutOfBoundsException("Prefix size: " + size + ", path size: " + this.size);
+            if (size == this.size)
+                return this;
+            MicroPath path = this.last();
+            while (null != path && path.size > size) {
+                path = path.parent;
+            }
+            return null != path && path.size == size ? path : new MicroPath(path, null, size, this.retain);
+        }
+
+        /**
+         * @return the path of the first size retained elements of this path (shared, not copied)
+         */
+        public MicroPath getRetainedPrefix(final int size) {
+            int retained = retainedSize(this.size, this.retain);
+            if (size < 1 || size > retained)
+                throw new IndexOutOfBoundsException("Prefix size: " + size + ", retained path size: " + retained);
+            MicroPath path = this.last();
+            while (retained > size) {
+                path = path.parent;
+                retained--;
+            }
+            return path;
+        }
+
+        public MicroElement get(final int index) {
+            if (index < 0 || index >= this.size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", path size: " + this.size);
+            MicroPath path = this.last();
+            while (null != path && path.size > index + 1) {
+                path = path.parent;
+            }
+            if (null == path || path.size != index + 1)
+                throw new IllegalStateException("The path does not retain the element at position " + index);
+            return path.element;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public long getRetain() {
+            return this.retain;
+        }
+
+        /**
+         * @return the elements of the path (null at the positions that are not retained)
+         */
+        public Object[] toArray() {
+            final MicroElement[] elements = new MicroElement[this.size];
+            for (MicroPath path = this.last(); null != path; path = path.parent) {
+                elements[path.size - 1] = path.element;
+            }
+            return elements;
+        }
+
+        /**
+         * @return the retained elements of the path
+         */
+        public MicroElement[] getRetained() {
+            final MicroElement[] elements = new MicroElement[retainedSize(this.size, this.retain)];
+            int i = elements.length;
+            for (MicroPath path = this.last(); null != path; path = path.parent) {
+                elements[--i] = path.element;
+            }
+            return elements;
+        }
+
+        public int hashCode() {
+            return this.hash;
+        }
+
+        /**
+         * Paths with the same retain mask are compared element by element up to the prefix they share.
+         */
+        public boolean equals(final Object object) {
+            if (object == this)
+                return true;
+            if (!(object instanceof MicroPath) || ((MicroPath) object).retain != this.retain)
+                return super.equals(object);
+            if (((MicroPath) object).size != this.size || ((MicroPath) object).hash != this.hash)
+                return false;
+            MicroPath path1 = this.last();
+            MicroPath path2 = ((MicroPath) object).last();
+            while (path1 != path2) {
+                if (null == path1 || null == path2 || path1.size != path2.size || !path1.element.equals(path2.element))
+                    return false;
+                path1 = path1.parent;
+                path2 = path2.parent;
+            }
+            return true;
+        }
+
+        public Iterator<MicroElement> iterator() {
+            return Arrays.asList((MicroElement[]) this.toArray()).iterator();
+        }
+
+        public ListIterator<MicroElement> listIterator(final int index) {
+            return Arrays.asList((MicroElement[]) this.toArray()).listIterator(index);
+        }
+    }
 }
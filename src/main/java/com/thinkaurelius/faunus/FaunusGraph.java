@@ -1,7 +1,9 @@
 package com.thinkaurelius.faunus;
 
 import com.thinkaurelius.faunus.formats.Inverter;
+import com.thinkaurelius.faunus.hdfs.GraphCache;
 import com.thinkaurelius.faunus.hdfs.HDFSTools;
+import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
@@ -27,6 +29,10 @@ public class FaunusGraph implements Configurable {
     public static final String FAUNUS_OUTPUT_LOCATION = "faunus.output.location";
     public static final String FAUNUS_OUTPUT_LOCATION_OVERWRITE = "faunus.output.location.overwrite";
 
+    public static final String FAUNUS_GRAPH_CACHE = "faunus.graph.cache";
+    public static final String FAUNUS_GRAPH_CACHE_LOCATION = "faunus.graph.cache.location";
+    public static final String FAUNUS_GRAPH_CACHE_PARTITIONS = "faunus.graph.cache.partitions";
+
     private Configuration configuration;
 
     public FaunusGraph() {
@@ -123,6 +129,58 @@ public class FaunusGraph implements Configurable {
         this.configuration.setBoolean(FAUNUS_OUTPUT_LOCATION_OVERWRITE, overwrite);
     }
 
+    // GRAPH CACHE
+
+    public boolean getGraphCache() {
+        return this.configuration.getBoolean(FAUNUS_GRAPH_CACHE, false);
+    }
+
+    /**
+     * If the graph is cached, the input graph is materialized once and subsequent pipelines read it from the cache.
+     */
+    public void setGraphCache(final boolean cache) {
+        this.configuration.setBoolean(FAUNUS_GRAPH_CACHE, cache);
+    }
+
+    public Path getGraphCacheLocation() {
+        return new GraphCache(this).getCacheLocation();
+    }
+
+    public void setGraphCacheLocation(final Path path) {
+        this.configuration.set(FAUNUS_GRAPH_CACHE_LOCATION, path.toString());
+    }
+
+    public void setGraphCacheLocation(final String path) {
+        this.setGraphCacheLocation(new Path(path));
+    }
+
+    public int getGraphCachePartitions() {
+        return this.configuration.getInt(FAUNUS_GRAPH_CACHE_PARTITIONS, 1);
+    }
+
+    /**
+     * The cached graph is sorted by vertex id into this many hash partitions (one reduce task each).
+     */
+    public void setGraphCachePartitions(final int partitions) {
+        this.configuration.setInt(FAUNUS_GRAPH_CACHE_PARTITIONS, partitions);
+    }
+
+    /**
+     * Remove the cache of the input graph. The next pipeline caches the input graph anew.
+     */
+    public void invalidateGraphCache() throws IOException {
+        new GraphCache(this).invalidate();
+    }
+
+    /**
+     * Remove the cache of the input graph and cache the input graph anew.
+     */
+    public void refreshGraphCache() throws Exception {
+        this.invalidateGraphCache();
+        if (!new FaunusCompiler(this).cacheGraph())
+            throw new IOException("The input graph could not be cached: " + new GraphCache(this).getLocation());
+    }
+
     public void shutdown() {
         this.configuration.clear();
     }
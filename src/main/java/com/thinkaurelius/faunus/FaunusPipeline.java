@@ -354,10 +354,10 @@ public class FaunusPipeline {
         this.state.incrStep();
 
         this.compiler.addMapReduce(VerticesVerticesMapReduce.Map.class,
-                null,
+                VerticesVerticesMapReduce.Combiner.class,
                 VerticesVerticesMapReduce.Reduce.class,
                 null,
-                LongWritable.class,
+                TaggedLongWritable.class,
                 Holder.class,
                 NullWritable.class,
                 FaunusVertex.class,
@@ -408,7 +408,7 @@ public class FaunusPipeline {
                 null,
                 VerticesEdgesMapReduce.Reduce.class,
                 null,
-                LongWritable.class,
+                TaggedLongWritable.class,
                 Holder.class,
                 NullWritable.class,
                 FaunusVertex.class,
@@ -745,7 +745,7 @@ public class FaunusPipeline {
         this.compiler.addMapReduce(BackFilterMapReduce.Map.class,
                 BackFilterMapReduce.Combiner.class,
                 BackFilterMapReduce.Reduce.class,
-                LongWritable.class,
+                TaggedLongWritable.class,
                 Holder.class,
                 NullWritable.class,
                 FaunusVertex.class,
@@ -876,7 +876,7 @@ public class FaunusPipeline {
                 LinkMapReduce.Combiner.class,
                 LinkMapReduce.Reduce.class,
                 null,
-                LongWritable.class,
+                TaggedLongWritable.class,
                 Holder.class,
                 NullWritable.class,
                 FaunusVertex.class,
@@ -960,7 +960,7 @@ public class FaunusPipeline {
                     CommitVerticesMapReduce.Combiner.class,
                     CommitVerticesMapReduce.Reduce.class,
                     null,
-                    LongWritable.class,
+                    TaggedLongWritable.class,
                     Holder.class,
                     NullWritable.class,
                     FaunusVertex.class,
@@ -7,6 +7,10 @@ import com.tinkerpop.blueprints.VertexQuery;
 import com.tinkerpop.blueprints.util.DefaultVertexQuery;
 import com.tinkerpop.blueprints.util.ExceptionFactory;
 import com.tinkerpop.blueprints.util.StringFactory;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.WritableUtils;
 
 import java.io.DataInput;
@@ -27,11 +31,21 @@ import static com.tinkerpop.blueprints.Direction.*;
 /**
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
-public class FaunusVertex extends FaunusElement implements Vertex {
+public class FaunusVertex extends FaunusElement implements Vertex, Configurable {
+
+    private static final byte SORTED_ADJACENCY_FLAG = 0x04;
 
     private Map<String, List<Edge>> outEdges = new HashMap<String, List<Edge>>();
     private Map<String, List<Edge>> inEdges = new HashMap<String, List<Edge>>();
 
+    private LazyEdgeMap lazyOutEdges = null;
+    private LazyEdgeMap lazyInEdges = null;
+
+    private Configuration configuration = null;
+    private boolean primitiveAdjacency = false;
+    private boolean lazyDeserialization = false;
+    private boolean sortedAdjacency = false;
+
     public FaunusVertex() {
         super(-1l);
     }
@@ -54,13 +68,103 @@ public class FaunusVertex extends FaunusElement implements Vertex {
         super.reuse(id);
         this.outEdges.clear();
         this.inEdges.clear();
+        this.lazyOutEdges = null;
+        this.lazyInEdges = null;
         return this;
     }
 
+    public void setConf(final Configuration configuration) {
+        this.configuration = configuration;
+        if (null != configuration) {
+            this.primitiveAdjacency = configuration.getBoolean(Tokens.FAUNUS_VERTEX_PRIMITIVE_ADJACENCY, false);
+            this.lazyDeserialization = configuration.getBoolean(Tokens.FAUNUS_VERTEX_LAZY_DESERIALIZATION, false);
+            this.sortedAdjacency = configuration.getBoolean(Tokens.FAUNUS_VERTEX_SORTED_ADJACENCY, false);
+            this.dictionary = TypeDictionary.getDictionary(configuration);
+            this.pathSpillOver = configuration.getInt(Tokens.FAUNUS_PIPELINE_PATH_SPILL_OVER, Tokens.DEFAULT_PATH_SPILL_OVER);
+            this.pathSpillConfiguration = configuration;
+        }
+    }
+
+    public Configuration getConf() {
+        return this.configuration;
+    }
+
+    /**
+     * When enabled, edge labels are backed by primitive long arrays and FaunusEdge objects are only
+     * materialized for those edges that are accessed (or that carry properties or paths).
+     * The serialized representation is the same regardless of this setting.
+     *
+     * @param primitiveAdjacency whether to use primitive adjacency lists for newly created edge labels
+     */
+    public void setPrimitiveAdjacency(final boolean primitiveAdjacency) {
+        this.primitiveAdjacency = primitiveAdjacency;
+    }
+
+    public boolean isPrimitiveAdjacency() {
+        return this.primitiveAdjacency;
+    }
+
+    /**
+     * When enabled, readFields() only decodes the id and paths of the vertex.
+     * Properties and the edges of each label are kept in serialized form until they are accessed,
+     * and whatever is never accessed is written back out byte-for-byte.
+     *
+     * @param lazyDeserialization whether to lazily decode properties and edges in readFields()
+     */
+    public void setLazyDeserialization(final boolean lazyDeserialization) {
+        this.lazyDeserialization = lazyDeserialization;
+    }
+
+    public boolean isLazyDeserialization() {
+        return this.lazyDeserialization;
+    }
+
+    /**
+     * When enabled, write() sorts the edges of each label by adjacent vertex id and writes the gaps between ids.
+     * Edges without properties and paths are reduced to their gap and edge id.
+     * Both encodings are always readable, this setting only determines how the vertex is written.
+     *
+     * @param sortedAdjacency whether to write delta-encoded, sorted adjacency lists
+     */
+    public void setSortedAdjacency(final boolean sortedAdjacency) {
+        this.sortedAdjacency = sortedAdjacency;
+    }
+
+    public boolean isSortedAdjacency() {
+        return this.sortedAdjacency;
+    }
+
+    private void decodeEdges(final Direction direction, final String... labels) {
+        if (null != this.lazyOutEdges && (direction.equals(OUT) || direction.equals(BOTH))) {
+            this.lazyOutEdges.decode(this.outEdges, labels, Direction.IN, this);
+            if (this.lazyOutEdges.isEmpty())
+                this.lazyOutEdges = null;
+        }
+        if (null != this.lazyInEdges && (direction.equals(IN) || direction.equals(BOTH))) {
+            this.lazyInEdges.decode(this.inEdges, labels, Direction.OUT, this);
+            if (this.lazyInEdges.isEmpty())
+                this.lazyInEdges = null;
+        }
+    }
+
     public void enablePath(final boolean enablePath) {
         super.enablePath(enablePath);
         if (this.pathEnabled) {
-            for (final Edge edge : this.getEdges(BOTH)) {
+            this.decodeEdges(BOTH);
+            for (final List<Edge> edges : this.outEdges.values()) {
+                enablePath(edges);
+            }
+            for (final List<Edge> edges : this.inEdges.values()) {
+                enablePath(edges);
+            }
+        }
+    }
+
+    private static void enablePath(final List<Edge> edges) {
+        if (edges instanceof PrimitiveEdgeList) {
+            ((PrimitiveEdgeList) edges).enablePath(true);
+        } else {
+            for (final Edge edge : edges) {
                 ((FaunusEdge) edge).enablePath(true);
             }
         }
@@ -68,7 +172,9 @@ public class FaunusVertex extends FaunusElement implements Vertex {
 
     public void addAll(final FaunusVertex vertex) {
         this.id = vertex.getIdAsLong();
-        this.properties = vertex.getProperties();
+        if (null == this.dictionary)
+            this.dictionary = vertex.dictionary;
+        this.shareProperties(vertex);
         this.getPaths(vertex, false);
         this.addEdges(BOTH, vertex);
     }
@@ -78,7 +184,20 @@ public class FaunusVertex extends FaunusElement implements Vertex {
     }
 
     public Set<String> getEdgeLabels(final Direction direction) {
-        if (direction.equals(Direction.OUT))
+        if (null != this.lazyOutEdges || null != this.lazyInEdges) {
+            final Set<String> labels = new HashSet<String>();
+            if (direction.equals(OUT) || direction.equals(BOTH)) {
+                labels.addAll(this.outEdges.keySet());
+                if (null != this.lazyOutEdges)
+                    labels.addAll(this.lazyOutEdges.getLabels());
+            }
+            if (direction.equals(IN) || direction.equals(BOTH)) {
+                labels.addAll(this.inEdges.keySet());
+                if (null != this.lazyInEdges)
+                    labels.addAll(this.lazyInEdges.getLabels());
+            }
+            return labels;
+        } else if (direction.equals(Direction.OUT))
             return this.outEdges.keySet();
         else if (direction.equals(Direction.IN))
             return this.inEdges.keySet();
@@ -114,6 +233,7 @@ public class FaunusVertex extends FaunusElement implements Vertex {
     }
 
     public Iterable<Edge> getEdges(final Direction direction, final String... labels) {
+        this.decodeEdges(direction, labels);
         final List<List<Edge>> edgeLists = new ArrayList<List<Edge>>();
 
         if (direction.equals(OUT) || direction.equals(BOTH)) {
@@ -148,35 +268,58 @@ public class FaunusVertex extends FaunusElement implements Vertex {
         return new EdgeList(edgeLists);
     }
 
-    private void addEdges(final Direction direction, final String label, final List<FaunusEdge> edges) {
-        List<Edge> list;
+    private List<Edge> getOrCreateEdges(final Direction direction, final String label, final List<Edge> template) {
+        final Map<String, List<Edge>> map;
         if (direction.equals(OUT))
-            list = this.outEdges.get(label);
+            map = this.outEdges;
         else if (direction.equals(IN))
-            list = this.inEdges.get(label);
+            map = this.inEdges;
         else
             throw ExceptionFactory.bothIsNotSupported();
 
+        this.decodeEdges(direction, label);
+        List<Edge> list = map.get(label);
         if (null == list) {
-            list = new ArrayList<Edge>();
-            if (direction.equals(OUT))
-                this.outEdges.put(label, list);
+            if (this.primitiveAdjacency || template instanceof PrimitiveEdgeList)
+                list = new PrimitiveEdgeList(this, direction, label, null == template ? 0 : template.size());
             else
-                this.inEdges.put(label, list);
+                list = new ArrayList<Edge>();
+            map.put(label, list);
         }
-        list.addAll(edges);
+        return list;
+    }
+
+    private void addEdges(final Direction direction, final String label, final List<Edge> edges) {
+        final List<Edge> list = this.getOrCreateEdges(direction, label, edges);
+        if (list instanceof PrimitiveEdgeList && edges instanceof PrimitiveEdgeList)
+            ((PrimitiveEdgeList) list).addAll((PrimitiveEdgeList) edges);
+        else
+            list.addAll(edges);
     }
 
     public void addEdges(final Direction direction, final FaunusVertex vertex) {
         if (direction.equals(OUT) || direction.equals(BOTH)) {
-            for (final String label : vertex.getEdgeLabels(OUT)) {
-                this.addEdges(OUT, label, (List) vertex.getEdges(OUT, label));
+            if (null != vertex.lazyOutEdges) {
+                // the serialized labels can be shared as is when there is nothing to merge them with
+                if (null == this.lazyOutEdges && this.outEdges.isEmpty())
+                    this.lazyOutEdges = vertex.lazyOutEdges.copy();
+                else
+                    vertex.decodeEdges(OUT);
+            }
+            for (final Map.Entry<String, List<Edge>> entry : vertex.outEdges.entrySet()) {
+                this.addEdges(OUT, entry.getKey(), entry.getValue());
             }
         }
 
         if (direction.equals(IN) || direction.equals(BOTH)) {
-            for (final String label : vertex.getEdgeLabels(IN)) {
-                this.addEdges(IN, label, (List) vertex.getEdges(IN, label));
+            if (null != vertex.lazyInEdges) {
+                if (null == this.lazyInEdges && this.inEdges.isEmpty())
+                    this.lazyInEdges = vertex.lazyInEdges.copy();
+                else
+                    vertex.decodeEdges(IN);
+            }
+            for (final Map.Entry<String, List<Edge>> entry : vertex.inEdges.entrySet()) {
+                this.addEdges(IN, entry.getKey(), entry.getValue());
             }
         }
     }
@@ -195,39 +338,29 @@ public class FaunusVertex extends FaunusElement implements Vertex {
     }
 
     public FaunusEdge addEdge(final Direction direction, final FaunusEdge edge) {
-        if (OUT.equals(direction)) {
-            List<Edge> edges = this.outEdges.get(edge.getLabel());
-            if (null == edges) {
-                edges = new ArrayList<Edge>();
-                this.outEdges.put(edge.getLabel(), edges);
-            }
-            edges.add(edge);
-        } else if (IN.equals(direction)) {
-            List<Edge> edges = this.inEdges.get(edge.getLabel());
-            if (null == edges) {
-                edges = new ArrayList<Edge>();
-                this.inEdges.put(edge.getLabel(), edges);
-            }
-            edges.add(edge);
-        } else
-            throw ExceptionFactory.bothIsNotSupported();
-
+        this.getOrCreateEdges(direction, edge.getLabel(), null).add(edge);
         return edge;
     }
 
     public void removeEdgesToFrom(final Set<Long> ids) {
-        Iterator<Edge> itty = this.getEdges(OUT).iterator();
-        while (itty.hasNext()) {
-            final Long id = (Long) itty.next().getVertex(IN).getId();
-            if (ids.contains(id))
-                itty.remove();
+        this.decodeEdges(BOTH);
+        for (final List<Edge> edges : this.outEdges.values()) {
+            removeEdgesToFrom(edges, IN, ids);
+        }
+        for (final List<Edge> edges : this.inEdges.values()) {
+            removeEdgesToFrom(edges, OUT, ids);
         }
+    }
 
-        itty = this.getEdges(IN).iterator();
-        while (itty.hasNext()) {
-            final Long id = (Long) itty.next().getVertex(OUT).getId();
-            if (ids.contains(id))
-                itty.remove();
+    private static void removeEdgesToFrom(final List<Edge> edges, final Direction otherEnd, final Set<Long> ids) {
+        if (edges instanceof PrimitiveEdgeList) {
+            ((PrimitiveEdgeList) edges).removeVertexIds(ids);
+        } else {
+            final Iterator<Edge> itty = edges.iterator();
+            while (itty.hasNext()) {
+                if (ids.contains(((FaunusEdge) itty.next()).getVertexId(otherEnd)))
+                    itty.remove();
+            }
         }
     }
 
@@ -240,8 +373,12 @@ public class FaunusVertex extends FaunusElement implements Vertex {
                         if (!keep.contains(label))
                             this.outEdges.remove(label);
                     }
-                } else if (direction.equals(OUT))
+                    if (null != this.lazyOutEdges)
+                        this.lazyOutEdges.retain(keep);
+                } else if (direction.equals(OUT)) {
                     this.inEdges.clear();
+                    this.lazyInEdges = null;
+                }
             }
 
             if (direction.equals(BOTH) || direction.equals(IN)) {
@@ -250,16 +387,23 @@ public class FaunusVertex extends FaunusElement implements Vertex {
                         if (!keep.contains(label))
                             this.inEdges.remove(label);
                     }
-                } else if (direction.equals(IN))
+                    if (null != this.lazyInEdges)
+                        this.lazyInEdges.retain(keep);
+                } else if (direction.equals(IN)) {
                     this.outEdges.clear();
+                    this.lazyOutEdges = null;
+                }
             }
         } else {
             if (direction.equals(BOTH) || direction.equals(OUT)) {
                 if (labels.length == 0) {
                     this.outEdges.clear();
+                    this.lazyOutEdges = null;
                 } else {
                     for (final String label : labels) {
                         this.outEdges.remove(label);
+                        if (null != this.lazyOutEdges)
+                            this.lazyOutEdges.remove(label);
                     }
                 }
             }
@@ -267,25 +411,49 @@ public class FaunusVertex extends FaunusElement implements Vertex {
             if (direction.equals(BOTH) || direction.equals(IN)) {
                 if (labels.length == 0) {
                     this.inEdges.clear();
+                    this.lazyInEdges = null;
                 } else {
                     for (final String label : labels) {
                         this.inEdges.remove(label);
+                        if (null != this.lazyInEdges)
+                            this.lazyInEdges.remove(label);
                     }
                 }
             }
         }
     }
 
+    protected int writeFlags(final TypeDictionary dictionary) {
+        return super.writeFlags(dictionary) | (this.sortedAdjacency ? SORTED_ADJACENCY_FLAG : 0);
+    }
+
     public void write(final DataOutput out) throws IOException {
+        // serialized edges can only be copied as is when they are in the encoding being written
+        if (null != this.lazyInEdges && this.lazyInEdges.sorted != this.sortedAdjacency)
+            this.decodeEdges(IN);
+        if (null != this.lazyOutEdges && this.lazyOutEdges.sorted != this.sortedAdjacency)
+            this.decodeEdges(OUT);
         super.write(out);
-        EdgeMap.write((Map) this.inEdges, out, Direction.OUT);
-        EdgeMap.write((Map) this.outEdges, out, Direction.IN);
+        EdgeMap.write(this.inEdges, this.lazyInEdges, out, Direction.OUT, this);
+        EdgeMap.write(this.outEdges, this.lazyOutEdges, out, Direction.IN, this);
     }
 
     public void readFields(final DataInput in) throws IOException {
-        super.readFields(in);
-        this.inEdges = (Map) EdgeMap.readFields(in, Direction.OUT, this.id);
-        this.outEdges = (Map) EdgeMap.readFields(in, Direction.IN, this.id);
+        if (this.lazyDeserialization) {
+            super.readFields(in, true);
+            final boolean sorted = (this.flags & SORTED_ADJACENCY_FLAG) != 0;
+            this.inEdges = new HashMap<String, List<Edge>>();
+            this.outEdges = new HashMap<String, List<Edge>>();
+            this.lazyInEdges = LazyEdgeMap.readFields(in, sorted, this);
+            this.lazyOutEdges = LazyEdgeMap.readFields(in, sorted, this);
+        } else {
+            super.readFields(in);
+            final boolean sorted = (this.flags & SORTED_ADJACENCY_FLAG) != 0;
+            this.inEdges = EdgeMap.readFields(in, Direction.OUT, sorted, this);
+            this.outEdges = EdgeMap.readFields(in, Direction.IN, sorted, this);
+            this.lazyInEdges = null;
+            this.lazyOutEdges = null;
+        }
     }
 
     public String toString() {
@@ -363,39 +531,518 @@ public class FaunusVertex extends FaunusElement implements Vertex {
 
     }
 
+    /**
+     * The edges of each label are either written in insertion order (FaunusEdge.writeCompressed()) or, when sorted,
+     * in adjacent vertex id order where every edge starts with the VLong (gap << 1 | full).
+     * The gap is the difference to the previous adjacent vertex id (so multi-edges cost a single byte) and
+     * a full edge is followed by FaunusElement.write() while a bare edge (no properties or paths) only by its id.
+     * A gap that does not fit the header (of 2^62 or more, or a negative first id) is written as a VLong after
+     * the header BARE_LARGE_GAP or FULL_LARGE_GAP (the gap wraps around as the vertex ids are longs).
+     */
     private static class EdgeMap {
 
-        public static Map<String, List<FaunusEdge>> readFields(final DataInput in, final Direction idToRead, final long otherId) throws IOException {
-            final Map<String, List<FaunusEdge>> edges = new HashMap<String, List<FaunusEdge>>();
+        private static final long LARGE_GAP = 1l << 62;
+        private static final long BARE_LARGE_GAP = -1l;
+        private static final long FULL_LARGE_GAP = -2l;
+
+        public static Map<String, List<Edge>> readFields(final DataInput in, final Direction idToRead, final boolean sorted, final FaunusVertex vertex) throws IOException {
+            final Map<String, List<Edge>> edges = new HashMap<String, List<Edge>>();
             int edgeTypes = WritableUtils.readVInt(in);
             for (int i = 0; i < edgeTypes; i++) {
-                final String label = in.readUTF();
+                final String label = vertex.readType(in);
+                edges.put(label, readEdges(in, label, idToRead, sorted, vertex));
+            }
+            return edges;
+        }
+
+        public static List<Edge> readEdges(final DataInput in, final String label, final Direction idToRead, final boolean sorted, final FaunusVertex vertex) throws IOException {
+            final int size = WritableUtils.readVInt(in);
+            if (vertex.primitiveAdjacency) {
+                final PrimitiveEdgeList temp = new PrimitiveEdgeList(vertex, idToRead.opposite(), label, size);
+                if (sorted)
+                    temp.readSortedFields(in, size);
+                else
+                    temp.readFields(in, size);
+                return temp;
+            } else {
+                final List<Edge> temp = new ArrayList<Edge>(size);
+                long vertexId = 0l;
+                for (int j = 0; j < size; j++) {
+                    final FaunusEdge edge;
+                    if (sorted) {
+                        final long header = WritableUtils.readVLong(in);
+                        vertexId = vertexId + readGap(in, header);
+                        if (!isFull(header)) {
+                            edge = createEdge(WritableUtils.readVLong(in), vertexId, label, idToRead, vertex);
+                            edge.enablePath(vertex.pathEnabled);
+                        } else
+                            edge = readEdge(in, vertexId, label, idToRead, vertex);
+                    } else {
+                        edge = new FaunusEdge();
+                        edge.dictionary = vertex.dictionary;
+                        edge.readFieldsCompressed(in, idToRead);
+                        edge.setLabel(label);
+                        if (idToRead.equals(Direction.OUT))
+                            edge.inVertex = vertex.id;
+                        else
+                            edge.outVertex = vertex.id;
+                    }
+                    temp.add(edge);
+                }
+                return temp;
+            }
+        }
+
+        private static FaunusEdge createEdge(final long edgeId, final long vertexId, final String label, final Direction idToRead, final FaunusVertex vertex) {
+            final FaunusEdge edge = idToRead.equals(Direction.OUT) ?
+                    new FaunusEdge(edgeId, vertexId, vertex.id, label) :
+                    new FaunusEdge(edgeId, vertex.id, vertexId, label);
+            edge.dictionary = vertex.dictionary;
+            return edge;
+        }
+
+        private static FaunusEdge readEdge(final DataInput in, final long vertexId, final String label, final Direction idToRead, final FaunusVertex vertex) throws IOException {
+            final FaunusEdge edge = createEdge(-1l, vertexId, label, idToRead, vertex);
+            edge.readFields(in, false);
+            return edge;
+        }
+
+        /**
+         * @return the gap that the header holds or that follows it
+         */
+        private static long readGap(final DataInput in, final long header) throws IOException {
+            return header >= 0l ? header >> 1 : WritableUtils.readVLong(in);
+        }
+
+        private static boolean isFull(final long header) {
+            return header >= 0l ? (header & 1l) != 0l : header == FULL_LARGE_GAP;
+        }
+
+        private static long writeEdge(final DataOutput out, final long edgeId, final long vertexId, final long previousVertexId, final FaunusEdge fullEdge, final TypeDictionary dictionary) throws IOException {
+            final long gap = vertexId - previousVertexId;
+            if (gap >= 0l && gap < LARGE_GAP)
+                WritableUtils.writeVLong(out, (gap << 1) | (null == fullEdge ? 0l : 1l));
+            else {
+                WritableUtils.writeVLong(out, null == fullEdge ? BARE_LARGE_GAP : FULL_LARGE_GAP);
+                WritableUtils.writeVLong(out, gap);
+            }
+            if (null == fullEdge)
+                WritableUtils.writeVLong(out, edgeId);
+            else
+                fullEdge.write(out, dictionary);
+            return vertexId;
+        }
+
+        private static boolean isBare(final FaunusEdge edge, final boolean pathEnabled) {
+            return edge.pathEnabled == pathEnabled && !edge.hasPaths() && (null == edge.properties || edge.properties.isEmpty());
+        }
+
+        private static void writeSorted(final List<Edge> edges, final DataOutput out, final Direction idToWrite, final boolean pathEnabled, final TypeDictionary dictionary) throws IOException {
+            final FaunusEdge[] sorted = edges.toArray(new FaunusEdge[edges.size()]);
+            Arrays.sort(sorted, new java.util.Comparator<FaunusEdge>() {
+                public int compare(final FaunusEdge a, final FaunusEdge b) {
+                    final long x = a.getVertexId(idToWrite);
+                    final long y = b.getVertexId(idToWrite);
+                    return x < y ? -1 : (x == y ? 0 : 1);
+                }
+            });
+            WritableUtils.writeVInt(out, sorted.length);
+            long vertexId = 0l;
+            for (final FaunusEdge edge : sorted) {
+                vertexId = writeEdge(out, edge.getIdAsLong(), edge.getVertexId(idToWrite), vertexId, isBare(edge, pathEnabled) ? null : edge, dictionary);
+            }
+        }
+
+        public static void write(final Map<String, List<Edge>> edges, final LazyEdgeMap lazyEdges, final DataOutput out, final Direction idToWrite, final FaunusVertex vertex) throws IOException {
+            final TypeDictionary dictionary = vertex.dictionary;
+            WritableUtils.writeVInt(out, edges.size() + (null == lazyEdges ? 0 : lazyEdges.size()));
+            for (final Map.Entry<String, List<Edge>> entry : edges.entrySet()) {
+                writeType(entry.getKey(), out, dictionary);
+                if (entry.getValue() instanceof PrimitiveEdgeList) {
+                    if (vertex.sortedAdjacency)
+                        ((PrimitiveEdgeList) entry.getValue()).writeSorted(out, dictionary);
+                    else
+                        ((PrimitiveEdgeList) entry.getValue()).write(out, dictionary);
+                } else if (vertex.sortedAdjacency) {
+                    writeSorted(entry.getValue(), out, idToWrite, vertex.pathEnabled, dictionary);
+                } else {
+                    WritableUtils.writeVInt(out, entry.getValue().size());
+                    for (final Edge edge : entry.getValue()) {
+                        ((FaunusEdge) edge).writeCompressed(out, idToWrite, dictionary);
+                    }
+                }
+            }
+            if (null != lazyEdges)
+                lazyEdges.write(out, dictionary);
+        }
+    }
+
+    /**
+     * The still serialized labels of one edge direction, indexed by the byte range of the edges of each label.
+     * A label is decoded (and removed from this map) the first time its edges are requested.
+     */
+    private static class LazyEdgeMap {
+
+        private final byte[] bytes;
+        private final Map<String, int[]> ranges;
+        private final boolean sorted;
+
+        private LazyEdgeMap(final byte[] bytes, final Map<String, int[]> ranges, final boolean sorted) {
+            this.bytes = bytes;
+            this.ranges = ranges;
+            this.sorted = sorted;
+        }
+
+        public static LazyEdgeMap readFields(final DataInput in, final boolean sorted, final FaunusVertex vertex) throws IOException {
+            final int edgeTypes = WritableUtils.readVInt(in);
+            if (edgeTypes == 0)
+                return null;
+
+            final DataOutputBuffer buffer = new DataOutputBuffer();
+            final Map<String, int[]> ranges = new HashMap<String, int[]>();
+            byte[] scratch = new byte[0];
+            for (int i = 0; i < edgeTypes; i++) {
+                final String label = vertex.readType(in);
+                final int start = buffer.getLength();
                 final int size = WritableUtils.readVInt(in);
-                final List<FaunusEdge> temp = new ArrayList<FaunusEdge>(size);
+                WritableUtils.writeVInt(buffer, size);
                 for (int j = 0; j < size; j++) {
-                    final FaunusEdge edge = new FaunusEdge();
-                    edge.readFieldsCompressed(in, idToRead);
-                    edge.setLabel(label);
+                    if (sorted) {
+                        final long header = WritableUtils.readVLong(in);
+                        WritableUtils.writeVLong(buffer, header);
+                        if (header < 0l)
+                            WritableUtils.writeVLong(buffer, WritableUtils.readVLong(in));
+                        if (!EdgeMap.isFull(header))
+                            WritableUtils.writeVLong(buffer, WritableUtils.readVLong(in));
+                        else
+                            scratch = copyElement(in, buffer, scratch);
+                    } else {
+                        scratch = copyElement(in, buffer, scratch);
+                        WritableUtils.writeVLong(buffer, WritableUtils.readVLong(in));
+                    }
+                }
+                ranges.put(label, new int[]{start, buffer.getLength()});
+            }
+            return new LazyEdgeMap(buffer.getData(), ranges, sorted);
+        }
+
+        // re-encoding the variable length numbers yields the exact bytes that were read
+        private static byte[] copyElement(final DataInput in, final DataOutput out, byte[] scratch) throws IOException {
+            WritableUtils.writeVLong(out, WritableUtils.readVLong(in));
+            final byte flags = in.readByte();
+            out.writeByte(flags);
+            if ((flags & 0x01) != 0) {
+                ElementPaths.copy(in, out);
+            } else {
+                WritableUtils.writeVLong(out, WritableUtils.readVLong(in));
+            }
+            final int properties = WritableUtils.readVInt(in);
+            WritableUtils.writeVInt(out, properties);
+            if (properties > 0) {
+                final int length = WritableUtils.readVInt(in);
+                WritableUtils.writeVInt(out, length);
+                if (scratch.length < length)
+                    scratch = new byte[length];
+                in.readFully(scratch, 0, length);
+                out.write(scratch, 0, length);
+            }
+            return scratch;
+        }
+
+        public LazyEdgeMap copy() {
+            return new LazyEdgeMap(this.bytes, new HashMap<String, int[]>(this.ranges), this.sorted);
+        }
+
+        public int size() {
+            return this.ranges.size();
+        }
+
+        public boolean isEmpty() {
+            return this.ranges.isEmpty();
+        }
+
+        public Set<String> getLabels() {
+            return this.ranges.keySet();
+        }
+
+        public void remove(final String label) {
+            this.ranges.remove(label);
+        }
+
+        public void retain(final Set<String> labels) {
+            this.ranges.keySet().retainAll(labels);
+        }
+
+        public void decode(final Map<String, List<Edge>> edges, final String[] labels, final Direction idToRead, final FaunusVertex vertex) {
+            try {
+                final DataInputBuffer in = new DataInputBuffer();
+                if (null == labels || labels.length == 0) {
+                    for (final Map.Entry<String, int[]> entry : this.ranges.entrySet()) {
+                        edges.put(entry.getKey(), this.decode(in, entry.getKey(), entry.getValue(), idToRead, vertex));
+                    }
+                    this.ranges.clear();
+                } else {
+                    for (final String label : labels) {
+                        final int[] range = this.ranges.remove(label);
+                        if (null != range)
+                            edges.put(label, this.decode(in, label, range, idToRead, vertex));
+                    }
+                }
+            } catch (final IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        private List<Edge> decode(final DataInputBuffer in, final String label, final int[] range, final Direction idToRead, final FaunusVertex vertex) throws IOException {
+            in.reset(this.bytes, range[0], range[1] - range[0]);
+            return EdgeMap.readEdges(in, label, idToRead, this.sorted, vertex);
+        }
+
+        public void write(final DataOutput out, final TypeDictionary dictionary) throws IOException {
+            for (final Map.Entry<String, int[]> entry : this.ranges.entrySet()) {
+                writeType(entry.getKey(), out, dictionary);
+                out.write(this.bytes, entry.getValue()[0], entry.getValue()[1] - entry.getValue()[0]);
+            }
+        }
+    }
+
+    /**
+     * An edge list for a single label and direction that stores the edge ids and adjacent vertex ids in primitive arrays.
+     * FaunusEdge objects are created on access and retained so that mutations (properties, paths) are not lost.
+     * Edges that were never accessed and have no properties or paths are serialized straight from the arrays.
+     */
+    private static class PrimitiveEdgeList extends AbstractList<Edge> {
+
+        private final FaunusVertex vertex;
+        private final Direction direction;
+        private final String label;
+        private long[] edgeIds;
+        private long[] vertexIds;
+        private FaunusEdge[] edges = null;
+        private boolean pathEnabled;
+        private int size = 0;
+
+        public PrimitiveEdgeList(final FaunusVertex vertex, final Direction direction, final String label, final int capacity) {
+            this.vertex = vertex;
+            this.direction = direction;
+            this.label = TYPE_MAP.get(label);
+            this.edgeIds = new long[Math.max(capacity, 4)];
+            this.vertexIds = new long[this.edgeIds.length];
+            this.pathEnabled = vertex.pathEnabled;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public long getVertexId(final int index) {
+            if (index >= this.size)
+                throw new ArrayIndexOutOfBoundsException(index);
+            return this.vertexIds[index];
+        }
+
+        public Edge get(final int index) {
+            if (index >= this.size)
+                throw new ArrayIndexOutOfBoundsException(index);
+            if (null == this.edges)
+                this.edges = new FaunusEdge[this.edgeIds.length];
+
+            FaunusEdge edge = this.edges[index];
+            if (null == edge) {
+                if (this.direction.equals(OUT))
+                    edge = new FaunusEdge(this.edgeIds[index], this.vertex.id, this.vertexIds[index], this.label);
+                else
+                    edge = new FaunusEdge(this.edgeIds[index], this.vertexIds[index], this.vertex.id, this.label);
+                edge.enablePath(this.pathEnabled);
+                edge.dictionary = this.vertex.dictionary;
+                this.edges[index] = edge;
+            }
+            return edge;
+        }
+
+        public boolean add(final Edge edge) {
+            final FaunusEdge faunusEdge = (FaunusEdge) edge;
+            this.append(faunusEdge.getIdAsLong(), faunusEdge.getVertexId(this.direction.opposite()), faunusEdge);
+            return true;
+        }
+
+        public void addAll(final PrimitiveEdgeList other) {
+            this.ensureCapacity(this.size + other.size);
+            System.arraycopy(other.edgeIds, 0, this.edgeIds, this.size, other.size);
+            System.arraycopy(other.vertexIds, 0, this.vertexIds, this.size, other.size);
+            if (null != other.edges) {
+                if (null == this.edges)
+                    this.edges = new FaunusEdge[this.edgeIds.length];
+                System.arraycopy(other.edges, 0, this.edges, this.size, other.size);
+            }
+            this.size = this.size + other.size;
+            this.modCount++;
+        }
+
+        public Edge remove(final int index) {
+            final Edge edge = this.get(index);
+            final int tail = this.size - index - 1;
+            if (tail > 0) {
+                System.arraycopy(this.edgeIds, index + 1, this.edgeIds, index, tail);
+                System.arraycopy(this.vertexIds, index + 1, this.vertexIds, index, tail);
+                System.arraycopy(this.edges, index + 1, this.edges, index, tail);
+            }
+            this.size--;
+            this.edges[this.size] = null;
+            this.modCount++;
+            return edge;
+        }
+
+        public void removeVertexIds(final Set<Long> ids) {
+            int keep = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (!ids.contains(this.vertexIds[i])) {
+                    this.edgeIds[keep] = this.edgeIds[i];
+                    this.vertexIds[keep] = this.vertexIds[i];
+                    if (null != this.edges)
+                        this.edges[keep] = this.edges[i];
+                    keep++;
+                }
+            }
+            if (null != this.edges)
+                Arrays.fill(this.edges, keep, this.size, null);
+            this.size = keep;
+            this.modCount++;
+        }
+
+        public void clear() {
+            this.size = 0;
+            this.edges = null;
+            this.modCount++;
+        }
+
+        public void enablePath(final boolean enablePath) {
+            this.pathEnabled = enablePath;
+            if (null != this.edges) {
+                for (int i = 0; i < this.size; i++) {
+                    if (null != this.edges[i])
+                        this.edges[i].enablePath(enablePath);
+                }
+            }
+        }
+
+        private void append(final long edgeId, final long vertexId, final FaunusEdge edge) {
+            this.ensureCapacity(this.size + 1);
+            this.edgeIds[this.size] = edgeId;
+            this.vertexIds[this.size] = vertexId;
+            if (null != edge) {
+                if (null == this.edges)
+                    this.edges = new FaunusEdge[this.edgeIds.length];
+                this.edges[this.size] = edge;
+            }
+            this.size++;
+            this.modCount++;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > this.edgeIds.length) {
+                final int length = Math.max(capacity, this.edgeIds.length + (this.edgeIds.length >> 1));
+                this.edgeIds = Arrays.copyOf(this.edgeIds, length);
+                this.vertexIds = Arrays.copyOf(this.vertexIds, length);
+                if (null != this.edges)
+                    this.edges = Arrays.copyOf(this.edges, length);
+            }
+        }
+
+        private boolean isBare(final FaunusEdge edge) {
+            return EdgeMap.isBare(edge, this.pathEnabled);
+        }
+
+        public void readFields(final DataInput in, final int size) throws IOException {
+            final Direction idToRead = this.direction.opposite();
+            FaunusEdge edge = new FaunusEdge();
+            for (int i = 0; i < size; i++) {
+                edge.dictionary = this.vertex.dictionary;
+                edge.readFieldsCompressed(in, idToRead);
+                if (this.isBare(edge)) {
+                    this.append(edge.getIdAsLong(), edge.getVertexId(idToRead), null);
+                } else {
+                    edge.setLabel(this.label);
                     if (idToRead.equals(Direction.OUT))
-                        edge.inVertex = otherId;
+                        edge.inVertex = this.vertex.id;
                     else
-                        edge.outVertex = otherId;
-                    temp.add(edge);
+                        edge.outVertex = this.vertex.id;
+                    this.append(edge.getIdAsLong(), edge.getVertexId(idToRead), edge);
+                    edge = new FaunusEdge();
+                }
+            }
+        }
+
+        public void readSortedFields(final DataInput in, final int size) throws IOException {
+            final Direction idToRead = this.direction.opposite();
+            long vertexId = 0l;
+            for (int i = 0; i < size; i++) {
+                final long header = WritableUtils.readVLong(in);
+                vertexId = vertexId + EdgeMap.readGap(in, header);
+                if (!EdgeMap.isFull(header)) {
+                    this.append(WritableUtils.readVLong(in), vertexId, null);
+                } else {
+                    final FaunusEdge edge = EdgeMap.readEdge(in, vertexId, this.label, idToRead, this.vertex);
+                    this.append(edge.getIdAsLong(), vertexId, edge);
                 }
-                edges.put(label, temp);
             }
-            return edges;
         }
 
-        public static void write(final Map<String, List<FaunusEdge>> edges, final DataOutput out, final Direction idToWrite) throws IOException {
-            WritableUtils.writeVInt(out, edges.size());
-            for (final Map.Entry<String, List<FaunusEdge>> entry : edges.entrySet()) {
-                out.writeUTF(entry.getKey());
-                WritableUtils.writeVInt(out, entry.getValue().size());
-                for (final FaunusEdge edge : entry.getValue()) {
-                    edge.writeCompressed(out, idToWrite);
+        public void write(final DataOutput out, final TypeDictionary dictionary) throws IOException {
+            final Direction idToWrite = this.direction.opposite();
+            WritableUtils.writeVInt(out, this.size);
+            for (int i = 0; i < this.size; i++) {
+                if (null != this.edges && null != this.edges[i]) {
+                    this.edges[i].writeCompressed(out, idToWrite, dictionary);
+                } else {
+                    // the same bytes as FaunusEdge.writeCompressed() for an edge without properties and paths
+                    WritableUtils.writeVLong(out, this.edgeIds[i]);
+                    out.writeBoolean(this.pathEnabled);
+                    if (this.pathEnabled)
+                        WritableUtils.writeVInt(out, 0);
+                    else
+                        WritableUtils.writeVLong(out, 0l);
+                    WritableUtils.writeVInt(out, 0);
+                    WritableUtils.writeVLong(out, this.vertexIds[i]);
+                }
+            }
+        }
+
+        public void writeSorted(final DataOutput out, final TypeDictionary dictionary) throws IOException {
+            int[] order = null;
+            for (int i = 1; i < this.size; i++) {
+                if (this.vertexIds[i - 1] > this.vertexIds[i]) {
+                    order = this.sortOrder();
+                    break;
+                }
+            }
+            WritableUtils.writeVInt(out, this.size);
+            long vertexId = 0l;
+            for (int i = 0; i < this.size; i++) {
+                final int index = null == order ? i : order[i];
+                final FaunusEdge edge = null == this.edges ? null : this.edges[index];
+                vertexId = EdgeMap.writeEdge(out, this.edgeIds[index], this.vertexIds[index], vertexId,
+                        null == edge || this.isBare(edge) ? null : edge, dictionary);
+            }
+        }
+
+        private int[] sortOrder() {
+            final Integer[] boxed = new Integer[this.size];
+            for (int i = 0; i < this.size; i++) {
+                boxed[i] = i;
+            }
+            Arrays.sort(boxed, new java.util.Comparator<Integer>() {
+                public int compare(final Integer a, final Integer b) {
+                    final long x = vertexIds[a];
+                    final long y = vertexIds[b];
+                    return x < y ? -1 : (x == y ? 0 : 1);
                 }
+            });
+            final int[] order = new int[this.size];
+            for (int i = 0; i < this.size; i++) {
+                order[i] = boxed[i];
             }
+            return order;
         }
     }
 
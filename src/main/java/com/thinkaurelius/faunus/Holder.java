@@ -1,36 +1,35 @@
 package com.thinkaurelius.faunus;
 
-import org.apache.hadoop.io.GenericWritable;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.ReflectionUtils;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 
 /**
+ * A Holder is the map output value of the message passing MapReduce jobs: a vertex or an edge with a tag.
+ * It is serialized as a single byte (the tag in the low 7 bits and whether the element is an edge in the high bit)
+ * followed by the element. As such, the tag must be an ASCII character.
+ *
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
-public class Holder<T extends FaunusElement> extends GenericWritable implements WritableComparable<Holder<T>> {
+public class Holder<T extends FaunusElement> implements WritableComparable<Holder<T>>, Configurable {
+
+    private static final int EDGE = 0x80;
 
     protected char tag;
+    private T element;
+    private Configuration configuration;
 
     static {
         WritableComparator.define(Holder.class, new Comparator());
     }
 
-    private static Class[] CLASSES = {
-            FaunusVertex.class,
-            FaunusEdge.class
-    };
-
-    protected Class<T>[] getTypes() {
-        return CLASSES;
-
-    }
-
     public Holder() {
-        super();
     }
 
     public Holder(final DataInput in) throws IOException {
@@ -40,13 +39,12 @@ public class Holder<T extends FaunusElement> extends GenericWritable implements
 
     public Holder(final char tag, final T element) {
         this();
-        this.set(element);
-        this.tag = tag;
+        this.set(tag, element);
     }
 
     @Override
     public int hashCode() {
-        return super.get().hashCode();
+        return this.element.hashCode();
     }
 
     public char getTag() {
@@ -54,26 +52,38 @@ public class Holder<T extends FaunusElement> extends GenericWritable implements
     }
 
     public T get() {
-        return (T) super.get();
+        return this.element;
     }
 
     public Holder<T> set(final char tag, final T element) {
-        this.set(element);
+        if (tag >= EDGE)
+            throw new IllegalArgumentException("The tag of a holder must be an ASCII character: " + tag);
+        this.element = element;
         this.tag = tag;
         return this;
     }
 
     @Override
     public void write(final DataOutput out) throws IOException {
-        out.writeChar(this.tag);
-        super.write(out);
-
+        out.writeByte(this.element instanceof FaunusEdge ? this.tag | EDGE : this.tag);
+        this.element.write(out);
     }
 
     @Override
     public void readFields(final DataInput in) throws IOException {
-        this.tag = in.readChar();
-        super.readFields(in);
+        final int header = in.readUnsignedByte();
+        this.tag = (char) (header & ~EDGE);
+        // the element is new for every record as the reducers hold on to the elements they are handed
+        this.element = (T) ReflectionUtils.newInstance((header & EDGE) == 0 ? FaunusVertex.class : FaunusEdge.class, this.configuration);
+        this.element.readFields(in);
+    }
+
+    public Configuration getConf() {
+        return this.configuration;
+    }
+
+    public void setConf(final Configuration configuration) {
+        this.configuration = configuration;
     }
 
     @Override
@@ -83,8 +93,8 @@ public class Holder<T extends FaunusElement> extends GenericWritable implements
 
     @Override
     public int compareTo(final Holder<T> holder) {
-        final FaunusElement e1 = holder.get();
-        final FaunusElement e2 = this.get();
+        final FaunusElement e1 = this.get();
+        final FaunusElement e2 = holder.get();
         if (e1 instanceof FaunusVertex && e2 instanceof FaunusVertex)
             return e1.compareTo(e2);
         else
@@ -99,11 +109,12 @@ public class Holder<T extends FaunusElement> extends GenericWritable implements
 
         @Override
         public int compare(final byte[] holder1, final int start1, final int length1, final byte[] holder2, final int start2, final int length2) {
-            // 1 byte is the class
-            // 1 byte is the character
+            // 1 byte is the tag (and the class)
             // the next vlong bytes are the long id
             try {
-                return Long.valueOf(readVLong(holder1, 3)).compareTo(readVLong(holder2, 3));
+                final long id1 = readVLong(holder1, start1 + 1);
+                final long id2 = readVLong(holder2, start2 + 1);
+                return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
             } catch (IOException e) {
                 return -1;
             }
@@ -111,9 +122,11 @@ public class Holder<T extends FaunusElement> extends GenericWritable implements
 
         @Override
         public int compare(final WritableComparable a, final WritableComparable b) {
-            if (a instanceof Holder && b instanceof Holder)
-                return ((Long) (((Holder) a).get().getIdAsLong())).compareTo(((Holder) b).get().getIdAsLong());
-            else
+            if (a instanceof Holder && b instanceof Holder) {
+                final long id1 = ((Holder) a).get().getIdAsLong();
+                final long id2 = ((Holder) b).get().getIdAsLong();
+                return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+            } else
                 return super.compare(a, b);
         }
     }
@@ -0,0 +1,133 @@
+package com.thinkaurelius.faunus;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A TaggedLongWritable is the map output key of the Holder-based MapReduce jobs.
+ * It is a LongWritable (the vertex id) that also carries the tag of the Holder it is emitted with.
+ * The tag participates in sorting (the 'v' tag is always first for a vertex id), but not in partitioning or grouping.
+ * As such, the reducer sees the vertex before any of the messages (e.g. paths, edges) sent to it.
+ * The key is serialized as a fixed-width long followed by the tag as a single byte (the tag must be an ASCII character).
+ */
+public class TaggedLongWritable extends LongWritable {
+
+    public static final char VERTEX_TAG = 'v';
+
+    private char tag = VERTEX_TAG;
+
+    static {
+        WritableComparator.define(TaggedLongWritable.class, new Comparator());
+    }
+
+    public TaggedLongWritable() {
+        super();
+    }
+
+    public TaggedLongWritable(final long value, final char tag) {
+        super();
+        this.set(value, tag);
+    }
+
+    public void set(final long value, final char tag) {
+        if (tag > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("The tag of a key must be an ASCII character: " + tag);
+        this.set(value);
+        this.tag = tag;
+    }
+
+    public char getTag() {
+        return this.tag;
+    }
+
+    @Override
+    public void write(final DataOutput out) throws IOException {
+        super.write(out);
+        out.writeByte(this.tag);
+    }
+
+    @Override
+    public void readFields(final DataInput in) throws IOException {
+        super.readFields(in);
+        this.tag = (char) in.readUnsignedByte();
+    }
+
+    private static int rank(final char tag) {
+        return tag == VERTEX_TAG ? -1 : tag;
+    }
+
+    /**
+     * Sorts by id and then by tag (with the vertex first).
+     */
+    public static class Comparator extends WritableComparator {
+        public Comparator() {
+            super(TaggedLongWritable.class);
+        }
+
+        @Override
+        public int compare(final byte[] key1, final int start1, final int length1, final byte[] key2, final int start2, final int length2) {
+            final long id1 = readLong(key1, start1);
+            final long id2 = readLong(key2, start2);
+            if (id1 != id2)
+                return id1 < id2 ? -1 : 1;
+            final int tag1 = rank((char) (key1[start1 + 8] & 0xFF));
+            final int tag2 = rank((char) (key2[start2 + 8] & 0xFF));
+            return tag1 < tag2 ? -1 : (tag1 == tag2 ? 0 : 1);
+        }
+
+        @Override
+        public int compare(final WritableComparable a, final WritableComparable b) {
+            final TaggedLongWritable key1 = (TaggedLongWritable) a;
+            final TaggedLongWritable key2 = (TaggedLongWritable) b;
+            if (key1.get() != key2.get())
+                return key1.get() < key2.get() ? -1 : 1;
+            final int tag1 = rank(key1.tag);
+            final int tag2 = rank(key2.tag);
+            return tag1 < tag2 ? -1 : (tag1 == tag2 ? 0 : 1);
+        }
+    }
+
+    /**
+     * Groups by id only so that all the tags of a vertex id are reduced together.
+     */
+    public static class GroupingComparator extends WritableComparator {
+        public GroupingComparator() {
+            super(TaggedLongWritable.class);
+        }
+
+        @Override
+        public int compare(final byte[] key1, final int start1, final int length1, final byte[] key2, final int start2, final int length2) {
+            final long id1 = readLong(key1, start1);
+            final long id2 = readLong(key2, start2);
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+
+        @Override
+        public int compare(final WritableComparable a, final WritableComparable b) {
+            final long id1 = ((LongWritable) a).get();
+            final long id2 = ((LongWritable) b).get();
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    }
+
+    /**
+     * Partitions by id only, as a HashPartitioner does a LongWritable key (the tag is ignored).
+     */
+    public static class Partitioner extends org.apache.hadoop.mapreduce.Partitioner<LongWritable, Writable> {
+
+        @Override
+        public int getPartition(final LongWritable key, final Writable value, final int partitions) {
+            return getPartition(key.get(), partitions);
+        }
+
+        public static int getPartition(final long id, final int partitions) {
+            return ((int) (id ^ (id >>> 32)) & Integer.MAX_VALUE) % partitions;
+        }
+    }
+}
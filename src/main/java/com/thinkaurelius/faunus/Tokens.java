@@ -64,5 +64,18 @@ public class Tokens {
 
     public static int DEFAULT_MAP_SPILL_OVER = 500;
     public static final String FAUNUS_PIPELINE_MAP_SPILL_OVER = "faunus.pipeline.map-spill-over";
+    public static final String FAUNUS_PIPELINE_MAP_THREADS = "faunus.pipeline.map-threads";
+    public static final String FAUNUS_PIPELINE_FUSE_JOBS = "faunus.pipeline.fuse-jobs";
+    public static final String FAUNUS_PIPELINE_LOCAL = "faunus.pipeline.local";
+    public static final String FAUNUS_PIPELINE_LOCAL_THREADS = "faunus.pipeline.local-threads";
+    public static final String FAUNUS_PIPELINE_FRONTIER = "faunus.pipeline.frontier";
+    public static int DEFAULT_PATH_SPILL_OVER = 1000000;
+    public static final String FAUNUS_PIPELINE_PATH_SPILL_OVER = "faunus.pipeline.path-spill-over";
+    public static final String FAUNUS_PIPELINE_PATH_SAMPLE = "faunus.pipeline.path-sample";
+
+    public static final String FAUNUS_VERTEX_PRIMITIVE_ADJACENCY = "faunus.vertex.primitive-adjacency";
+    public static final String FAUNUS_VERTEX_LAZY_DESERIALIZATION = "faunus.vertex.lazy-deserialization";
+    public static final String FAUNUS_VERTEX_SORTED_ADJACENCY = "faunus.vertex.sorted-adjacency";
+    public static final String FAUNUS_GRAPH_DICTIONARY = "faunus.graph.dictionary";
 
 }
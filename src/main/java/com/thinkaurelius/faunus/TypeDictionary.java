@@ -0,0 +1,120 @@
+package com.thinkaurelius.faunus;
+
+import com.thinkaurelius.titan.diskstorage.ReadBuffer;
+import com.thinkaurelius.titan.diskstorage.WriteBuffer;
+import com.thinkaurelius.titan.graphdb.database.serialize.kryo.KryoSerializer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A TypeDictionary maps the edge labels and property keys of a graph to small integer ids.
+ * When a dictionary is configured (faunus.graph.dictionary), elements write their labels and property keys as
+ * variable length ids instead of strings. Types that are not in the dictionary are still written as strings.
+ * The dictionary is declared up front in the graph configuration and thus is shipped with every job in the chain.
+ */
+public class TypeDictionary {
+
+    private static final Map<String, TypeDictionary> DICTIONARIES = new HashMap<String, TypeDictionary>();
+
+    private final String[] types;
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    public TypeDictionary(final String... types) {
+        this.types = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            final String type = FaunusElement.TYPE_MAP.get(types[i].trim());
+            if (this.ids.containsKey(type))
+                throw new IllegalArgumentException("The type dictionary contains a duplicate entry: " + type);
+            this.types[i] = type;
+            this.ids.put(type, i);
+        }
+    }
+
+    /**
+     * Get the dictionary declared in the configuration (shared by all elements of the task).
+     *
+     * @param configuration the job configuration
+     * @return the dictionary or null if no dictionary is declared
+     */
+    public static TypeDictionary getDictionary(final Configuration configuration) {
+        final String declaration = configuration.get(Tokens.FAUNUS_GRAPH_DICTIONARY, null);
+        if (null == declaration || declaration.trim().isEmpty())
+            return null;
+
+        synchronized (DICTIONARIES) {
+            TypeDictionary dictionary = DICTIONARIES.get(declaration);
+            if (null == dictionary) {
+                dictionary = new TypeDictionary(configuration.getStrings(Tokens.FAUNUS_GRAPH_DICTIONARY));
+                DICTIONARIES.put(declaration, dictionary);
+            }
+            return dictionary;
+        }
+    }
+
+    public int size() {
+        return this.types.length;
+    }
+
+    public int getId(final String type) {
+        final Integer id = this.ids.get(type);
+        return null == id ? -1 : id;
+    }
+
+    public String getType(final int id) {
+        if (id < 0 || id >= this.types.length)
+            throw new IllegalStateException("The type id " + id + " is not in the dictionary (size " + this.types.length + ")");
+        return this.types[id];
+    }
+
+    // 0 is reserved for types that are not in the dictionary and are followed by their string
+
+    public void writeType(final String type, final DataOutput out) throws IOException {
+        final int id = this.getId(type);
+        WritableUtils.writeVInt(out, id + 1);
+        if (id == -1)
+            out.writeUTF(type);
+    }
+
+    public String readType(final DataInput in) throws IOException {
+        final int id = WritableUtils.readVInt(in);
+        return id == 0 ? FaunusElement.TYPE_MAP.get(in.readUTF()) : this.getType(id - 1);
+    }
+
+    public void writeType(final String type, final com.thinkaurelius.titan.graphdb.database.serialize.DataOutput out) {
+        final int id = this.getId(type);
+        writeUnsignedVInt(id + 1, out);
+        if (id == -1)
+            out.writeObject(type, String.class);
+    }
+
+    public String readType(final ReadBuffer buffer, final KryoSerializer serializer) {
+        final int id = readUnsignedVInt(buffer);
+        return id == 0 ? FaunusElement.TYPE_MAP.get(serializer.readObject(buffer, String.class)) : this.getType(id - 1);
+    }
+
+    private static void writeUnsignedVInt(int value, final WriteBuffer out) {
+        while ((value & ~0x7F) != 0) {
+            out.putByte((byte) ((value & 0x7F) | 0x80));
+            value = value >>> 7;
+        }
+        out.putByte((byte) value);
+    }
+
+    private static int readUnsignedVInt(final ReadBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.getByte();
+            value = value | ((b & 0x7F) << shift);
+            shift = shift + 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
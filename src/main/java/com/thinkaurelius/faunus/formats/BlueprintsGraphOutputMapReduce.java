@@ -7,6 +7,7 @@ import com.thinkaurelius.faunus.Holder;
 import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.formats.titan.GraphFactory;
 import com.thinkaurelius.faunus.formats.titan.TitanOutputFormat;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Graph;
@@ -97,7 +98,7 @@ public class BlueprintsGraphOutputMapReduce {
     ////////////// MAP/REDUCE WORK FROM HERE ON OUT
 
     // WRITE ALL THE VERTICES AND THEIR PROPERTIES
-    public static class VertexMap extends Mapper<NullWritable, FaunusVertex, LongWritable, Holder<FaunusVertex>> {
+    public static class VertexMap extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, Holder<FaunusVertex>> {
 
         static GremlinGroovyScriptEngine engine = null;
         static boolean firstRead = true;
@@ -230,7 +231,7 @@ public class BlueprintsGraphOutputMapReduce {
     }
 
     // WRITE ALL THE EDGES CONNECTING THE VERTICES
-    public static class EdgeMap extends Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+    public static class EdgeMap extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
 
         static GremlinGroovyScriptEngine engine = null;
         static boolean firstRead = true;
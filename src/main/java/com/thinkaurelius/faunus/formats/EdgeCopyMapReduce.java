@@ -3,6 +3,7 @@ package com.thinkaurelius.faunus.formats;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
@@ -34,7 +35,7 @@ public class EdgeCopyMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, LongWritable, Holder<FaunusVertex>> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, Holder<FaunusVertex>> {
 
         private final Holder<FaunusVertex> vertexHolder = new Holder<FaunusVertex>();
         private final FaunusVertex shellVertex = new FaunusVertex();
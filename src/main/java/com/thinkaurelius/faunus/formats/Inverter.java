@@ -1,5 +1,7 @@
 package com.thinkaurelius.faunus.formats;
 
+import com.thinkaurelius.faunus.formats.columnar.ColumnarInputFormat;
+import com.thinkaurelius.faunus.formats.columnar.ColumnarOutputFormat;
 import com.thinkaurelius.faunus.formats.graphson.GraphSONInputFormat;
 import com.thinkaurelius.faunus.formats.graphson.GraphSONOutputFormat;
 import com.thinkaurelius.faunus.formats.script.ScriptInputFormat;
@@ -29,6 +31,8 @@ public class Inverter {
             return TitanCassandraOutputFormat.class;
         else if (inputFormat.equals(ScriptInputFormat.class))
             return ScriptOutputFormat.class;
+        else if (inputFormat.equals(ColumnarInputFormat.class))
+            return ColumnarOutputFormat.class;
 
         throw new UnsupportedOperationException("There currently is no inverse for " + inputFormat.getName());
     }
@@ -44,6 +48,8 @@ public class Inverter {
             return TitanCassandraInputFormat.class;
         else if (outputFormat.equals(ScriptOutputFormat.class))
             return ScriptInputFormat.class;
+        else if (outputFormat.equals(ColumnarOutputFormat.class))
+            return ColumnarInputFormat.class;
 
         throw new UnsupportedOperationException("There currently is no inverse for " + outputFormat.getName());
     }
@@ -0,0 +1,179 @@
+package com.thinkaurelius.faunus.formats;
+
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.IdentityMap;
+import com.thinkaurelius.faunus.mapreduce.MapSequence;
+import com.thinkaurelius.faunus.mapreduce.filter.CyclicPathFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.DuplicateFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.IntervalFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.PropertyFilterMap;
+import com.thinkaurelius.faunus.mapreduce.sideeffect.ValueGroupCountMapReduce;
+import com.thinkaurelius.faunus.mapreduce.transform.OrderMapReduce;
+import com.thinkaurelius.faunus.mapreduce.transform.PathMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PropertyMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PropertyMapMap;
+import com.thinkaurelius.faunus.mapreduce.transform.VerticesMap;
+import com.thinkaurelius.faunus.mapreduce.util.CountMapReduce;
+import com.thinkaurelius.faunus.mapreduce.util.ElementChecker;
+import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DefaultStringifier;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Job;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A VertexPredicate is made of the vertex property filters (has() and interval()) that a pipeline starts with (V.has(...)).
+ * The paths of a vertex that fails these filters are cleared before any other step, so the record readers evaluate the
+ * predicate as a vertex is read. A vertex that fails it is not read at all when no later step can move paths to it,
+ * otherwise only the projection that the later steps read is kept (e.g. the edges are never materialized).
+ * The filter steps remain in the pipeline: for the vertices that are read, the predicate is simply evaluated twice.
+ */
+public class VertexPredicate {
+
+    public static final String FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE = "faunus.graph.input.vertex-predicate";
+    public static final String FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE_DROP = FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE + ".drop";
+    public static final String FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE_PROJECTION = FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE + ".projection";
+
+    private static final Text STEP_CLASS = new Text(Tokens.makeNamespace(VertexPredicate.class) + ".stepClass");
+
+    // these steps never move paths from the elements that hold them to other elements
+    private static final List<String> STATIONARY_MAPS = Arrays.asList(
+            PropertyFilterMap.Map.class.getName(), IntervalFilterMap.Map.class.getName(), PropertyMap.Map.class.getName(),
+            PropertyMapMap.Map.class.getName(), ValueGroupCountMapReduce.Map.class.getName(), OrderMapReduce.Map.class.getName(),
+            CountMapReduce.Map.class.getName(), IdentityMap.Map.class.getName(), PathMap.Map.class.getName(),
+            DuplicateFilterMap.Map.class.getName(), CyclicPathFilterMap.Map.class.getName());
+
+    private final List<ElementChecker> checkers = new ArrayList<ElementChecker>();
+    private boolean drop = false;
+    private VertexProjection projection = VertexProjection.all();
+
+    public static VertexPredicate create(final Configuration configuration) {
+        final VertexPredicate predicate = new VertexPredicate();
+        if (null == configuration.get(FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE))
+            return predicate;
+        try {
+            for (final MapWritable step : DefaultStringifier.loadArray(configuration, FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE, MapWritable.class)) {
+                final Configuration stepConfiguration = new EmptyConfiguration();
+                for (final Map.Entry<Writable, Writable> entry : step.entrySet()) {
+                    stepConfiguration.set(entry.getKey().toString(), entry.getValue().toString());
+                }
+                if (PropertyFilterMap.Map.class.getName().equals(stepConfiguration.get(STEP_CLASS.toString())))
+                    predicate.checkers.add(PropertyFilterMap.createElementChecker(stepConfiguration));
+                else
+                    predicate.checkers.addAll(Arrays.asList(IntervalFilterMap.createElementCheckers(stepConfiguration)));
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("VertexPredicate compilation error: " + e.getMessage(), e);
+        }
+        predicate.drop = configuration.getBoolean(FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE_DROP, false);
+        predicate.projection = VertexProjection.create(configuration, FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE_PROJECTION);
+        return predicate;
+    }
+
+    public boolean doesFilter() {
+        return !this.checkers.isEmpty();
+    }
+
+    public boolean isLegal(final FaunusVertex vertex) {
+        for (final ElementChecker checker : this.checkers) {
+            if (!checker.isLegal(vertex))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the vertices that fail the predicate are not read at all
+     */
+    public boolean isDrop() {
+        return this.drop;
+    }
+
+    /**
+     * @return the projection of the vertices that fail the predicate
+     */
+    public VertexProjection getProjection() {
+        return this.projection;
+    }
+
+    /**
+     * Reduce the vertex to the projection of the vertices that fail the predicate (if it fails the predicate).
+     *
+     * @return whether the vertex is read (false if it is dropped)
+     */
+    public boolean filter(final FaunusVertex vertex) {
+        if (this.isLegal(vertex))
+            return true;
+        if (this.drop)
+            return false;
+        this.projection.apply(vertex);
+        return true;
+    }
+
+    /**
+     * Push the vertex property filters that the jobs start with (if any) into the configuration of the record readers.
+     *
+     * @param jobs          the compiled jobs of a pipeline
+     * @param configuration the configuration of the first job
+     * @return whether a predicate was pushed down
+     */
+    public static boolean derive(final List<Job> jobs, final Configuration configuration) throws IOException {
+        final List<String> mapClasses = new ArrayList<String>();
+        final List<MapWritable> steps = new ArrayList<MapWritable>();
+        for (final Job job : jobs) {
+            final String[] classes = job.getConfiguration().getStrings(MapSequence.MAP_CLASSES);
+            if (null == classes)
+                return false;
+            final MapWritable[] stepConfigurations = MapSequence.getStepConfigurations(job.getConfiguration());
+            for (int i = 0; i < classes.length; i++) {
+                mapClasses.add(classes[i]);
+                steps.add(i < stepConfigurations.length ? stepConfigurations[i] : new MapWritable());
+            }
+        }
+        if (mapClasses.isEmpty() || !mapClasses.get(0).equals(VerticesMap.Map.class.getName()))
+            return false;
+
+        final List<MapWritable> filters = new ArrayList<MapWritable>();
+        int step = 1;
+        for (; step < mapClasses.size() && isVertexFilter(mapClasses.get(step), steps.get(step)); step++) {
+            final MapWritable filter = new MapWritable(steps.get(step));
+            filter.put(STEP_CLASS, new Text(mapClasses.get(step)));
+            filters.add(filter);
+        }
+        if (filters.isEmpty())
+            return false;
+
+        // the vertices that fail the predicate can only be reached from the first step that moves paths
+        while (step < mapClasses.size() && STATIONARY_MAPS.contains(mapClasses.get(step))) {
+            step++;
+        }
+        DefaultStringifier.storeArray(configuration, filters.toArray(new MapWritable[filters.size()]), FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE);
+        if (step == mapClasses.size())
+            configuration.setBoolean(FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE_DROP, true);
+        else
+            VertexProjection.derive(jobs, step).store(configuration, FAUNUS_GRAPH_INPUT_VERTEX_PREDICATE_PROJECTION);
+        return true;
+    }
+
+    private static boolean isVertexFilter(final String mapClass, final MapWritable step) {
+        final String classKey;
+        if (mapClass.equals(PropertyFilterMap.Map.class.getName()))
+            classKey = PropertyFilterMap.CLASS;
+        else if (mapClass.equals(IntervalFilterMap.Map.class.getName()))
+            classKey = IntervalFilterMap.CLASS;
+        else
+            return false;
+        final Writable klass = step.get(new Text(classKey));
+        return null != klass && klass.toString().equals(Vertex.class.getName());
+    }
+}
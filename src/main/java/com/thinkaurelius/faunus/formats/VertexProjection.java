@@ -0,0 +1,314 @@
+package com.thinkaurelius.faunus.formats;
+
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.IdentityMap;
+import com.thinkaurelius.faunus.mapreduce.MapSequence;
+import com.thinkaurelius.faunus.mapreduce.filter.BackFilterMapReduce;
+import com.thinkaurelius.faunus.mapreduce.filter.CyclicPathFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.DuplicateFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.IntervalFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.PropertyFilterMap;
+import com.thinkaurelius.faunus.mapreduce.sideeffect.ValueGroupCountMapReduce;
+import com.thinkaurelius.faunus.mapreduce.transform.EdgesVerticesMap;
+import com.thinkaurelius.faunus.mapreduce.transform.OrderMapReduce;
+import com.thinkaurelius.faunus.mapreduce.transform.PathMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PropertyMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PropertyMapMap;
+import com.thinkaurelius.faunus.mapreduce.transform.VertexMap;
+import com.thinkaurelius.faunus.mapreduce.transform.VerticesEdgesMapReduce;
+import com.thinkaurelius.faunus.mapreduce.transform.VerticesMap;
+import com.thinkaurelius.faunus.mapreduce.transform.VerticesVerticesMapReduce;
+import com.thinkaurelius.faunus.mapreduce.util.CountMapReduce;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A VertexProjection is the subset of the vertex properties and edge labels (per direction) that a pipeline reads.
+ * Input formats that can avoid reading (or decoding) the rest of a vertex do so.
+ * An absent (or derived to be unbounded) projection means the whole vertex is read.
+ */
+public class VertexProjection {
+
+    public static final String FAUNUS_GRAPH_INPUT_PROJECTION = "faunus.graph.input.projection";
+    public static final String FAUNUS_GRAPH_INPUT_PROJECTION_PROPERTIES = FAUNUS_GRAPH_INPUT_PROJECTION + ".properties";
+    public static final String FAUNUS_GRAPH_INPUT_PROJECTION_OUT_LABELS = FAUNUS_GRAPH_INPUT_PROJECTION + ".out-labels";
+    public static final String FAUNUS_GRAPH_INPUT_PROJECTION_IN_LABELS = FAUNUS_GRAPH_INPUT_PROJECTION + ".in-labels";
+
+    private static final String PROPERTIES = ".properties";
+    private static final String OUT_LABELS = ".out-labels";
+    private static final String IN_LABELS = ".in-labels";
+    private static final String COMMA = ",";
+
+    // these steps read neither properties nor edges beyond those that earlier steps read
+    private static final List<String> NO_PROJECTION_MAPS = Arrays.asList(
+            IdentityMap.Map.class.getName(), VerticesMap.Map.class.getName(), VertexMap.Map.class.getName(),
+            EdgesVerticesMap.Map.class.getName(), PathMap.Map.class.getName(), CountMapReduce.Map.class.getName(),
+            DuplicateFilterMap.Map.class.getName(), CyclicPathFilterMap.Map.class.getName());
+
+    // null denotes all the properties (labels)
+    private Set<String> properties = new HashSet<String>();
+    private Set<String> outLabels = new HashSet<String>();
+    private Set<String> inLabels = new HashSet<String>();
+
+    /**
+     * @return the projection that contains the whole vertex
+     */
+    public static VertexProjection all() {
+        final VertexProjection projection = new VertexProjection();
+        projection.addAllProperties();
+        projection.addLabels(Direction.BOTH);
+        return projection;
+    }
+
+    /**
+     * @return the projection that contains neither properties nor edges
+     */
+    public static VertexProjection none() {
+        return new VertexProjection();
+    }
+
+    public static VertexProjection create(final Configuration configuration) {
+        return create(configuration, FAUNUS_GRAPH_INPUT_PROJECTION);
+    }
+
+    /**
+     * @param configuration the configuration holding the projection
+     * @param prefix        the prefix of the projection keys
+     */
+    public static VertexProjection create(final Configuration configuration, final String prefix) {
+        final VertexProjection projection = new VertexProjection();
+        projection.properties = getSet(configuration, prefix + PROPERTIES);
+        projection.outLabels = getSet(configuration, prefix + OUT_LABELS);
+        projection.inLabels = getSet(configuration, prefix + IN_LABELS);
+        return projection;
+    }
+
+    public void store(final Configuration configuration) {
+        this.store(configuration, FAUNUS_GRAPH_INPUT_PROJECTION);
+    }
+
+    /**
+     * Store the bounded parts of the projection (the unbounded parts are left as they are in the configuration).
+     */
+    public void store(final Configuration configuration, final String prefix) {
+        setSet(configuration, prefix + PROPERTIES, this.properties);
+        setSet(configuration, prefix + OUT_LABELS, this.outLabels);
+        setSet(configuration, prefix + IN_LABELS, this.inLabels);
+    }
+
+    public boolean isAll() {
+        return null == this.properties && null == this.outLabels && null == this.inLabels;
+    }
+
+    public boolean containsProperty(final String key) {
+        return null == this.properties || this.properties.contains(key);
+    }
+
+    public boolean containsLabel(final Direction direction, final String label) {
+        final Set<String> labels = direction.equals(Direction.OUT) ? this.outLabels : this.inLabels;
+        return null == labels || labels.contains(label);
+    }
+
+    /**
+     * @return whether any edges are in the projection
+     */
+    public boolean containsLabels() {
+        return null == this.outLabels || null == this.inLabels || !this.outLabels.isEmpty() || !this.inLabels.isEmpty();
+    }
+
+    /**
+     * Remove the properties and edges of the vertex that are not in the projection.
+     */
+    public void apply(final FaunusVertex vertex) {
+        if (null != this.properties) {
+            for (final String key : new ArrayList<String>(vertex.getPropertyKeys())) {
+                if (!this.properties.contains(key))
+                    vertex.removeProperty(key);
+            }
+        }
+        apply(vertex, Direction.OUT, this.outLabels);
+        apply(vertex, Direction.IN, this.inLabels);
+    }
+
+    private static void apply(final FaunusVertex vertex, final Direction direction, final Set<String> labels) {
+        if (null == labels)
+            return;
+        final List<String> drop = new ArrayList<String>();
+        for (final String label : vertex.getEdgeLabels(direction)) {
+            if (!labels.contains(label))
+                drop.add(label);
+        }
+        if (!drop.isEmpty())
+            vertex.removeEdges(Tokens.Action.DROP, direction, drop.toArray(new String[drop.size()]));
+    }
+
+    public void addProperty(final String key) {
+        if (null != this.properties)
+            this.properties.add(key);
+    }
+
+    public void addAllProperties() {
+        this.properties = null;
+    }
+
+    /**
+     * @param direction the direction of the edges (BOTH for both)
+     * @param labels    the labels of the edges (none for all labels)
+     */
+    public void addLabels(final Direction direction, final String... labels) {
+        if (!direction.equals(Direction.IN))
+            this.outLabels = addAll(this.outLabels, labels);
+        if (!direction.equals(Direction.OUT))
+            this.inLabels = addAll(this.inLabels, labels);
+    }
+
+    public String toString() {
+        return "projection[properties:" + toString(this.properties) + ",out:" + toString(this.outLabels) + ",in:" + toString(this.inLabels) + "]";
+    }
+
+    /**
+     * Derive the projection of the input graph that is read by the first of the jobs (and by those that follow it).
+     * Steps whose data needs can not be determined (e.g. closures and scripts) require the whole vertex.
+     *
+     * @param jobs the compiled jobs of a pipeline
+     * @return the projection of the input graph that the jobs read
+     */
+    public static VertexProjection derive(final List<Job> jobs) throws IOException {
+        return derive(jobs, 0);
+    }
+
+    /**
+     * Derive the projection that is read by the steps of the jobs, starting at the given step.
+     *
+     * @param jobs  the compiled jobs of a pipeline
+     * @param first the index of the first step (counting the steps of all the jobs)
+     * @return the projection of the input graph that the steps read
+     */
+    public static VertexProjection derive(final List<Job> jobs, final int first) throws IOException {
+        final VertexProjection projection = new VertexProjection();
+        int step = 0;
+        for (final Job job : jobs) {
+            final String[] mapClasses = job.getConfiguration().getStrings(MapSequence.MAP_CLASSES);
+            if (null == mapClasses)
+                return all();
+            final MapWritable[] steps = MapSequence.getStepConfigurations(job.getConfiguration());
+            for (int i = 0; i < mapClasses.length; i++, step++) {
+                if (step >= first && !projection.addStep(mapClasses[i], i < steps.length ? steps[i] : new MapWritable()))
+                    return all();
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * @return whether the data needs of the step are known
+     */
+    private boolean addStep(final String mapClass, final MapWritable step) {
+        if (NO_PROJECTION_MAPS.contains(mapClass)) {
+            return true;
+        } else if (mapClass.equals(VerticesVerticesMapReduce.Map.class.getName())) {
+            final String direction = get(step, VerticesVerticesMapReduce.DIRECTION);
+            if (null == direction)
+                return false;
+            this.addLabels(Direction.valueOf(direction), getLabels(step, VerticesVerticesMapReduce.LABELS));
+            return true;
+        } else if (mapClass.equals(VerticesEdgesMapReduce.Map.class.getName())) {
+            // the traversed edges are the edges of the step's direction and their mirrors at the adjacent vertices
+            this.addLabels(Direction.BOTH, getLabels(step, VerticesEdgesMapReduce.LABELS));
+            return true;
+        } else if (mapClass.equals(PropertyFilterMap.Map.class.getName())) {
+            return this.addVertexProperty(step, PropertyFilterMap.CLASS, PropertyFilterMap.KEY);
+        } else if (mapClass.equals(IntervalFilterMap.Map.class.getName())) {
+            return this.addVertexProperty(step, IntervalFilterMap.CLASS, IntervalFilterMap.KEY);
+        } else if (mapClass.equals(PropertyMap.Map.class.getName())) {
+            return this.addVertexProperty(step, PropertyMap.CLASS, PropertyMap.KEY);
+        } else if (mapClass.equals(ValueGroupCountMapReduce.Map.class.getName())) {
+            return this.addVertexProperty(step, ValueGroupCountMapReduce.CLASS, ValueGroupCountMapReduce.PROPERTY);
+        } else if (mapClass.equals(OrderMapReduce.Map.class.getName())) {
+            return this.addVertexProperty(step, OrderMapReduce.CLASS, OrderMapReduce.KEY) &&
+                    this.addVertexProperty(step, OrderMapReduce.CLASS, OrderMapReduce.ELEMENT_KEY);
+        } else if (mapClass.equals(PropertyMapMap.Map.class.getName())) {
+            if (isVertex(step, PropertyMapMap.CLASS))
+                this.addAllProperties();
+            return true;
+        } else if (mapClass.equals(BackFilterMapReduce.Map.class.getName())) {
+            if (!isVertex(step, BackFilterMapReduce.CLASS))
+                this.addLabels(Direction.BOTH);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean addVertexProperty(final MapWritable step, final String classKey, final String key) {
+        if (isVertex(step, classKey)) {
+            final String property = get(step, key);
+            if (null == property)
+                return false;
+            this.addProperty(property);
+        }
+        return true;
+    }
+
+    private static boolean isVertex(final MapWritable step, final String classKey) {
+        return Vertex.class.getName().equals(get(step, classKey));
+    }
+
+    private static String get(final MapWritable step, final String key) {
+        final Text value = (Text) step.get(new Text(key));
+        return null == value ? null : value.toString();
+    }
+
+    private static String[] getLabels(final MapWritable step, final String key) {
+        final String labels = get(step, key);
+        return null == labels || labels.isEmpty() ? new String[0] : labels.split(COMMA);
+    }
+
+    private static Set<String> addAll(final Set<String> set, final String... values) {
+        if (null == set || values.length == 0)
+            return null;
+        set.addAll(Arrays.asList(values));
+        return set;
+    }
+
+    private static Set<String> getSet(final Configuration configuration, final String key) {
+        final String value = configuration.get(key);
+        if (null == value)
+            return null;
+        final Set<String> set = new HashSet<String>();
+        for (final String item : value.split(COMMA)) {
+            if (!item.trim().isEmpty())
+                set.add(item.trim());
+        }
+        return set;
+    }
+
+    private static void setSet(final Configuration configuration, final String key, final Collection<String> set) {
+        if (null != set) {
+            final StringBuilder builder = new StringBuilder();
+            for (final String item : new TreeSet<String>(set)) {
+                if (builder.length() > 0)
+                    builder.append(COMMA);
+                builder.append(item);
+            }
+            configuration.set(key, builder.toString());
+        }
+    }
+
+    private static String toString(final Set<String> set) {
+        return null == set ? "*" : new TreeSet<String>(set).toString();
+    }
+}
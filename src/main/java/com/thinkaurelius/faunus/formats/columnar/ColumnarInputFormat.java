@@ -0,0 +1,52 @@
+package com.thinkaurelius.faunus.formats.columnar;
+
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
+import com.thinkaurelius.faunus.formats.VertexQueryFilter;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+
+/**
+ * ColumnarInputFormat reads the graph written by ColumnarOutputFormat.
+ * Only the properties and edge labels of the VertexProjection of the job are decoded.
+ * The edges of the vertices that fail the VertexPredicate of the job are skipped (or reduced to its projection).
+ */
+public class ColumnarInputFormat extends FileInputFormat<NullWritable, FaunusVertex> implements Configurable {
+
+    private VertexQueryFilter vertexQuery;
+    private VertexProjection projection;
+    private VertexPredicate predicate;
+    private Configuration config;
+
+    @Override
+    public RecordReader<NullWritable, FaunusVertex> createRecordReader(final InputSplit split, final TaskAttemptContext context) {
+        return new ColumnarRecordReader(this.vertexQuery, this.projection, this.predicate);
+    }
+
+    @Override
+    protected boolean isSplitable(final JobContext context, final Path file) {
+        // row groups are not aligned with the splits of a file
+        return false;
+    }
+
+    @Override
+    public void setConf(final Configuration config) {
+        this.config = config;
+        this.vertexQuery = VertexQueryFilter.create(config);
+        this.projection = VertexProjection.create(config);
+        this.predicate = VertexPredicate.create(config);
+    }
+
+    @Override
+    public Configuration getConf() {
+        return this.config;
+    }
+}
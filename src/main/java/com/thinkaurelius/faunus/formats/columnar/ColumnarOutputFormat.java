@@ -0,0 +1,35 @@
+package com.thinkaurelius.faunus.formats.columnar;
+
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.FaunusFileOutputFormat;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+
+/**
+ * ColumnarOutputFormat writes the graph as a sequence of row groups.
+ * Each row group holds the vertices in a column of ids, a column per property key and a column per edge label
+ * and direction. A reader only decodes the columns it needs and skips over the others.
+ * Like GraphSON, the format is a snapshot of the graph: paths are not written.
+ */
+public class ColumnarOutputFormat extends FaunusFileOutputFormat {
+
+    public static final String FAUNUS_GRAPH_OUTPUT_COLUMNAR_ROW_GROUP_SIZE = "faunus.graph.output.columnar.row-group-size";
+    public static final int DEFAULT_ROW_GROUP_SIZE = 10000;
+
+    protected static final byte[] MAGIC = new byte[]{'F', 'C', 'G', 1};
+    protected static final int ROW_GROUP = 1;
+    protected static final int END = 0;
+
+    protected static final String ID_COLUMN = "id";
+    protected static final String PROPERTY_COLUMN = "p:";
+    protected static final String OUT_EDGE_COLUMN = "o:";
+    protected static final String IN_EDGE_COLUMN = "i:";
+
+    @Override
+    public RecordWriter<NullWritable, FaunusVertex> getRecordWriter(final TaskAttemptContext job) throws IOException, InterruptedException {
+        return new ColumnarRecordWriter(super.getDataOuputStream(job), job.getConfiguration().getInt(FAUNUS_GRAPH_OUTPUT_COLUMNAR_ROW_GROUP_SIZE, DEFAULT_ROW_GROUP_SIZE));
+    }
+}
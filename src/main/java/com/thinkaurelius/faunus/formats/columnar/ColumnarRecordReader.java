@@ -0,0 +1,234 @@
+package com.thinkaurelius.faunus.formats.columnar;
+
+import com.thinkaurelius.faunus.FaunusEdge;
+import com.thinkaurelius.faunus.FaunusElement;
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
+import com.thinkaurelius.faunus.formats.VertexQueryFilter;
+import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.tinkerpop.blueprints.Direction;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * ColumnarRecordReader reads a row group at a time. Only the id column and the columns of the projected
+ * properties and edge labels are decoded, the other columns are skipped. The VertexPredicate is evaluated once the
+ * property columns are read: the rows that fail it are dropped (or reduced to its projection) before any edge is decoded.
+ */
+public class ColumnarRecordReader extends RecordReader<NullWritable, FaunusVertex> {
+
+    private final VertexQueryFilter vertexQuery;
+    private final VertexProjection projection;
+    private final VertexPredicate predicate;
+    private boolean pathEnabled;
+    private FSDataInputStream fileIn;
+    private DataInputStream in;
+    private long length;
+    private final DataInputBuffer buffer = new DataInputBuffer();
+    private FaunusVertex[] vertices = new FaunusVertex[0];
+    private boolean[] reduced = new boolean[0];
+    private int position = 0;
+    private FaunusVertex vertex = null;
+
+    public ColumnarRecordReader(final VertexQueryFilter vertexQuery, final VertexProjection projection) {
+        this(vertexQuery, projection, new VertexPredicate());
+    }
+
+    public ColumnarRecordReader(final VertexQueryFilter vertexQuery, final VertexProjection projection, final VertexPredicate predicate) {
+        this.vertexQuery = vertexQuery;
+        this.projection = projection;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void initialize(final InputSplit genericSplit, final TaskAttemptContext context) throws IOException {
+        final Configuration configuration = context.getConfiguration();
+        this.pathEnabled = configuration.getBoolean(FaunusCompiler.PATH_ENABLED, false);
+        final Path file = ((FileSplit) genericSplit).getPath();
+        final FileSystem fs = file.getFileSystem(configuration);
+        this.length = fs.getFileStatus(file).getLen();
+        this.fileIn = fs.open(file);
+        final CompressionCodec codec = new CompressionCodecFactory(configuration).getCodec(file);
+        this.in = new DataInputStream(null == codec ? this.fileIn : codec.createInputStream(this.fileIn));
+
+        final byte[] magic = new byte[ColumnarOutputFormat.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarOutputFormat.MAGIC))
+            throw new IOException("The file is not a columnar graph: " + file);
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException {
+        do {
+            while (this.position == this.vertices.length) {
+                if (!this.readRowGroup())
+                    return false;
+            }
+            this.vertex = this.vertices[this.position];
+            this.vertices[this.position++] = null;
+        } while (null == this.vertex);
+        this.vertexQuery.defaultFilter(this.vertex);
+        this.vertex.enablePath(this.pathEnabled);
+        return true;
+    }
+
+    private boolean readRowGroup() throws IOException {
+        if (this.in.read() != ColumnarOutputFormat.ROW_GROUP)
+            return false;
+        final int rows = WritableUtils.readVInt(this.in);
+        final int columns = WritableUtils.readVInt(this.in);
+        final String[] names = new String[columns];
+        final int[] lengths = new int[columns];
+        for (int i = 0; i < columns; i++) {
+            names[i] = WritableUtils.readString(this.in);
+            lengths[i] = WritableUtils.readVInt(this.in);
+        }
+
+        this.vertices = new FaunusVertex[rows];
+        this.reduced = new boolean[rows];
+        this.position = 0;
+        boolean evaluated = false;
+        for (int i = 0; i < columns; i++) {
+            if (!evaluated && ColumnarRecordWriter.isEdgeColumn(names[i])) {
+                this.evaluate();
+                evaluated = true;
+            }
+            if (this.isProjected(names[i])) {
+                final byte[] bytes = new byte[lengths[i]];
+                this.in.readFully(bytes);
+                this.buffer.reset(bytes, bytes.length);
+                this.readColumn(names[i], rows);
+            } else {
+                IOUtils.skipFully(this.in, lengths[i]);
+            }
+        }
+        if (!evaluated)
+            this.evaluate();
+        return true;
+    }
+
+    private void evaluate() {
+        if (!this.predicate.doesFilter())
+            return;
+        for (int row = 0; row < this.vertices.length; row++) {
+            if (!this.predicate.isLegal(this.vertices[row])) {
+                if (this.predicate.isDrop())
+                    this.vertices[row] = null;
+                else {
+                    this.predicate.getProjection().apply(this.vertices[row]);
+                    this.reduced[row] = true;
+                }
+            }
+        }
+    }
+
+    private boolean isProjected(final String column) {
+        if (column.equals(ColumnarOutputFormat.ID_COLUMN))
+            return true;
+        else if (column.startsWith(ColumnarOutputFormat.PROPERTY_COLUMN))
+            return this.projection.containsProperty(column.substring(ColumnarOutputFormat.PROPERTY_COLUMN.length()));
+        else if (column.startsWith(ColumnarOutputFormat.OUT_EDGE_COLUMN))
+            return this.projection.containsLabel(Direction.OUT, column.substring(ColumnarOutputFormat.OUT_EDGE_COLUMN.length()));
+        else if (column.startsWith(ColumnarOutputFormat.IN_EDGE_COLUMN))
+            return this.projection.containsLabel(Direction.IN, column.substring(ColumnarOutputFormat.IN_EDGE_COLUMN.length()));
+        else
+            return false;
+    }
+
+    private void readColumn(final String column, final int rows) throws IOException {
+        if (column.equals(ColumnarOutputFormat.ID_COLUMN)) {
+            for (int row = 0; row < rows; row++) {
+                this.vertices[row] = new FaunusVertex(WritableUtils.readVLong(this.buffer));
+            }
+        } else if (column.startsWith(ColumnarOutputFormat.PROPERTY_COLUMN)) {
+            final String key = column.substring(ColumnarOutputFormat.PROPERTY_COLUMN.length());
+            int row = -1;
+            while (this.buffer.getPosition() < this.buffer.getLength()) {
+                row = row + WritableUtils.readVInt(this.buffer);
+                this.vertices[row].setProperty(key, FaunusElement.ElementProperties.readValue(this.buffer));
+            }
+        } else if (column.startsWith(ColumnarOutputFormat.OUT_EDGE_COLUMN)) {
+            this.readEdges(column.substring(ColumnarOutputFormat.OUT_EDGE_COLUMN.length()), Direction.OUT);
+        } else {
+            this.readEdges(column.substring(ColumnarOutputFormat.IN_EDGE_COLUMN.length()), Direction.IN);
+        }
+    }
+
+    private void readEdges(final String label, final Direction direction) throws IOException {
+        int row = -1;
+        while (this.buffer.getPosition() < this.buffer.getLength()) {
+            row = row + WritableUtils.readVInt(this.buffer);
+            final FaunusVertex vertex = this.vertices[row];
+            final int size = WritableUtils.readVInt(this.buffer);
+            if (null == vertex || (this.reduced[row] && !this.predicate.getProjection().containsLabel(direction, label))) {
+                this.skipEdges(size);
+                continue;
+            }
+            final long id = vertex.getIdAsLong();
+            long vertexId = 0l;
+            for (int i = 0; i < size; i++) {
+                vertexId = vertexId + WritableUtils.readVLong(this.buffer);
+                final long edgeId = WritableUtils.readVLong(this.buffer);
+                final FaunusEdge edge = direction.equals(Direction.OUT) ?
+                        new FaunusEdge(edgeId, id, vertexId, label) :
+                        new FaunusEdge(edgeId, vertexId, id, label);
+                final Map<String, Object> properties = FaunusElement.ElementProperties.readFields(this.buffer);
+                if (null != properties) {
+                    for (final Map.Entry<String, Object> property : properties.entrySet()) {
+                        edge.setProperty(property.getKey(), property.getValue());
+                    }
+                }
+                vertex.addEdge(direction, edge);
+            }
+        }
+    }
+
+    private void skipEdges(final int size) throws IOException {
+        for (int i = 0; i < size; i++) {
+            WritableUtils.readVLong(this.buffer);
+            WritableUtils.readVLong(this.buffer);
+            FaunusElement.ElementProperties.readFields(this.buffer);
+        }
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+        return NullWritable.get();
+    }
+
+    @Override
+    public FaunusVertex getCurrentValue() {
+        return this.vertex;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+        if (this.length == 0)
+            return 1.0f;
+        return Math.min(1.0f, this.fileIn.getPos() / (float) this.length);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (null != this.in)
+            this.in.close();
+    }
+}
@@ -0,0 +1,165 @@
+package com.thinkaurelius.faunus.formats.columnar;
+
+import com.thinkaurelius.faunus.FaunusEdge;
+import com.thinkaurelius.faunus.FaunusElement;
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The columns of a row group are buffered until the row group is full.
+ * The id column holds the id of every row. The property and edge columns only hold the rows that have a value:
+ * each value is preceded by the gap to the previous row of the column. The edges of a label are sorted by
+ * adjacent vertex id and the gaps between the adjacent vertex ids are written.
+ */
+public class ColumnarRecordWriter extends RecordWriter<NullWritable, FaunusVertex> {
+
+    private static final Comparator<FaunusEdge> OUT_COMPARATOR = new AdjacentVertexComparator(Direction.IN);
+    private static final Comparator<FaunusEdge> IN_COMPARATOR = new AdjacentVertexComparator(Direction.OUT);
+
+    private final DataOutputStream out;
+    private final int rowGroupSize;
+    private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+    private final List<FaunusEdge> edges = new ArrayList<FaunusEdge>();
+    private int rows = 0;
+
+    public ColumnarRecordWriter(final DataOutputStream out, final int rowGroupSize) throws IOException {
+        this.out = out;
+        this.rowGroupSize = rowGroupSize;
+        this.out.write(ColumnarOutputFormat.MAGIC);
+    }
+
+    @Override
+    public void write(final NullWritable key, final FaunusVertex vertex) throws IOException {
+        if (null == vertex)
+            return;
+
+        WritableUtils.writeVLong(this.getColumn(ColumnarOutputFormat.ID_COLUMN).buffer, vertex.getIdAsLong());
+        for (final String property : vertex.getPropertyKeys()) {
+            final Column column = this.getColumn(ColumnarOutputFormat.PROPERTY_COLUMN + property);
+            column.startRow(this.rows);
+            FaunusElement.ElementProperties.writeValue(vertex.getProperty(property), column.buffer);
+        }
+        this.writeEdges(vertex, Direction.OUT, ColumnarOutputFormat.OUT_EDGE_COLUMN, OUT_COMPARATOR);
+        this.writeEdges(vertex, Direction.IN, ColumnarOutputFormat.IN_EDGE_COLUMN, IN_COMPARATOR);
+
+        if (++this.rows == this.rowGroupSize)
+            this.writeRowGroup();
+    }
+
+    private void writeEdges(final FaunusVertex vertex, final Direction direction, final String prefix, final Comparator<FaunusEdge> comparator) throws IOException {
+        final Direction adjacent = direction.opposite();
+        for (final String label : vertex.getEdgeLabels(direction)) {
+            this.edges.clear();
+            for (final Edge edge : vertex.getEdges(direction, label)) {
+                this.edges.add((FaunusEdge) edge);
+            }
+            if (this.edges.isEmpty())
+                continue;
+            Collections.sort(this.edges, comparator);
+
+            final Column column = this.getColumn(prefix + label);
+            column.startRow(this.rows);
+            WritableUtils.writeVInt(column.buffer, this.edges.size());
+            long previous = 0l;
+            for (final FaunusEdge edge : this.edges) {
+                final long vertexId = edge.getVertexId(adjacent);
+                WritableUtils.writeVLong(column.buffer, vertexId - previous);
+                WritableUtils.writeVLong(column.buffer, edge.getIdAsLong());
+                FaunusElement.ElementProperties.write(edge.getProperties(), column.buffer);
+                previous = vertexId;
+            }
+        }
+        this.edges.clear();
+    }
+
+    private Column getColumn(final String name) {
+        Column column = this.columns.get(name);
+        if (null == column) {
+            column = new Column();
+            this.columns.put(name, column);
+        }
+        return column;
+    }
+
+    /**
+     * A row group is the number of rows, the name and length of each column and then the columns themselves.
+     * The id and property columns precede the edge columns so a reader can filter the rows before decoding any edge.
+     */
+    private void writeRowGroup() throws IOException {
+        final List<Map.Entry<String, Column>> ordered = new ArrayList<Map.Entry<String, Column>>(this.columns.size());
+        for (final Map.Entry<String, Column> entry : this.columns.entrySet()) {
+            if (!isEdgeColumn(entry.getKey()))
+                ordered.add(entry);
+        }
+        for (final Map.Entry<String, Column> entry : this.columns.entrySet()) {
+            if (isEdgeColumn(entry.getKey()))
+                ordered.add(entry);
+        }
+
+        this.out.writeByte(ColumnarOutputFormat.ROW_GROUP);
+        WritableUtils.writeVInt(this.out, this.rows);
+        WritableUtils.writeVInt(this.out, ordered.size());
+        for (final Map.Entry<String, Column> entry : ordered) {
+            WritableUtils.writeString(this.out, entry.getKey());
+            WritableUtils.writeVInt(this.out, entry.getValue().buffer.getLength());
+        }
+        for (final Map.Entry<String, Column> entry : ordered) {
+            this.out.write(entry.getValue().buffer.getData(), 0, entry.getValue().buffer.getLength());
+        }
+        this.columns.clear();
+        this.rows = 0;
+    }
+
+    protected static boolean isEdgeColumn(final String column) {
+        return column.startsWith(ColumnarOutputFormat.OUT_EDGE_COLUMN) || column.startsWith(ColumnarOutputFormat.IN_EDGE_COLUMN);
+    }
+
+    @Override
+    public synchronized void close(final TaskAttemptContext context) throws IOException {
+        if (this.rows > 0)
+            this.writeRowGroup();
+        this.out.writeByte(ColumnarOutputFormat.END);
+        this.out.close();
+    }
+
+    private static class Column {
+
+        private final DataOutputBuffer buffer = new DataOutputBuffer();
+        private int lastRow = -1;
+
+        public void startRow(final int row) throws IOException {
+            WritableUtils.writeVInt(this.buffer, row - this.lastRow);
+            this.lastRow = row;
+        }
+    }
+
+    private static class AdjacentVertexComparator implements Comparator<FaunusEdge> {
+
+        private final Direction adjacent;
+
+        public AdjacentVertexComparator(final Direction adjacent) {
+            this.adjacent = adjacent;
+        }
+
+        public int compare(final FaunusEdge edge1, final FaunusEdge edge2) {
+            final long id1 = edge1.getVertexId(this.adjacent);
+            final long id2 = edge2.getVertexId(this.adjacent);
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.thinkaurelius.faunus.formats.edgelist;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
@@ -35,7 +36,7 @@ public class EdgeListInputMapReduce {
         return new EmptyConfiguration();
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusElement, LongWritable, FaunusVertex> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusElement, LongWritable, FaunusVertex> {
 
         private final HashMap<Long, FaunusVertex> map = new HashMap<Long, FaunusVertex>();
         private static final int MAX_MAP_SIZE = 5000;
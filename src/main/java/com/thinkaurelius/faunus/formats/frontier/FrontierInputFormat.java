@@ -0,0 +1,155 @@
+package com.thinkaurelius.faunus.formats.frontier;
+
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.hdfs.GraphCache;
+import com.thinkaurelius.faunus.hdfs.NoSideEffectFilter;
+import com.thinkaurelius.faunus.mapreduce.IdentityMap;
+import com.thinkaurelius.faunus.mapreduce.MapSequence;
+import com.thinkaurelius.faunus.mapreduce.filter.BackFilterMapReduce;
+import com.thinkaurelius.faunus.mapreduce.filter.CyclicPathFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.DuplicateFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.IntervalFilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.PropertyFilterMap;
+import com.thinkaurelius.faunus.mapreduce.sideeffect.ValueGroupCountMapReduce;
+import com.thinkaurelius.faunus.mapreduce.transform.EdgesVerticesMap;
+import com.thinkaurelius.faunus.mapreduce.transform.OrderMapReduce;
+import com.thinkaurelius.faunus.mapreduce.transform.PathMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PropertyMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PropertyMapMap;
+import com.thinkaurelius.faunus.mapreduce.transform.VertexMap;
+import com.thinkaurelius.faunus.mapreduce.transform.VerticesEdgesMapReduce;
+import com.thinkaurelius.faunus.mapreduce.transform.VerticesMap;
+import com.thinkaurelius.faunus.mapreduce.transform.VerticesVerticesMapReduce;
+import com.thinkaurelius.faunus.mapreduce.util.CountMapReduce;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * FrontierInputFormat reads the cached graph (see GraphCache) joined with the frontier of the previous job.
+ * The frontier is the vertices that the previous job emitted with paths (or with edges that have paths), stripped
+ * down to their ids, paths and edges with paths (see FrontierOutputFormat). A split is a partition of the cached graph
+ * and the frontier files of that partition. Both are sorted by vertex id, so they are merge joined: the vertices
+ * that are not on the frontier are skipped without being deserialized and the vertices that are on the frontier
+ * are read with their paths. Without a frontier location, every vertex of the cached graph is read.
+ */
+public class FrontierInputFormat extends InputFormat<NullWritable, FaunusVertex> {
+
+    public static final String FAUNUS_GRAPH_INPUT_FRONTIER_GRAPH = "faunus.graph.input.frontier.graph";
+    public static final String FAUNUS_GRAPH_INPUT_FRONTIER_LOCATION = "faunus.graph.input.frontier.location";
+
+    // these steps neither alter the graph nor read the elements that have no paths
+    private static final List<String> FRONTIER_MAPS = Arrays.asList(
+            IdentityMap.Map.class.getName(), VerticesMap.Map.class.getName(), VertexMap.Map.class.getName(),
+            VerticesVerticesMapReduce.Map.class.getName(), VerticesEdgesMapReduce.Map.class.getName(),
+            EdgesVerticesMap.Map.class.getName(), PropertyFilterMap.Map.class.getName(), IntervalFilterMap.Map.class.getName(),
+            BackFilterMapReduce.Map.class.getName(), DuplicateFilterMap.Map.class.getName(), CyclicPathFilterMap.Map.class.getName(),
+            PropertyMap.Map.class.getName(), PropertyMapMap.Map.class.getName(), PathMap.Map.class.getName(),
+            ValueGroupCountMapReduce.Map.class.getName(), OrderMapReduce.Map.class.getName(), CountMapReduce.Map.class.getName());
+
+    // these steps start paths on vertices that need not be on the frontier
+    private static final List<String> START_MAPS = Arrays.asList(VerticesMap.Map.class.getName(), VertexMap.Map.class.getName());
+
+    @Override
+    public List<InputSplit> getSplits(final JobContext context) throws IOException {
+        final Configuration configuration = context.getConfiguration();
+        final Path graph = new Path(configuration.get(FAUNUS_GRAPH_INPUT_FRONTIER_GRAPH));
+        final FileSystem fs = graph.getFileSystem(configuration);
+        final List<FileStatus> partitions = listFiles(fs, graph);
+
+        final List<List<Path>> frontiers = new ArrayList<List<Path>>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            frontiers.add(new ArrayList<Path>());
+        }
+        final String location = configuration.get(FAUNUS_GRAPH_INPUT_FRONTIER_LOCATION);
+        if (null != location) {
+            // every frontier file holds the vertices of a single partition, so its first vertex locates it
+            final Path frontier = new Path(location);
+            for (final FileStatus status : listFiles(frontier.getFileSystem(configuration), frontier)) {
+                final long id = readFirstId(status.getPath(), configuration);
+                if (id != -1l)
+                    frontiers.get(GraphCache.getPartition(id, partitions.size())).add(status.getPath());
+            }
+        }
+
+        final List<InputSplit> splits = new ArrayList<InputSplit>();
+        for (int i = 0; i < partitions.size(); i++) {
+            final FileStatus partition = partitions.get(i);
+            // a partition without frontier vertices has nothing to read
+            if (null != location && frontiers.get(i).isEmpty())
+                continue;
+            final BlockLocation[] blocks = fs.getFileBlockLocations(partition, 0, partition.getLen());
+            final String[] hosts = null == blocks || blocks.length == 0 ? new String[0] : blocks[0].getHosts();
+            splits.add(new FrontierSplit(partition.getPath(), frontiers.get(i).toArray(new Path[frontiers.get(i).size()]), partition.getLen(), hosts));
+        }
+        return splits;
+    }
+
+    @Override
+    public RecordReader<NullWritable, FaunusVertex> createRecordReader(final InputSplit split, final TaskAttemptContext context) {
+        return new FrontierRecordReader();
+    }
+
+    /**
+     * The frontier of a job can be joined with the cached graph if no step of the jobs alters the graph or reads the
+     * elements without paths, and if only the first step of the jobs starts paths (e.g. V or v(ids)).
+     *
+     * @param jobs the compiled jobs of a pipeline
+     * @return whether each job can read the frontier of the job before it
+     */
+    public static boolean isFrontierPipeline(final List<Job> jobs) {
+        boolean first = true;
+        for (final Job job : jobs) {
+            final String[] classes = job.getConfiguration().getStrings(MapSequence.MAP_CLASSES);
+            if (null == classes)
+                return false;
+            for (final String mapClass : classes) {
+                if (!FRONTIER_MAPS.contains(mapClass) || (!first && START_MAPS.contains(mapClass)))
+                    return false;
+                first = false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The data files of a job output (or of the graph cache) sorted by name.
+     */
+    private static List<FileStatus> listFiles(final FileSystem fs, final Path location) throws IOException {
+        final List<FileStatus> files = new ArrayList<FileStatus>();
+        for (final FileStatus status : fs.listStatus(location, NoSideEffectFilter.instance())) {
+            final String name = status.getPath().getName();
+            if (!status.isDir() && !name.startsWith("_") && !name.startsWith("."))
+                files.add(status);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static long readFirstId(final Path file, final Configuration configuration) throws IOException {
+        final SequenceFile.Reader reader = new SequenceFile.Reader(file.getFileSystem(configuration), file, configuration);
+        try {
+            final FaunusVertex vertex = new FaunusVertex();
+            vertex.setConf(configuration);
+            return reader.next(NullWritable.get(), vertex) ? vertex.getIdAsLong() : -1l;
+        } finally {
+            reader.close();
+        }
+    }
+}
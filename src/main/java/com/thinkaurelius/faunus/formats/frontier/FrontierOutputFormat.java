@@ -0,0 +1,91 @@
+package com.thinkaurelius.faunus.formats.frontier;
+
+import com.thinkaurelius.faunus.FaunusEdge;
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.IOException;
+
+/**
+ * FrontierOutputFormat writes the frontier of a job: the vertices that have paths or edges with paths.
+ * A frontier vertex only holds its id, its paths and its edges with paths (with their ids and paths),
+ * as the rest of the vertex is joined back from the cached graph (see FrontierInputFormat).
+ * The vertices that the job emits without paths are not written at all.
+ */
+public class FrontierOutputFormat extends FileOutputFormat<NullWritable, FaunusVertex> {
+
+    @Override
+    public RecordWriter<NullWritable, FaunusVertex> getRecordWriter(final TaskAttemptContext context) throws IOException {
+        final Configuration configuration = context.getConfiguration();
+        CompressionCodec codec = null;
+        SequenceFile.CompressionType compressionType = SequenceFile.CompressionType.NONE;
+        if (getCompressOutput(context)) {
+            compressionType = SequenceFileOutputFormat.getOutputCompressionType(context);
+            codec = ReflectionUtils.newInstance(getOutputCompressorClass(context, DefaultCodec.class), configuration);
+        }
+        final Path file = this.getDefaultWorkFile(context, "");
+        final SequenceFile.Writer writer = SequenceFile.createWriter(file.getFileSystem(configuration), configuration, file,
+                NullWritable.class, FaunusVertex.class, compressionType, codec, context);
+        return new FrontierRecordWriter(writer, configuration.getBoolean(FaunusCompiler.PATH_ENABLED, false));
+    }
+
+    public static class FrontierRecordWriter extends RecordWriter<NullWritable, FaunusVertex> {
+
+        private final SequenceFile.Writer writer;
+        private final boolean pathEnabled;
+
+        public FrontierRecordWriter(final SequenceFile.Writer writer, final boolean pathEnabled) {
+            this.writer = writer;
+            this.pathEnabled = pathEnabled;
+        }
+
+        @Override
+        public void write(final NullWritable key, final FaunusVertex vertex) throws IOException {
+            final FaunusVertex active = toFrontier(vertex, this.pathEnabled);
+            if (null != active)
+                this.writer.append(NullWritable.get(), active);
+        }
+
+        @Override
+        public void close(final TaskAttemptContext context) throws IOException {
+            this.writer.close();
+        }
+    }
+
+    /**
+     * @return the id, paths and edges with paths of the vertex (or null if neither it nor its edges have paths)
+     */
+    public static FaunusVertex toFrontier(final FaunusVertex vertex, final boolean pathEnabled) {
+        final FaunusVertex active = new FaunusVertex(vertex.getIdAsLong());
+        active.enablePath(pathEnabled);
+        boolean hasPaths = vertex.hasPaths();
+        if (hasPaths)
+            active.getPaths(vertex, false);
+        for (final Direction direction : new Direction[]{Direction.OUT, Direction.IN}) {
+            for (final Edge e : vertex.getEdges(direction)) {
+                final FaunusEdge edge = (FaunusEdge) e;
+                if (edge.hasPaths()) {
+                    final FaunusEdge copy = new FaunusEdge(edge.getIdAsLong(), edge.getVertexId(Direction.OUT), edge.getVertexId(Direction.IN), edge.getLabel());
+                    copy.enablePath(pathEnabled);
+                    copy.getPaths(edge, false);
+                    active.addEdge(direction, copy);
+                    hasPaths = true;
+                }
+            }
+        }
+        return hasPaths ? active : null;
+    }
+}
@@ -0,0 +1,172 @@
+package com.thinkaurelius.faunus.formats.frontier;
+
+import com.thinkaurelius.faunus.FaunusEdge;
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FrontierRecordReader merges the frontier files of a partition (each sorted by vertex id) and then walks the keys of
+ * the cached partition up to each frontier vertex. Only the cached vertices on the frontier are deserialized and they
+ * take the paths of the frontier vertex (and of its edges). A frontier vertex that is not in the cached graph is read as is.
+ */
+public class FrontierRecordReader extends RecordReader<NullWritable, FaunusVertex> {
+
+    private Configuration configuration;
+    private boolean pathEnabled;
+    private SequenceFile.Reader graph;
+    private SequenceFile.Reader[] frontier;
+    private FaunusVertex[] heads;
+    private final LongWritable id = new LongWritable();
+    private boolean hasId = false;
+    private boolean graphDone = false;
+    private long length;
+    private FaunusVertex vertex = null;
+
+    @Override
+    public void initialize(final InputSplit genericSplit, final TaskAttemptContext context) throws IOException {
+        final FrontierSplit split = (FrontierSplit) genericSplit;
+        this.configuration = context.getConfiguration();
+        this.pathEnabled = this.configuration.getBoolean(FaunusCompiler.PATH_ENABLED, false);
+        this.graph = open(split.getGraph(), this.configuration);
+        this.length = split.getLength();
+        this.frontier = new SequenceFile.Reader[split.getFrontier().length];
+        this.heads = new FaunusVertex[this.frontier.length];
+        for (int i = 0; i < this.frontier.length; i++) {
+            this.frontier[i] = open(split.getFrontier()[i], this.configuration);
+            this.heads[i] = this.readFrontier(i);
+        }
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException {
+        if (this.frontier.length == 0) {
+            this.vertex = this.createVertex();
+            if (!this.graph.next(this.id, this.vertex))
+                return false;
+            this.vertex.enablePath(this.pathEnabled);
+            return true;
+        }
+
+        final FaunusVertex active = this.nextFrontier();
+        if (null == active)
+            return false;
+        // skip (the keys of) the cached vertices up to the frontier vertex
+        final long target = active.getIdAsLong();
+        while (!this.graphDone && (!this.hasId || this.id.get() < target)) {
+            this.hasId = this.graph.next(this.id);
+            this.graphDone = !this.hasId;
+        }
+        if (this.hasId && this.id.get() == target) {
+            this.vertex = this.createVertex();
+            this.graph.getCurrentValue(this.vertex);
+            this.hasId = false;
+            this.vertex.enablePath(this.pathEnabled);
+            merge(this.vertex, active);
+        } else {
+            this.vertex = active;
+            this.vertex.enablePath(this.pathEnabled);
+        }
+        return true;
+    }
+
+    /**
+     * The vertex takes the paths of the frontier vertex and its edges take the paths of the frontier edges.
+     */
+    private static void merge(final FaunusVertex vertex, final FaunusVertex active) {
+        vertex.getPaths(active, false);
+        for (final Direction direction : new Direction[]{Direction.OUT, Direction.IN}) {
+            Map<Long, FaunusEdge> edges = null;
+            for (final Edge e : active.getEdges(direction)) {
+                if (null == edges) {
+                    edges = new HashMap<Long, FaunusEdge>();
+                    for (final Edge edge : vertex.getEdges(direction)) {
+                        edges.put(((FaunusEdge) edge).getIdAsLong(), (FaunusEdge) edge);
+                    }
+                }
+                final FaunusEdge edge = edges.get(((FaunusEdge) e).getIdAsLong());
+                if (null != edge)
+                    edge.getPaths((FaunusEdge) e, false);
+            }
+        }
+    }
+
+    /**
+     * @return the frontier vertex with the smallest id (merged with the vertices of the same id in other files)
+     */
+    private FaunusVertex nextFrontier() throws IOException {
+        FaunusVertex active = null;
+        for (final FaunusVertex head : this.heads) {
+            if (null != head && (null == active || head.getIdAsLong() < active.getIdAsLong()))
+                active = head;
+        }
+        if (null == active)
+            return null;
+        final long id = active.getIdAsLong();
+        for (int i = 0; i < this.heads.length; i++) {
+            if (null != this.heads[i] && this.heads[i].getIdAsLong() == id) {
+                if (this.heads[i] != active)
+                    active.addAll(this.heads[i]);
+                this.heads[i] = this.readFrontier(i);
+            }
+        }
+        return active;
+    }
+
+    private FaunusVertex readFrontier(final int file) throws IOException {
+        final FaunusVertex vertex = this.createVertex();
+        return this.frontier[file].next(NullWritable.get(), vertex) ? vertex : null;
+    }
+
+    private FaunusVertex createVertex() {
+        final FaunusVertex vertex = new FaunusVertex();
+        vertex.setConf(this.configuration);
+        return vertex;
+    }
+
+    private static SequenceFile.Reader open(final Path file, final Configuration configuration) throws IOException {
+        return new SequenceFile.Reader(file.getFileSystem(configuration), file, configuration);
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+        return NullWritable.get();
+    }
+
+    @Override
+    public FaunusVertex getCurrentValue() {
+        return this.vertex;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+        if (this.length == 0)
+            return 1.0f;
+        return Math.min(1.0f, this.graph.getPosition() / (float) this.length);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (null != this.graph)
+            this.graph.close();
+        if (null != this.frontier) {
+            for (final SequenceFile.Reader reader : this.frontier) {
+                if (null != reader)
+                    reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.thinkaurelius.faunus.formats.frontier;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A FrontierSplit is a partition of the cached graph and the frontier files of that partition.
+ */
+public class FrontierSplit extends InputSplit implements Writable {
+
+    private Path graph;
+    private Path[] frontier;
+    private long length;
+    private String[] hosts;
+
+    public FrontierSplit() {
+    }
+
+    public FrontierSplit(final Path graph, final Path[] frontier, final long length, final String[] hosts) {
+        this.graph = graph;
+        this.frontier = frontier;
+        this.length = length;
+        this.hosts = hosts;
+    }
+
+    public Path getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * @return the frontier files of the partition (empty if every vertex of the partition is read)
+     */
+    public Path[] getFrontier() {
+        return this.frontier;
+    }
+
+    @Override
+    public long getLength() {
+        return this.length;
+    }
+
+    @Override
+    public String[] getLocations() {
+        return null == this.hosts ? new String[0] : this.hosts;
+    }
+
+    public void write(final DataOutput out) throws IOException {
+        Text.writeString(out, this.graph.toString());
+        WritableUtils.writeVInt(out, this.frontier.length);
+        for (final Path path : this.frontier) {
+            Text.writeString(out, path.toString());
+        }
+        WritableUtils.writeVLong(out, this.length);
+    }
+
+    public void readFields(final DataInput in) throws IOException {
+        this.graph = new Path(Text.readString(in));
+        this.frontier = new Path[WritableUtils.readVInt(in)];
+        for (int i = 0; i < this.frontier.length; i++) {
+            this.frontier[i] = new Path(Text.readString(in));
+        }
+        this.length = WritableUtils.readVLong(in);
+        // the hosts are only used to schedule the split
+        this.hosts = null;
+    }
+
+    public String toString() {
+        return this.graph + "+" + this.frontier.length;
+    }
+}
@@ -2,6 +2,8 @@ package com.thinkaurelius.faunus.formats.graphson;
 
 
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.faunus.formats.VertexQueryFilter;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
 import org.apache.hadoop.io.NullWritable;
@@ -20,6 +22,8 @@ public class GraphSONRecordReader extends RecordReader<NullWritable, FaunusVerte
     private boolean pathEnabled;
     private final LineRecordReader lineRecordReader;
     private final VertexQueryFilter vertexQuery;
+    private VertexProjection projection;
+    private VertexPredicate predicate;
     private FaunusVertex vertex = null;
 
     public GraphSONRecordReader(VertexQueryFilter vertexQuery) {
@@ -31,17 +35,22 @@ public class GraphSONRecordReader extends RecordReader<NullWritable, FaunusVerte
     public void initialize(final InputSplit genericSplit, final TaskAttemptContext context) throws IOException {
         this.lineRecordReader.initialize(genericSplit, context);
         this.pathEnabled = context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false);
+        this.projection = VertexProjection.create(context.getConfiguration());
+        this.predicate = VertexPredicate.create(context.getConfiguration());
     }
 
     @Override
     public boolean nextKeyValue() throws IOException {
-        if (!this.lineRecordReader.nextKeyValue())
-            return false;
-
-        this.vertex = FaunusGraphSONUtility.fromJSON(this.lineRecordReader.getCurrentValue().toString());
-        this.vertexQuery.defaultFilter(this.vertex);
-        this.vertex.enablePath(this.pathEnabled);
-        return true;
+        while (this.lineRecordReader.nextKeyValue()) {
+            this.vertex = FaunusGraphSONUtility.fromJSON(this.lineRecordReader.getCurrentValue().toString());
+            this.projection.apply(this.vertex);
+            if (!this.predicate.filter(this.vertex))
+                continue;
+            this.vertexQuery.defaultFilter(this.vertex);
+            this.vertex.enablePath(this.pathEnabled);
+            return true;
+        }
+        return false;
     }
 
     @Override
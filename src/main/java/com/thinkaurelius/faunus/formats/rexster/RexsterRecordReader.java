@@ -1,6 +1,8 @@
 package com.thinkaurelius.faunus.formats.rexster;
 
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.faunus.formats.VertexQueryFilter;
 import com.thinkaurelius.faunus.formats.rexster.util.HttpHelper;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
@@ -23,6 +25,8 @@ public class RexsterRecordReader extends RecordReader<NullWritable, FaunusVertex
 
     private final RexsterConfiguration rexsterConf;
     private VertexQueryFilter vertexQuery;
+    private VertexProjection projection;
+    private VertexPredicate predicate;
 
     private final NullWritable key = NullWritable.get();
 
@@ -51,6 +55,8 @@ public class RexsterRecordReader extends RecordReader<NullWritable, FaunusVertex
         this.splitEnd = rexsterInputSplit.getEnd();
         this.splitStart = rexsterInputSplit.getStart();
         this.pathEnabled = taskAttemptContext.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false);
+        this.projection = VertexProjection.create(taskAttemptContext.getConfiguration());
+        this.predicate = VertexPredicate.create(taskAttemptContext.getConfiguration());
         this.openRexsterStream();
     }
 
@@ -59,11 +65,14 @@ public class RexsterRecordReader extends RecordReader<NullWritable, FaunusVertex
         boolean isNext;
 
         try {
-            this.vertex.readFields(this.rexsterInputStream);
+            do {
+                this.vertex.readFields(this.rexsterInputStream);
+                itemsIterated++;
+                this.projection.apply(this.vertex);
+            } while (!this.predicate.filter(this.vertex));
             this.vertexQuery.defaultFilter(this.vertex);
             if (this.pathEnabled)
                 this.vertex.enablePath(true);
-            itemsIterated++;
             isNext = true;
         } catch (Exception e) {
             isNext = false;
@@ -21,7 +21,12 @@ public class VertexToFaunusBinary {
 
     private static final ElementIdHandler DEFAULT_ELEMENT_ID_HANDLER = new DefaultElementIdHandler();
     private final ElementIdHandler elementIdHandler;
-    protected static final KryoSerializer serialize = new KryoSerializer();
+    protected static final ThreadLocal<KryoSerializer> serialize = new ThreadLocal<KryoSerializer>() {
+        @Override
+        protected KryoSerializer initialValue() {
+            return new KryoSerializer();
+        }
+    };
 
     public VertexToFaunusBinary() {
         this(DEFAULT_ELEMENT_ID_HANDLER);
@@ -72,7 +77,7 @@ public class VertexToFaunusBinary {
     private static void writeProperties(final Element element, final DataOutput out) throws IOException {
         WritableUtils.writeVInt(out, element.getPropertyKeys().size());
         if (element.getPropertyKeys().size() > 0) {
-            final com.thinkaurelius.titan.graphdb.database.serialize.DataOutput o = serialize.getDataOutput(128, true);
+            final com.thinkaurelius.titan.graphdb.database.serialize.DataOutput o = serialize.get().getDataOutput(128, true);
             for (final String key : element.getPropertyKeys()) {
                 o.writeObject(key, String.class);
                 o.writeClassAndObject(element.getProperty(key));
@@ -1,6 +1,8 @@
 package com.thinkaurelius.faunus.formats.script;
 
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.faunus.formats.VertexQueryFilter;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
 import com.thinkaurelius.faunus.tinkerpop.gremlin.FaunusGremlinScriptEngine;
@@ -27,6 +29,8 @@ public class ScriptRecordReader extends RecordReader<NullWritable, FaunusVertex>
 
     private final ScriptEngine engine = new FaunusGremlinScriptEngine();
     private final VertexQueryFilter vertexQuery;
+    private final VertexProjection projection;
+    private final VertexPredicate predicate;
     private boolean pathEnabled;
     private final LineRecordReader lineRecordReader;
     private FaunusVertex vertex;
@@ -36,6 +40,8 @@ public class ScriptRecordReader extends RecordReader<NullWritable, FaunusVertex>
         this.vertex = new FaunusVertex();
         this.vertexQuery = vertexQuery;
         this.pathEnabled = context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false);
+        this.projection = VertexProjection.create(context.getConfiguration());
+        this.predicate = VertexPredicate.create(context.getConfiguration());
 
         final FileSystem fs = FileSystem.get(context.getConfiguration());
         try {
@@ -58,6 +64,9 @@ public class ScriptRecordReader extends RecordReader<NullWritable, FaunusVertex>
                     this.engine.put(LINE, this.lineRecordReader.getCurrentValue().toString());
                     this.engine.put(VERTEX, this.vertex);
                     if ((Boolean) engine.eval(READ_CALL)) {
+                        this.projection.apply(this.vertex);
+                        if (!this.predicate.filter(this.vertex))
+                            continue;
                         this.vertex.enablePath(this.pathEnabled);
                         this.vertexQuery.defaultFilter(this.vertex);
                         return true;
@@ -1,6 +1,8 @@
 package com.thinkaurelius.faunus.formats.titan;
 
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.Entry;
 import com.thinkaurelius.titan.diskstorage.util.StaticByteBuffer;
 import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
@@ -21,6 +23,8 @@ import java.nio.ByteBuffer;
 public class FaunusTitanGraph extends StandardTitanGraph {
 
     private final StandardTitanTx tx; /* it's only for reading a Titan graph into Hadoop. */
+    private VertexProjection projection = VertexProjection.all();
+    private VertexPredicate predicate = new VertexPredicate();
 
     public FaunusTitanGraph(final Configuration configuration) {
         this(configuration, true);
@@ -34,9 +38,25 @@ public class FaunusTitanGraph extends StandardTitanGraph {
         this.tx = (autoTx) ? newTransaction(new StandardTransactionBuilder(this.getConfiguration(), this)) : null;
     }
 
+    /**
+     * Only load the properties and edges of the projection.
+     */
+    public void setVertexProjection(final VertexProjection projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * Evaluate the predicate once the properties of a vertex are loaded.
+     */
+    public void setVertexPredicate(final VertexPredicate predicate) {
+        this.predicate = predicate;
+    }
+
     protected FaunusVertex readFaunusVertex(final ByteBuffer key, Iterable<Entry> entries) {
-        final FaunusVertexLoader loader = new FaunusVertexLoader(new StaticByteBuffer(key));
+        final FaunusVertexLoader loader = new FaunusVertexLoader(new StaticByteBuffer(key), this.projection, this.predicate);
         for (final Entry data : entries) {
+            if (loader.isDropped())
+                break;
             try {
                 final FaunusVertexLoader.RelationFactory factory = loader.getFactory();
                 super.edgeSerializer.readRelation(factory,data,tx);
@@ -3,6 +3,8 @@ package com.thinkaurelius.faunus.formats.titan;
 import com.google.common.base.Preconditions;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.titan.core.TitanType;
 import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.graphdb.database.idhandling.IDHandler;
@@ -25,20 +27,62 @@ public class FaunusVertexLoader {
 
     // private final boolean filterSystemTypes = true;
     private final FaunusVertex vertex;
+    private VertexProjection projection;
+    private final VertexPredicate predicate;
 
     private boolean isSystemType = false;
+    private boolean isEvaluated = false;
+    private boolean isDropped = false;
 
     public FaunusVertexLoader(final StaticBuffer key) {
         this(IDHandler.getKeyID(key));
     }
 
+    public FaunusVertexLoader(final StaticBuffer key, final VertexProjection projection, final VertexPredicate predicate) {
+        this(IDHandler.getKeyID(key), projection, predicate);
+    }
+
     public FaunusVertexLoader(final long id) {
+        this(id, VertexProjection.all(), new VertexPredicate());
+    }
+
+    /**
+     * @param id         the id of the vertex
+     * @param projection the properties and edges that are loaded (the others are dropped as they are read)
+     * @param predicate  the predicate that is evaluated once the properties are loaded (before any edge is)
+     */
+    public FaunusVertexLoader(final long id, final VertexProjection projection, final VertexPredicate predicate) {
         Preconditions.checkArgument(id > 0);
         this.vertex = new FaunusVertex(id);
+        this.projection = projection;
+        this.predicate = predicate;
     }
 
     public FaunusVertex getVertex() {
-        return this.isSystemType ? null : this.vertex;
+        this.evaluate();
+        return this.isSystemType || this.isDropped ? null : this.vertex;
+    }
+
+    /**
+     * @return whether the vertex failed the predicate and the rest of its relations need not be read
+     */
+    public boolean isDropped() {
+        return this.isDropped;
+    }
+
+    // the properties of a vertex are stored before its edges, so the predicate is evaluated when the first edge is read
+    private void evaluate() {
+        if (this.isEvaluated)
+            return;
+        this.isEvaluated = true;
+        if (!this.predicate.isLegal(this.vertex)) {
+            if (this.predicate.isDrop())
+                this.isDropped = true;
+            else {
+                this.projection = this.predicate.getProjection();
+                this.projection.apply(this.vertex);
+            }
+        }
     }
 
     public RelationFactory getFactory() {
@@ -97,9 +141,14 @@ public class FaunusVertexLoader {
 
             if (this.type.isPropertyKey()) {
                 Preconditions.checkNotNull(value);
+                if (!projection.containsProperty(this.type.getName())) return;
                 vertex.setProperty(this.type.getName(), this.value);
             } else {
                 Preconditions.checkArgument(this.type.isEdgeLabel());
+                evaluate();
+                if (isDropped) return;
+                if (!this.direction.equals(Direction.BOTH) && !projection.containsLabel(this.direction, this.type.getName()))
+                    return;
                 FaunusEdge edge = null;
                 if (this.direction.equals(Direction.IN))
                     edge = new FaunusEdge(this.relationID, this.otherVertexID, getVertexID(), this.type.getName());
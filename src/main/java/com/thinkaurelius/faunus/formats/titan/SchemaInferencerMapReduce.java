@@ -2,6 +2,7 @@ package com.thinkaurelius.faunus.formats.titan;
 
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.formats.BlueprintsGraphOutputMapReduce;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.thinkaurelius.titan.core.DefaultTypeMaker;
 import com.thinkaurelius.titan.core.TitanGraph;
@@ -33,7 +34,7 @@ public class SchemaInferencerMapReduce {
         return new EmptyConfiguration();
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, LongWritable, FaunusVertex> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, FaunusVertex> {
 
         private final FaunusVertex funnyVertex = new FaunusVertex(funnyKey.get());
         private final LongWritable longWritable = new LongWritable();
@@ -1,6 +1,7 @@
 package com.thinkaurelius.faunus.formats.titan;
 
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.faunus.formats.VertexQueryFilter;
 import com.thinkaurelius.titan.core.TitanGraph;
 import com.thinkaurelius.titan.diskstorage.StaticBuffer;
@@ -25,7 +26,15 @@ public abstract class TitanInputFormat extends InputFormat<NullWritable, FaunusV
     private static final SliceQuery DEFAULT_SLICE_QUERY = new SliceQuery(DEFAULT_COLUMN, DEFAULT_COLUMN);
 
     public static SliceQuery inputSlice(final VertexQueryFilter inputFilter, final TitanGraph graph) {
-        if (inputFilter.limit == 0) {
+        return inputSlice(inputFilter, VertexProjection.all(), graph);
+    }
+
+    /**
+     * The edges of a vertex are stored after its properties. If neither the filter nor the projection
+     * retain any edges, only the properties of each vertex are read.
+     */
+    public static SliceQuery inputSlice(final VertexQueryFilter inputFilter, final VertexProjection projection, final TitanGraph graph) {
+        if (inputFilter.limit == 0 || !projection.containsLabels()) {
             final StaticBuffer[] endPoints = IDHandler.getBounds(RelationType.PROPERTY);
             return new SliceQuery(endPoints[0], endPoints[1]).setLimit(Integer.MAX_VALUE);
         } else {
@@ -1,6 +1,8 @@
 package com.thinkaurelius.faunus.formats.titan.cassandra;
 
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.faunus.formats.VertexQueryFilter;
 import com.thinkaurelius.faunus.formats.titan.GraphFactory;
 import com.thinkaurelius.faunus.formats.titan.TitanInputFormat;
@@ -34,6 +36,7 @@ public class TitanCassandraInputFormat extends TitanInputFormat {
     private boolean pathEnabled;
     private Configuration config;
     private VertexQueryFilter vertexQuery;
+    private VertexProjection projection;
 
     @Override
     public List<InputSplit> getSplits(final JobContext jobContext) throws IOException, InterruptedException {
@@ -49,6 +52,9 @@ public class TitanCassandraInputFormat extends TitanInputFormat {
     public void setConf(final Configuration config) {
         this.graph = new FaunusTitanCassandraGraph(GraphFactory.generateTitanConfiguration(config, FAUNUS_GRAPH_INPUT_TITAN));
         this.vertexQuery = VertexQueryFilter.create(config);
+        this.projection = VertexProjection.create(config);
+        this.graph.setVertexProjection(this.projection);
+        this.graph.setVertexPredicate(VertexPredicate.create(config));
         this.pathEnabled = config.getBoolean(FaunusCompiler.PATH_ENABLED, false);
 
         config.set("cassandra.input.keyspace", config.get(FAUNUS_GRAPH_INPUT_TITAN_STORAGE_KEYSPACE));
@@ -65,7 +71,7 @@ public class TitanCassandraInputFormat extends TitanInputFormat {
     }
 
     private SliceRange getSliceRange(final VertexQueryFilter inputFilter, final int limit) {
-        final SliceQuery slice = TitanInputFormat.inputSlice(inputFilter, this.graph);
+        final SliceQuery slice = TitanInputFormat.inputSlice(inputFilter, this.projection, this.graph);
         final SliceRange sliceRange = new SliceRange();
         sliceRange.setStart(slice.getSliceStart().asByteBuffer());
         sliceRange.setFinish(slice.getSliceEnd().asByteBuffer());
@@ -1,6 +1,8 @@
 package com.thinkaurelius.faunus.formats.titan.hbase;
 
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.faunus.formats.VertexQueryFilter;
 import com.thinkaurelius.faunus.formats.titan.GraphFactory;
 import com.thinkaurelius.faunus.formats.titan.TitanInputFormat;
@@ -36,6 +38,7 @@ public class TitanHBaseInputFormat extends TitanInputFormat {
     private final TableInputFormat tableInputFormat = new TableInputFormat();
     private FaunusTitanHBaseGraph graph;
     private VertexQueryFilter vertexQuery;
+    private VertexProjection projection;
     private boolean pathEnabled;
 
     @Override
@@ -52,6 +55,9 @@ public class TitanHBaseInputFormat extends TitanInputFormat {
     public void setConf(final Configuration config) {
         this.graph = new FaunusTitanHBaseGraph(GraphFactory.generateTitanConfiguration(config, FAUNUS_GRAPH_INPUT_TITAN));
         this.vertexQuery = VertexQueryFilter.create(config);
+        this.projection = VertexProjection.create(config);
+        this.graph.setVertexProjection(this.projection);
+        this.graph.setVertexPredicate(VertexPredicate.create(config));
         this.pathEnabled = config.getBoolean(FaunusCompiler.PATH_ENABLED, false);
 
         //config.set(TableInputFormat.SCAN_COLUMN_FAMILY, Backend.EDGESTORE_NAME);
@@ -78,7 +84,7 @@ public class TitanHBaseInputFormat extends TitanInputFormat {
     }
 
     private Filter getColumnFilter(VertexQueryFilter inputFilter) {
-        return HBaseKeyColumnValueStore.getFilter(TitanInputFormat.inputSlice(inputFilter, graph));
+        return HBaseKeyColumnValueStore.getFilter(TitanInputFormat.inputSlice(inputFilter, this.projection, graph));
     }
 
     @Override
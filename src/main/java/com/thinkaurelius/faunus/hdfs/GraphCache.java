@@ -0,0 +1,209 @@
+package com.thinkaurelius.faunus.hdfs;
+
+import com.thinkaurelius.faunus.FaunusGraph;
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.TaggedLongWritable;
+import com.thinkaurelius.faunus.Tokens;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * GraphCache materializes the input graph of a FaunusGraph as block-compressed SequenceFiles of vertices keyed by id.
+ * The vertices are hash partitioned by id (as the vertex-keyed jobs partition them) and each partition is sorted by id,
+ * so a partition of the cache can be merge joined with the vertices that a job emits (see FrontierInputFormat).
+ * Once the graph is cached, the first job of a pipeline reads the cached graph instead of the graph input format.
+ * A cache is located at cache-location/input-fingerprint/state-fingerprint, where the input fingerprint is that of
+ * the input configuration of the graph and the state fingerprint is that of the input files (if any).
+ * When the input files change, the graph is cached anew and the stale cache is removed.
+ */
+public class GraphCache {
+
+    public static final Logger logger = Logger.getLogger(GraphCache.class);
+
+    private static final String DEFAULT_CACHE_LOCATION = "faunus-cache";
+    private static final String FAUNUS_GRAPH_INPUT = "faunus.graph.input";
+    private static final String SUCCESS = "_SUCCESS";
+    private static final String MARK_SUCCESSFUL_JOBS = "mapreduce.fileoutputcommitter.marksuccessfuljobs";
+    private static final String EQUALS = "=";
+
+    private final FaunusGraph graph;
+
+    public GraphCache(final FaunusGraph graph) {
+        this.graph = graph;
+    }
+
+    public Path getCacheLocation() {
+        return new Path(this.graph.getConf().get(FaunusGraph.FAUNUS_GRAPH_CACHE_LOCATION, DEFAULT_CACHE_LOCATION));
+    }
+
+    /**
+     * The location of the caches of the input graph (all the states of its input files).
+     */
+    public Path getInputLocation() throws IOException {
+        return new Path(this.getCacheLocation(), this.getInputFingerprint());
+    }
+
+    /**
+     * The location of the cache of the input graph (in the current state of its input files).
+     */
+    public Path getLocation() throws IOException {
+        return new Path(this.getInputLocation(), this.getStateFingerprint());
+    }
+
+    public boolean isCached() throws IOException {
+        final FileSystem fs = this.getCacheLocation().getFileSystem(this.graph.getConf());
+        return fs.exists(new Path(this.getLocation(), SUCCESS));
+    }
+
+    /**
+     * Remove all the caches of the input graph.
+     */
+    public void invalidate() throws IOException {
+        final Path location = this.getInputLocation();
+        final FileSystem fs = location.getFileSystem(this.graph.getConf());
+        if (fs.exists(location)) {
+            fs.delete(location, true);
+            logger.info("Invalidated the graph cache: " + location);
+        }
+    }
+
+    public int getPartitions() {
+        return this.graph.getGraphCachePartitions();
+    }
+
+    /**
+     * The partition of the cache that holds the vertex (see TaggedLongWritable.Partitioner).
+     */
+    public static int getPartition(final long id, final int partitions) {
+        return TaggedLongWritable.Partitioner.getPartition(id, partitions);
+    }
+
+    /**
+     * Create the job that caches the input graph (the shuffle sorts and partitions the vertices by id).
+     * The stale (or incomplete) caches of the input graph are removed.
+     */
+    public Job createCacheJob() throws IOException {
+        final Path location = this.getLocation();
+        final FileSystem fs = location.getFileSystem(this.graph.getConf());
+        final Path inputLocation = this.getInputLocation();
+        if (fs.exists(inputLocation)) {
+            for (final FileStatus status : fs.listStatus(inputLocation)) {
+                fs.delete(status.getPath(), true);
+            }
+        }
+
+        final Configuration configuration = new Configuration(this.graph.getConf());
+        configuration.setBoolean(MARK_SUCCESSFUL_JOBS, true);
+        final Job job = new Job(configuration, GraphCache.class.getSimpleName() + "[" + this.graph.getGraphInputFormat().getSimpleName() + "]");
+        job.setJarByClass(GraphCache.class);
+        job.setMapperClass(Map.class);
+        job.setReducerClass(Reducer.class);
+        job.setNumReduceTasks(this.getPartitions());
+        job.setPartitionerClass(TaggedLongWritable.Partitioner.class);
+        job.setMapOutputKeyClass(LongWritable.class);
+        job.setMapOutputValueClass(FaunusVertex.class);
+        job.setOutputKeyClass(LongWritable.class);
+        job.setOutputValueClass(FaunusVertex.class);
+        job.setInputFormatClass(this.graph.getGraphInputFormat());
+        if (FileInputFormat.class.isAssignableFrom(this.graph.getGraphInputFormat())) {
+            FileInputFormat.setInputPaths(job, this.graph.getInputLocation());
+            FileInputFormat.setInputPathFilter(job, NoSideEffectFilter.class);
+        }
+        job.setOutputFormatClass(SequenceFileOutputFormat.class);
+        SequenceFileOutputFormat.setCompressOutput(job, true);
+        SequenceFileOutputFormat.setOutputCompressorClass(job, DefaultCodec.class);
+        SequenceFileOutputFormat.setOutputCompressionType(job, SequenceFile.CompressionType.BLOCK);
+        FileOutputFormat.setOutputPath(job, location);
+        return job;
+    }
+
+    public static class Map extends Mapper<NullWritable, FaunusVertex, LongWritable, FaunusVertex> {
+
+        private final LongWritable longWritable = new LongWritable();
+
+        @Override
+        public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, LongWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            this.longWritable.set(value.getIdAsLong());
+            context.write(this.longWritable, value);
+        }
+    }
+
+    /**
+     * The fingerprint of the input format, input location, input specific configuration and cache partitioning of the graph.
+     */
+    public String getInputFingerprint() {
+        final SortedMap<String, String> input = new TreeMap<String, String>();
+        for (final java.util.Map.Entry<String, String> entry : this.graph.getConf()) {
+            final String key = entry.getKey();
+            if (key.startsWith(FAUNUS_GRAPH_INPUT) || key.equals(FaunusGraph.FAUNUS_INPUT_LOCATION) || key.equals(Tokens.FAUNUS_GRAPH_DICTIONARY))
+                input.put(key, entry.getValue());
+        }
+        input.put(FaunusGraph.FAUNUS_GRAPH_CACHE_PARTITIONS, String.valueOf(this.getPartitions()));
+        final MessageDigest digest = createDigest();
+        for (final java.util.Map.Entry<String, String> entry : input.entrySet()) {
+            update(digest, entry.getKey() + EQUALS + entry.getValue() + Tokens.NEWLINE);
+        }
+        return toHex(digest);
+    }
+
+    /**
+     * The fingerprint of the size, number of files and modification time of the input files of the graph.
+     */
+    public String getStateFingerprint() throws IOException {
+        final MessageDigest digest = createDigest();
+        final Path inputLocation = this.graph.getInputLocation();
+        if (FileInputFormat.class.isAssignableFrom(this.graph.getGraphInputFormat()) && null != inputLocation) {
+            final FileSystem fs = inputLocation.getFileSystem(this.graph.getConf());
+            final FileStatus[] statuses = fs.globStatus(inputLocation);
+            if (null != statuses) {
+                for (final FileStatus status : statuses) {
+                    final ContentSummary summary = fs.getContentSummary(status.getPath());
+                    update(digest, status.getPath() + Tokens.TAB + summary.getLength() + Tokens.TAB + summary.getFileCount() +
+                            Tokens.TAB + status.getModificationTime() + Tokens.NEWLINE);
+                }
+            }
+        }
+        return toHex(digest);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static void update(final MessageDigest digest, final String string) {
+        try {
+            digest.update(string.getBytes("UTF-8"));
+        } catch (final IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static String toHex(final MessageDigest digest) {
+        return String.format("%032x", new BigInteger(1, digest.digest()));
+    }
+}
@@ -1,17 +1,30 @@
 package com.thinkaurelius.faunus.mapreduce;
 
+import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusGraph;
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.TaggedLongWritable;
 import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.formats.FormatTools;
 import com.thinkaurelius.faunus.formats.JobConfigurationFormat;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
+import com.thinkaurelius.faunus.formats.frontier.FrontierInputFormat;
+import com.thinkaurelius.faunus.formats.frontier.FrontierOutputFormat;
+import com.thinkaurelius.faunus.formats.noop.NoOpOutputFormat;
+import com.thinkaurelius.faunus.hdfs.GraphCache;
 import com.thinkaurelius.faunus.hdfs.NoSideEffectFilter;
+import com.thinkaurelius.faunus.mapreduce.filter.BackFilterMapReduce;
+import com.thinkaurelius.faunus.mapreduce.sideeffect.LinkMapReduce;
+import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.io.compress.CompressionCodec;
@@ -33,6 +46,7 @@ import org.apache.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -45,6 +59,7 @@ public class FaunusCompiler extends Configured implements Tool {
     private static final String MAPRED_MAP_OUTPUT_COMPRESSION_CODEC = "mapred.map.output.compression.codec";
 
     public static final String PATH_ENABLED = Tokens.makeNamespace(FaunusCompiler.class) + ".pathEnabled";
+    public static final String PATH_RETAIN = Tokens.makeNamespace(FaunusCompiler.class) + ".pathRetain";
     public static final String TESTING = Tokens.makeNamespace(FaunusCompiler.class) + ".testing";
     public static final Logger logger = Logger.getLogger(FaunusCompiler.class);
 
@@ -53,6 +68,7 @@ public class FaunusCompiler extends Configured implements Tool {
     protected final List<Job> jobs = new ArrayList<Job>();
 
     private final List<Class<? extends Mapper>> mapSequenceClasses = new ArrayList<Class<? extends Mapper>>();
+    private final List<Configuration> stepConfigurations = new ArrayList<Configuration>();
     private Class<? extends WritableComparable> mapOutputKey = NullWritable.class;
     private Class<? extends WritableComparable> mapOutputValue = NullWritable.class;
     private Class<? extends WritableComparable> outputKey = NullWritable.class;
@@ -66,6 +82,7 @@ public class FaunusCompiler extends Configured implements Tool {
     private static final Class<? extends OutputFormat> INTERMEDIATE_OUTPUT_FORMAT = SequenceFileOutputFormat.class;
 
     private boolean pathEnabled = false;
+    private Job cacheJob = null;
 
     public FaunusCompiler(final FaunusGraph graph) {
         this.graph = graph;
@@ -96,11 +113,22 @@ public class FaunusCompiler extends Configured implements Tool {
         for (final Map.Entry<String, String> entry : configuration) {
             if (entry.getKey().equals(PATH_ENABLED) & Boolean.valueOf(entry.getValue()))
                 this.pathEnabled = true;
-            this.getConf().set(entry.getKey() + "-" + this.mapSequenceClasses.size(), entry.getValue());
             this.getConf().set(entry.getKey(), entry.getValue());
         }
     }
 
+    /**
+     * The configuration of a step is set on the job and kept (on its own) as the configuration of the step.
+     */
+    private void addStepConfiguration(final Configuration configuration) {
+        this.addConfiguration(configuration);
+        final Configuration stepConfiguration = new Configuration(false);
+        for (final Map.Entry<String, String> entry : configuration) {
+            stepConfiguration.set(entry.getKey(), entry.getValue());
+        }
+        this.stepConfigurations.add(stepConfiguration);
+    }
+
     public void addMapReduce(final Class<? extends Mapper> mapper,
                              final Class<? extends Reducer> combiner,
                              final Class<? extends Reducer> reducer,
@@ -111,7 +139,7 @@ public class FaunusCompiler extends Configured implements Tool {
                              final Class<? extends WritableComparable> reduceOutputValue,
                              final Configuration configuration) {
 
-        this.addConfiguration(configuration);
+        this.addStepConfiguration(configuration);
         this.mapSequenceClasses.add(mapper);
         this.combinerClass = combiner;
         this.reduceClass = reducer;
@@ -132,7 +160,7 @@ public class FaunusCompiler extends Configured implements Tool {
                              final Class<? extends WritableComparable> reduceOutputValue,
                              final Configuration configuration) {
 
-        this.addConfiguration(configuration);
+        this.addStepConfiguration(configuration);
         this.mapSequenceClasses.add(mapper);
         this.combinerClass = combiner;
         this.reduceClass = reducer;
@@ -148,7 +176,7 @@ public class FaunusCompiler extends Configured implements Tool {
                        final Class<? extends WritableComparable> mapOutputValue,
                        final Configuration configuration) {
 
-        this.addConfiguration(configuration);
+        this.addStepConfiguration(configuration);
         this.mapSequenceClasses.add(mapper);
         this.mapOutputKey = mapOutputKey;
         this.mapOutputValue = mapOutputValue;
@@ -162,6 +190,7 @@ public class FaunusCompiler extends Configured implements Tool {
             this.getConf().setStrings(MapSequence.MAP_CLASSES, toStringMapSequenceClasses());
             final Job job;
             try {
+                MapSequence.setStepConfigurations(this.getConf(), this.stepConfigurations);
                 job = new Job(this.getConf(), this.toStringOfJob(MapSequence.class));
             } catch (IOException e) {
                 throw new RuntimeException(e.getMessage(), e);
@@ -184,6 +213,11 @@ public class FaunusCompiler extends Configured implements Tool {
 
             job.setMapOutputKeyClass(this.mapOutputKey);
             job.setMapOutputValueClass(this.mapOutputValue);
+            // secondary sort: the vertex holder is sorted before the other holders of its id, but they are reduced together
+            if (TaggedLongWritable.class.equals(this.mapOutputKey)) {
+                job.setGroupingComparatorClass(TaggedLongWritable.GroupingComparator.class);
+                job.setPartitionerClass(TaggedLongWritable.Partitioner.class);
+            }
             if (null != this.comparatorClass)
                 job.setSortComparatorClass(this.comparatorClass);
             // else
@@ -197,19 +231,39 @@ public class FaunusCompiler extends Configured implements Tool {
             this.setConf(new Configuration());
             this.addConfiguration(this.graph.getConf());
             this.mapSequenceClasses.clear();
+            this.stepConfigurations.clear();
             this.combinerClass = null;
             this.reduceClass = null;
             this.comparatorClass = null;
         }
     }
 
-    public void composeJobs() throws IOException {
-        if (this.jobs.size() == 0) {
-            return;
+    /**
+     * Fuse the reduce side of each job that emits the graph with the map side of the job that follows it.
+     * A following map-only job is removed from the chain.
+     */
+    protected void fuseJobs() throws IOException {
+        try {
+            for (int i = 0; i < this.jobs.size() - 1; i++) {
+                final Job job = this.jobs.get(i);
+                final Job next = this.jobs.get(i + 1);
+                if (ReduceSequence.isFusible(job, next) && ReduceSequence.fuse(job, next)) {
+                    this.jobs.remove(i + 1);
+                    logger.info("Fused a map-only job into the reducer of job " + (i + 1));
+                }
+            }
+        } catch (final ClassNotFoundException e) {
+            throw new IOException(e.getMessage(), e);
         }
+    }
 
+    /**
+     * Locate the Faunus job jar. The job jar is not needed (and null is returned) when the jobs are executed in-process.
+     */
+    private String getJobJar() {
+        final boolean local = this.graph.getConf().getBoolean(Tokens.FAUNUS_PIPELINE_LOCAL, false);
         String hadoopFileJar = graph.getConf().get("mapred.jar", null);
-        if (null == hadoopFileJar) {
+        if (null == hadoopFileJar && !local) {
             if (new File("target/" + Tokens.FAUNUS_JOB_JAR).exists()) {
                 hadoopFileJar = "target/" + Tokens.FAUNUS_JOB_JAR;
                 logger.warn("Using the developer Faunus job jar: " + hadoopFileJar);
@@ -234,12 +288,36 @@ public class FaunusCompiler extends Configured implements Tool {
         } else {
             logger.info("Using the provided Faunus job jar: " + hadoopFileJar);
         }
-        if (null == hadoopFileJar)
+        if (null == hadoopFileJar && !local)
             throw new IllegalStateException("The Faunus Hadoop job jar could not be found: " + Tokens.FAUNUS_JOB_JAR);
 
+        return hadoopFileJar;
+    }
+
+    public void composeJobs() throws IOException {
+        if (this.jobs.size() == 0) {
+            return;
+        }
+
+        final String hadoopFileJar = this.getJobJar();
+
         if (this.pathEnabled)
             logger.warn("Path calculations are enabled for this Faunus job (space and time expensive)");
 
+        final Configuration pushdown = this.derivePushdown();
+        final long pathRetain = this.derivePathRetain();
+
+        // if the graph is cached (or is to be cached), the first job reads the cached graph
+        final GraphCache cache = this.graph.getGraphCache() ? new GraphCache(this.graph) : null;
+        final boolean frontier = this.isFrontier(cache);
+
+        // a fused job emits the map output of the next job rather than the graph, so it can not write a frontier
+        if (this.graph.getConf().getBoolean(Tokens.FAUNUS_PIPELINE_FUSE_JOBS, false) && !frontier)
+            this.fuseJobs();
+
+        if (null != cache && !cache.isCached())
+            this.cacheJob = this.createCacheJob(cache, hadoopFileJar);
+
         final FileSystem hdfs = FileSystem.get(this.graph.getConf());
         final String outputJobPrefix = this.graph.getOutputLocation().toString() + "/" + Tokens.JOB;
         hdfs.mkdirs(this.graph.getOutputLocation());
@@ -249,22 +327,38 @@ public class FaunusCompiler extends Configured implements Tool {
         for (int i = 0; i < this.jobs.size(); i++) {
             final Job job = this.jobs.get(i);
             job.getConfiguration().setBoolean(PATH_ENABLED, this.pathEnabled);
-            job.getConfiguration().set("mapred.jar", hadoopFileJar);
+            job.getConfiguration().setLong(PATH_RETAIN, pathRetain);
+            job.getConfiguration().setBoolean(Tokens.FAUNUS_PIPELINE_FRONTIER, frontier);
+            if (null != hadoopFileJar)
+                job.getConfiguration().set("mapred.jar", hadoopFileJar);
 
             FileOutputFormat.setOutputPath(job, new Path(outputJobPrefix + "-" + i));
 
             // configure job inputs
-            if (i == 0) {
+            if (i == 0 && null != cache) {
+                job.setInputFormatClass(FrontierInputFormat.class);
+                job.getConfiguration().set(FrontierInputFormat.FAUNUS_GRAPH_INPUT_FRONTIER_GRAPH, cache.getLocation().toString());
+            } else if (i == 0) {
                 job.setInputFormatClass(this.graph.getGraphInputFormat());
+                for (final Map.Entry<String, String> entry : pushdown) {
+                    job.getConfiguration().set(entry.getKey(), entry.getValue());
+                }
                 if (FileInputFormat.class.isAssignableFrom(this.graph.getGraphInputFormat())) {
                     FileInputFormat.setInputPaths(job, this.graph.getInputLocation());
                     FileInputFormat.setInputPathFilter(job, NoSideEffectFilter.class);
                 }
+            } else if (frontier) {
+                job.setInputFormatClass(FrontierInputFormat.class);
+                job.getConfiguration().set(FrontierInputFormat.FAUNUS_GRAPH_INPUT_FRONTIER_GRAPH, cache.getLocation().toString());
+                job.getConfiguration().set(FrontierInputFormat.FAUNUS_GRAPH_INPUT_FRONTIER_LOCATION, outputJobPrefix + "-" + (i - 1));
             } else {
                 job.setInputFormatClass(INTERMEDIATE_INPUT_FORMAT);
                 FileInputFormat.setInputPaths(job, new Path(outputJobPrefix + "-" + (i - 1)));
                 FileInputFormat.setInputPathFilter(job, NoSideEffectFilter.class);
             }
+            // the vertex keyed reducers write the frontier partitioned as the graph cache is
+            if (frontier && TaggedLongWritable.class.equals(job.getMapOutputKeyClass()) && job.getNumReduceTasks() > 0)
+                job.setNumReduceTasks(cache.getPartitions());
 
             // configure job outputs
             if (i == this.jobs.size() - 1) {
@@ -272,11 +366,141 @@ public class FaunusCompiler extends Configured implements Tool {
                 MultipleOutputs.addNamedOutput(job, Tokens.SIDEEFFECT, this.graph.getSideEffectOutputFormat(), job.getOutputKeyClass(), job.getOutputKeyClass());
                 MultipleOutputs.addNamedOutput(job, Tokens.GRAPH, this.graph.getGraphOutputFormat(), NullWritable.class, FaunusVertex.class);
             } else {
-                LazyOutputFormat.setOutputFormatClass(job, INTERMEDIATE_OUTPUT_FORMAT);
+                final Class<? extends OutputFormat> graphOutputFormat = frontier ? FrontierOutputFormat.class : INTERMEDIATE_OUTPUT_FORMAT;
+                LazyOutputFormat.setOutputFormatClass(job, graphOutputFormat);
                 MultipleOutputs.addNamedOutput(job, Tokens.SIDEEFFECT, this.graph.getSideEffectOutputFormat(), job.getOutputKeyClass(), job.getOutputKeyClass());
-                MultipleOutputs.addNamedOutput(job, Tokens.GRAPH, INTERMEDIATE_OUTPUT_FORMAT, NullWritable.class, FaunusVertex.class);
+                MultipleOutputs.addNamedOutput(job, Tokens.GRAPH, graphOutputFormat, NullWritable.class, FaunusVertex.class);
+            }
+        }
+    }
+
+    /**
+     * In frontier mode (faunus.pipeline.frontier), the graph is only read from the graph cache and every job after the
+     * first writes and reads the frontier (the elements with paths) rather than the whole graph (see FrontierInputFormat).
+     * This requires that the graph is not written (NoOpOutputFormat) and that the steps are read-only.
+     * The merge join also requires the jobs to run on Hadoop with single-threaded maps (which keep the vertex order).
+     */
+    private boolean isFrontier(final GraphCache cache) {
+        if (!this.graph.getConf().getBoolean(Tokens.FAUNUS_PIPELINE_FRONTIER, false))
+            return false;
+        if (null == cache || !NoOpOutputFormat.class.equals(this.graph.getGraphOutputFormat()) ||
+                this.graph.getConf().getBoolean(Tokens.FAUNUS_PIPELINE_LOCAL, false) ||
+                this.graph.getConf().getInt(Tokens.FAUNUS_PIPELINE_MAP_THREADS, 1) > 1 ||
+                !FrontierInputFormat.isFrontierPipeline(this.jobs)) {
+            logger.warn("Frontier processing requires the graph cache, NoOpOutputFormat, read-only steps and single-threaded Hadoop maps -- every job reads the whole graph");
+            return false;
+        }
+        logger.info("Every job after the first reads the frontier of the job before it (joined with the graph cache)");
+        return true;
+    }
+
+    /**
+     * The projection and the vertex predicate that the record readers of the first job apply to the input graph.
+     * Only when the graph is not written (NoOpOutputFormat) can parts of the input graph be left unread.
+     * A projection configured by the user is never replaced.
+     */
+    private Configuration derivePushdown() throws IOException {
+        final Configuration pushdown = new EmptyConfiguration();
+        if (!NoOpOutputFormat.class.equals(this.graph.getGraphOutputFormat()))
+            return pushdown;
+        if (VertexProjection.create(this.graph.getConf()).isAll()) {
+            final VertexProjection projection = VertexProjection.derive(this.jobs);
+            if (!projection.isAll()) {
+                projection.store(pushdown);
+                logger.info("Reading the " + projection + " of the input graph");
+            }
+        }
+        if (VertexPredicate.derive(this.jobs, pushdown))
+            logger.info("The leading vertex filters are evaluated as the input graph is read");
+        return pushdown;
+    }
+
+    /**
+     * When paths are only enabled by back() and link steps, which only read the path elements at the positions of their
+     * named steps, the paths only retain the elements at those positions (see FaunusElement.MicroPath).
+     * The paths are kept whole if the graph configuration enables them or if any other step reads them (e.g. path()).
+     *
+     * @return the bit mask of the path positions to retain
+     */
+    private long derivePathRetain() throws IOException {
+        if (!this.pathEnabled || this.graph.getConf().getBoolean(PATH_ENABLED, false))
+            return FaunusElement.MicroPath.RETAIN_ALL;
+        final long retain = derivePathRetain(this.jobs);
+        if (retain != FaunusElement.MicroPath.RETAIN_ALL)
+            logger.info("Paths only retain the elements of the steps " + Long.toBinaryString(retain) + " (as a bit mask)");
+        return retain;
+    }
+
+    /**
+     * @return the bit mask of the path positions that the back() and link steps of the jobs read
+     * (or RETAIN_ALL if another step reads paths)
+     */
+    public static long derivePathRetain(final List<Job> jobs) throws IOException {
+        long retain = 0l;
+        for (final Job job : jobs) {
+            final String[] mapClasses = job.getConfiguration().getStrings(MapSequence.MAP_CLASSES);
+            if (null == mapClasses)
+                return FaunusElement.MicroPath.RETAIN_ALL;
+            final MapWritable[] steps = MapSequence.getStepConfigurations(job.getConfiguration());
+            for (int i = 0; i < mapClasses.length; i++) {
+                final MapWritable step = i < steps.length ? steps[i] : new MapWritable();
+                final Text key;
+                if (mapClasses[i].equals(BackFilterMapReduce.Map.class.getName()))
+                    key = new Text(BackFilterMapReduce.STEP);
+                else if (mapClasses[i].equals(LinkMapReduce.Map.class.getName()))
+                    key = new Text(LinkMapReduce.STEP);
+                else if (step.containsKey(new Text(PATH_ENABLED)))
+                    return FaunusElement.MicroPath.RETAIN_ALL;
+                else
+                    continue;
+                final int position = step.containsKey(key) ? Integer.valueOf(step.get(key).toString()) : -1;
+                if (position < 0 || position >= 64)
+                    return FaunusElement.MicroPath.RETAIN_ALL;
+                retain = retain | (1l << position);
             }
         }
+        return retain;
+    }
+
+    /**
+     * Cache the input graph (if it is not already cached).
+     *
+     * @return whether the input graph is cached
+     */
+    public boolean cacheGraph() throws Exception {
+        final GraphCache cache = new GraphCache(this.graph);
+        if (cache.isCached())
+            return true;
+        this.cacheJob = this.createCacheJob(cache, this.getJobJar());
+        return this.runCacheJob();
+    }
+
+    private Job createCacheJob(final GraphCache cache, final String hadoopFileJar) throws IOException {
+        final Job job = cache.createCacheJob();
+        if (null != hadoopFileJar)
+            job.getConfiguration().set("mapred.jar", hadoopFileJar);
+        return job;
+    }
+
+    private boolean runCacheJob() throws Exception {
+        logger.info("Caching the input graph: " + FileOutputFormat.getOutputPath(this.cacheJob));
+        if (this.graph.getConf().getBoolean(Tokens.FAUNUS_PIPELINE_LOCAL, false)) {
+            try {
+                new LocalRunner(Arrays.asList(this.cacheJob), this.getLocalThreads()).run();
+            } catch (final Exception e) {
+                logger.error("Faunus graph cache error -- remaining jobs have been canceled: " + e.getMessage(), e);
+                return false;
+            }
+        } else if (!this.cacheJob.waitForCompletion(true)) {
+            logger.error("Faunus graph cache error -- remaining MapReduce jobs have been canceled");
+            return false;
+        }
+        this.cacheJob = null;
+        return true;
+    }
+
+    private int getLocalThreads() {
+        return this.graph.getConf().getInt(Tokens.FAUNUS_PIPELINE_LOCAL_THREADS, Runtime.getRuntime().availableProcessors());
     }
 
     public int run(final String[] args) throws Exception {
@@ -314,6 +538,23 @@ public class FaunusCompiler extends Configured implements Tool {
 
         this.composeJobs();
         logger.info("Compiled to " + this.jobs.size() + " MapReduce job(s)");
+        if (null != this.cacheJob && !this.runCacheJob())
+            return -1;
+        if (this.graph.getConf().getBoolean(Tokens.FAUNUS_PIPELINE_LOCAL, false)) {
+            for (final Job job : this.jobs) {
+                try {
+                    ((JobConfigurationFormat) (FormatTools.getBaseOutputFormatClass(job).newInstance())).updateJob(job);
+                } catch (final Exception e) {
+                }
+            }
+            try {
+                new LocalRunner(this.jobs, this.getLocalThreads()).run();
+            } catch (final Exception e) {
+                logger.error("Faunus job error -- remaining jobs have been canceled: " + e.getMessage(), e);
+                return -1;
+            }
+            return 0;
+        }
         final String jobPath = this.graph.getOutputLocation().toString() + "/" + Tokens.JOB;
         for (int i = 0; i < this.jobs.size(); i++) {
             final Job job = this.jobs.get(i);
@@ -0,0 +1,677 @@
+package com.thinkaurelius.faunus.mapreduce;
+
+import com.thinkaurelius.faunus.FaunusVertex;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.Progress;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * LocalRunner executes a compiled chain of Faunus MapReduce jobs within the current JVM (faunus.pipeline.local).
+ * The same mapper, combiner and reducer classes are run, but the map and reduce tasks are scheduled on a work-stealing
+ * fork/join pool, the shuffle is an in-memory sort of serialized records, and the graph is handed from one job to
+ * the next as serialized records in memory. Only the side-effects of every job and the output of the last job are
+ * written to the file system (with the same job-N layout as a Hadoop execution).
+ * This avoids the job startup, sort-spill and HDFS materialization costs for graphs that fit in memory.
+ */
+public class LocalRunner {
+
+    public static final Logger logger = Logger.getLogger(LocalRunner.class);
+
+    private static final String LOCAL = "local";
+    private static final String MAPRED_MAX_SPLIT_SIZE = "mapred.max.split.size";
+    private static final String MAPRED_OUTPUT_KEY_COMPARATOR_CLASS = "mapred.output.key.comparator.class";
+    private static final long MIN_SPLIT_SIZE = 1024l * 1024l;
+
+    public enum LocalCounters {
+        MAP_INPUT_RECORDS,
+        REDUCE_INPUT_GROUPS,
+        REDUCE_INPUT_RECORDS
+    }
+
+    private final List<Job> jobs;
+    private final int threads;
+    private final ForkJoinPool pool;
+
+    public LocalRunner(final List<Job> jobs, final int threads) {
+        this.jobs = jobs;
+        this.threads = Math.max(1, threads);
+        this.pool = new ForkJoinPool(this.threads);
+    }
+
+    /**
+     * Get the in-memory graph buffer that the graph output of the task should be written to.
+     *
+     * @param context the task context (possibly wrapped by other contexts)
+     * @return the graph buffer or null if the graph output is to be written to the file system
+     */
+    public static RecordBuffer getGraphBuffer(final TaskAttemptContext context) {
+        final GraphBuffered graphBuffered = MemoryMapper.unwrapContext(context, GraphBuffered.class);
+        return null == graphBuffered ? null : graphBuffered.getGraphBuffer();
+    }
+
+    public void run() throws Exception {
+        try {
+            List<RecordBuffer> graph = null;
+            for (int i = 0; i < this.jobs.size(); i++) {
+                final Job job = this.jobs.get(i);
+                logger.info("Executing job " + (i + 1) + " out of " + this.jobs.size() + " in-process (" + this.threads + " threads): " + job.getJobName());
+                logger.info("Job data location: " + FileOutputFormat.getOutputPath(job));
+                final long start = System.currentTimeMillis();
+                graph = this.runJob(i, job, graph, i == this.jobs.size() - 1);
+                logger.info("Job " + (i + 1) + " completed in " + (System.currentTimeMillis() - start) + "ms");
+            }
+        } finally {
+            this.pool.shutdown();
+        }
+    }
+
+    private List<RecordBuffer> runJob(final int jobIndex, final Job job, final List<RecordBuffer> input, final boolean last) throws Exception {
+        final Configuration configuration = job.getConfiguration();
+        final boolean hasReducer = job.getNumReduceTasks() > 0 && null != job.getReducerClass();
+        // a job with a custom sort order (e.g. order()) keeps its configured number of reduce tasks
+        final int partitions = !hasReducer ? 0 :
+                (null == configuration.get(MAPRED_OUTPUT_KEY_COMPARATOR_CLASS, null) ? this.threads : job.getNumReduceTasks());
+        final OutputFormat outputFormat = ReflectionUtils.newInstance(job.getOutputFormatClass(), configuration);
+        final OutputCommitter jobCommitter = outputFormat.getOutputCommitter(new TaskAttemptContext(configuration, new TaskAttemptID(LOCAL, jobIndex, true, 0, 0)));
+        jobCommitter.setupJob(job);
+
+        final Counters counters = new Counters();
+        final List<RecordBuffer> output = Collections.synchronizedList(new ArrayList<RecordBuffer>());
+
+        // map phase
+        final List<Callable<RecordBuffer[]>> mapTasks = new ArrayList<Callable<RecordBuffer[]>>();
+        if (null == input) {
+            final InputFormat inputFormat = ReflectionUtils.newInstance(job.getInputFormatClass(), configuration);
+            if (inputFormat instanceof FileInputFormat)
+                this.configureSplitSize(job);
+            final List<InputSplit> splits = inputFormat.getSplits(job);
+            for (int t = 0; t < splits.size(); t++) {
+                final InputSplit split = splits.get(t);
+                final int taskNumber = t;
+                mapTasks.add(new Callable<RecordBuffer[]>() {
+                    public RecordBuffer[] call() throws Exception {
+                        final Configuration conf = new Configuration(configuration);
+                        final TaskAttemptContext readContext = new TaskAttemptContext(conf, new TaskAttemptID(LOCAL, jobIndex, true, taskNumber, 0));
+                        final RecordReader reader = inputFormat.createRecordReader(split, readContext);
+                        reader.initialize(split, readContext);
+                        return runMap(jobIndex, taskNumber, job, conf, reader, split, outputFormat, partitions, last, output, counters);
+                    }
+                });
+            }
+        } else {
+            int taskNumber = 0;
+            for (final RecordBuffer.Slice slice : RecordBuffer.slice(input, 2 * this.threads)) {
+                final int number = taskNumber++;
+                mapTasks.add(new Callable<RecordBuffer[]>() {
+                    public RecordBuffer[] call() throws Exception {
+                        final Configuration conf = new Configuration(configuration);
+                        final RecordReader reader = new BufferReader(slice, conf);
+                        return runMap(jobIndex, number, job, conf, reader, slice, outputFormat, partitions, last, output, counters);
+                    }
+                });
+            }
+        }
+        final List<RecordBuffer[]> mapOutputs = this.invokeAll(mapTasks);
+
+        // shuffle and reduce phase
+        if (hasReducer) {
+            final List<Callable<RecordBuffer[]>> reduceTasks = new ArrayList<Callable<RecordBuffer[]>>();
+            for (int p = 0; p < partitions; p++) {
+                final int partition = p;
+                reduceTasks.add(new Callable<RecordBuffer[]>() {
+                    public RecordBuffer[] call() throws Exception {
+                        final RecordBuffer shuffle = new RecordBuffer();
+                        for (final RecordBuffer[] mapOutput : mapOutputs) {
+                            shuffle.appendAll(mapOutput[partition]);
+                            mapOutput[partition] = null;
+                        }
+                        runReduce(jobIndex, partition, job, new Configuration(configuration), shuffle, outputFormat, last, output, counters);
+                        return null;
+                    }
+                });
+            }
+            this.invokeAll(reduceTasks);
+        }
+
+        jobCommitter.commitJob(job);
+        for (final CounterGroup group : counters) {
+            for (final Counter counter : group) {
+                logger.info("  " + group.getDisplayName() + " - " + counter.getDisplayName() + ": " + counter.getValue());
+            }
+        }
+        return output;
+    }
+
+    private RecordBuffer[] runMap(final int jobIndex, final int taskNumber, final Job job, final Configuration conf,
+                                  final RecordReader reader, final InputSplit split, final OutputFormat outputFormat,
+                                  final int partitions, final boolean last, final List<RecordBuffer> output,
+                                  final Counters counters) throws Exception {
+        final TaskAttemptID taskId = new TaskAttemptID(LOCAL, jobIndex, true, taskNumber, 0);
+        final TaskAttemptContext taskContext = new TaskAttemptContext(conf, taskId);
+        final LocalReporter reporter = new LocalReporter();
+        final OutputCommitter committer = outputFormat.getOutputCommitter(taskContext);
+        committer.setupTask(taskContext);
+
+        final RecordBuffer graphBuffer = last ? null : new RecordBuffer(NullWritable.class, FaunusVertex.class, true);
+        final RecordBuffer outputBuffer = last || partitions > 0 ? null : new RecordBuffer(job.getOutputKeyClass(), job.getOutputValueClass(), false);
+        final RecordBuffer[] partitionBuffers = new RecordBuffer[partitions];
+        final RecordWriter writer;
+        if (partitions > 0) {
+            for (int i = 0; i < partitions; i++) {
+                partitionBuffers[i] = new RecordBuffer();
+            }
+            writer = new PartitionWriter(ReflectionUtils.newInstance(job.getPartitionerClass(), conf), partitionBuffers);
+        } else
+            writer = last ? outputFormat.getRecordWriter(taskContext) : new BufferWriter(outputBuffer);
+
+        final Mapper mapper = ReflectionUtils.newInstance(job.getMapperClass(), conf);
+        mapper.run(new LocalMapContext(mapper, conf, taskId, new CountingReader(reader, reporter), writer, committer, reporter, split, graphBuffer));
+        reader.close();
+        writer.close(taskContext);
+
+        // combine each partition of the map output
+        if (partitions > 0 && null != job.getCombinerClass()) {
+            for (int i = 0; i < partitions; i++) {
+                if (partitionBuffers[i].size() > 0) {
+                    final RecordBuffer combined = new RecordBuffer();
+                    final Reducer combiner = ReflectionUtils.newInstance(job.getCombinerClass(), conf);
+                    final RawComparator comparator = job.getSortComparator();
+                    combiner.run(new LocalReduceContext(combiner, conf, taskId, new BufferIterator(partitionBuffers[i], partitionBuffers[i].sort(comparator)),
+                            reporter, new BufferWriter(combined), committer, comparator, job.getMapOutputKeyClass(), job.getMapOutputValueClass(), null));
+                    partitionBuffers[i] = combined;
+                }
+            }
+        }
+
+        if (committer.needsTaskCommit(taskContext))
+            committer.commitTask(taskContext);
+        addOutput(output, outputBuffer, graphBuffer);
+        reporter.mergeInto(counters);
+        return partitionBuffers;
+    }
+
+    private void runReduce(final int jobIndex, final int partition, final Job job, final Configuration conf,
+                           final RecordBuffer shuffle, final OutputFormat outputFormat, final boolean last,
+                           final List<RecordBuffer> output, final Counters counters) throws Exception {
+        final TaskAttemptID taskId = new TaskAttemptID(LOCAL, jobIndex, false, partition, 0);
+        final TaskAttemptContext taskContext = new TaskAttemptContext(conf, taskId);
+        final LocalReporter reporter = new LocalReporter();
+        final OutputCommitter committer = outputFormat.getOutputCommitter(taskContext);
+        committer.setupTask(taskContext);
+
+        final RecordBuffer graphBuffer = last ? null : new RecordBuffer(NullWritable.class, FaunusVertex.class, true);
+        final RecordBuffer outputBuffer = last ? null : new RecordBuffer(job.getOutputKeyClass(), job.getOutputValueClass(), false);
+        final RecordWriter writer = last ? outputFormat.getRecordWriter(taskContext) : new BufferWriter(outputBuffer);
+        final Reducer reducer = ReflectionUtils.newInstance(job.getReducerClass(), conf);
+        reducer.run(new LocalReduceContext(reducer, conf, taskId, new BufferIterator(shuffle, shuffle.sort(job.getSortComparator())),
+                reporter, writer, committer, job.getGroupingComparator(), job.getMapOutputKeyClass(), job.getMapOutputValueClass(), graphBuffer));
+        writer.close(taskContext);
+
+        if (committer.needsTaskCommit(taskContext))
+            committer.commitTask(taskContext);
+        addOutput(output, outputBuffer, graphBuffer);
+        reporter.mergeInto(counters);
+    }
+
+    private static void addOutput(final List<RecordBuffer> output, final RecordBuffer... buffers) {
+        for (final RecordBuffer buffer : buffers) {
+            if (null != buffer && buffer.size() > 0)
+                output.add(buffer);
+        }
+    }
+
+    /**
+     * Split file based graph inputs so that every thread has work (unless the split size is configured).
+     */
+    private void configureSplitSize(final Job job) throws IOException {
+        final Configuration configuration = job.getConfiguration();
+        if (null != configuration.get(MAPRED_MAX_SPLIT_SIZE, null))
+            return;
+        long size = 0l;
+        for (final Path path : FileInputFormat.getInputPaths(job)) {
+            final FileSystem fs = path.getFileSystem(configuration);
+            if (fs.exists(path))
+                size = size + fs.getContentSummary(path).getLength();
+        }
+        configuration.setLong(MAPRED_MAX_SPLIT_SIZE, Math.max(MIN_SPLIT_SIZE, size / (2 * this.threads)));
+    }
+
+    private <T> List<T> invokeAll(final List<Callable<T>> tasks) throws Exception {
+        final List<T> results = new ArrayList<T>(tasks.size());
+        for (final Future<T> future : this.pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof Exception)
+                    throw (Exception) e.getCause();
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    ////////////////////////////////
+
+    /**
+     * A task context that writes its graph output to an in-memory buffer rather than the file system.
+     */
+    private interface GraphBuffered {
+        public RecordBuffer getGraphBuffer();
+    }
+
+    private static class LocalMapContext extends Mapper.Context implements GraphBuffered {
+
+        private final RecordBuffer graphBuffer;
+
+        public LocalMapContext(final Mapper mapper, final Configuration conf, final TaskAttemptID taskId, final RecordReader reader,
+                               final RecordWriter writer, final OutputCommitter committer, final StatusReporter reporter,
+                               final InputSplit split, final RecordBuffer graphBuffer) throws IOException, InterruptedException {
+            mapper.super(conf, taskId, reader, writer, committer, reporter, split);
+            this.graphBuffer = graphBuffer;
+        }
+
+        public RecordBuffer getGraphBuffer() {
+            return this.graphBuffer;
+        }
+    }
+
+    private static class LocalReduceContext extends Reducer.Context implements GraphBuffered {
+
+        private final RecordBuffer graphBuffer;
+
+        public LocalReduceContext(final Reducer reducer, final Configuration conf, final TaskAttemptID taskId, final RawKeyValueIterator input,
+                                  final LocalReporter reporter, final RecordWriter writer, final OutputCommitter committer,
+                                  final RawComparator comparator, final Class keyClass, final Class valueClass,
+                                  final RecordBuffer graphBuffer) throws IOException, InterruptedException {
+            reducer.super(conf, taskId, input, reporter.getCounter(LocalCounters.REDUCE_INPUT_GROUPS), reporter.getCounter(LocalCounters.REDUCE_INPUT_RECORDS),
+                    writer, committer, reporter, comparator, keyClass, valueClass);
+            this.graphBuffer = graphBuffer;
+        }
+
+        public RecordBuffer getGraphBuffer() {
+            return this.graphBuffer;
+        }
+    }
+
+    /**
+     * Every task has its own counters which are merged into the job counters when the task completes.
+     */
+    private static class LocalReporter extends StatusReporter {
+
+        private final Counters counters = new Counters();
+
+        @Override
+        public Counter getCounter(final Enum<?> name) {
+            return this.counters.findCounter(name);
+        }
+
+        @Override
+        public Counter getCounter(final String group, final String name) {
+            return this.counters.findCounter(group, name);
+        }
+
+        @Override
+        public void progress() {
+        }
+
+        @Override
+        public void setStatus(final String status) {
+        }
+
+        public float getProgress() {
+            return 0.0f;
+        }
+
+        public void mergeInto(final Counters counters) {
+            synchronized (counters) {
+                counters.incrAllCounters(this.counters);
+            }
+        }
+    }
+
+    /**
+     * A RecordBuffer is a sequence of serialized key/value records.
+     * Records are only ever appended by a single task and are read by index (possibly in a sorted order).
+     * The output of a job is a list of buffers that records their key/value classes and whether they hold the
+     * graph named output (as opposed to the main output).
+     */
+    public static class RecordBuffer {
+
+        private final DataOutputBuffer data = new DataOutputBuffer();
+        private final Class keyClass;
+        private final Class valueClass;
+        private final boolean graphOutput;
+        private int[] offsets = new int[128];
+        private int size = 0;
+
+        public RecordBuffer() {
+            this(null, null, false);
+        }
+
+        public RecordBuffer(final Class keyClass, final Class valueClass, final boolean graphOutput) {
+            this.keyClass = keyClass;
+            this.valueClass = valueClass;
+            this.graphOutput = graphOutput;
+        }
+
+        public void append(final Writable key, final Writable value) throws IOException {
+            this.ensureCapacity();
+            this.offsets[2 * this.size] = this.data.getLength();
+            key.write(this.data);
+            this.offsets[2 * this.size + 1] = this.data.getLength();
+            value.write(this.data);
+            this.size++;
+        }
+
+        public void appendAll(final RecordBuffer buffer) throws IOException {
+            for (int i = 0; i < buffer.size; i++) {
+                this.ensureCapacity();
+                final int start = this.data.getLength();
+                this.offsets[2 * this.size] = start;
+                this.offsets[2 * this.size + 1] = start + (buffer.valueStart(i) - buffer.keyStart(i));
+                this.data.write(buffer.data.getData(), buffer.keyStart(i), buffer.end(i) - buffer.keyStart(i));
+                this.size++;
+            }
+        }
+
+        private void ensureCapacity() {
+            if (2 * this.size == this.offsets.length)
+                this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length);
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        private int keyStart(final int index) {
+            return this.offsets[2 * index];
+        }
+
+        private int valueStart(final int index) {
+            return this.offsets[2 * index + 1];
+        }
+
+        private int end(final int index) {
+            return index + 1 == this.size ? this.data.getLength() : this.offsets[2 * (index + 1)];
+        }
+
+        /**
+         * Sort the records by their serialized keys (stable, so records with equal keys keep their emit order).
+         */
+        public Integer[] sort(final RawComparator comparator) {
+            final Integer[] order = new Integer[this.size];
+            for (int i = 0; i < this.size; i++) {
+                order[i] = i;
+            }
+            final byte[] bytes = this.data.getData();
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(final Integer a, final Integer b) {
+                    return comparator.compare(bytes, keyStart(a), valueStart(a) - keyStart(a), bytes, keyStart(b), valueStart(b) - keyStart(b));
+                }
+            });
+            return order;
+        }
+
+        /**
+         * Divide the records of the buffers into about the requested number of equally sized slices.
+         */
+        public static List<Slice> slice(final List<RecordBuffer> buffers, final int slices) {
+            long total = 0l;
+            for (final RecordBuffer buffer : buffers) {
+                total = total + buffer.size;
+            }
+            final int sliceSize = (int) Math.max(1l, (total + slices - 1) / slices);
+            final List<Slice> list = new ArrayList<Slice>();
+            for (final RecordBuffer buffer : buffers) {
+                for (int start = 0; start < buffer.size; start = start + sliceSize) {
+                    list.add(new Slice(buffer, start, Math.min(buffer.size, start + sliceSize)));
+                }
+            }
+            return list;
+        }
+
+        public static class Slice extends InputSplit {
+            private final RecordBuffer buffer;
+            private final int start;
+            private final int end;
+
+            public Slice(final RecordBuffer buffer, final int start, final int end) {
+                this.buffer = buffer;
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override
+            public long getLength() {
+                return this.buffer.end(this.end - 1) - this.buffer.keyStart(this.start);
+            }
+
+            @Override
+            public String[] getLocations() {
+                return new String[0];
+            }
+
+            public boolean isGraphOutput() {
+                return this.buffer.graphOutput;
+            }
+        }
+    }
+
+    private static class BufferWriter extends RecordWriter<Writable, Writable> {
+
+        private final RecordBuffer buffer;
+
+        public BufferWriter(final RecordBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(final Writable key, final Writable value) throws IOException {
+            this.buffer.append(key, value);
+        }
+
+        @Override
+        public void close(final TaskAttemptContext context) {
+        }
+    }
+
+    private static class PartitionWriter extends RecordWriter<Writable, Writable> {
+
+        private final Partitioner<Writable, Writable> partitioner;
+        private final RecordBuffer[] partitions;
+
+        public PartitionWriter(final Partitioner<Writable, Writable> partitioner, final RecordBuffer[] partitions) {
+            this.partitioner = partitioner;
+            this.partitions = partitions;
+        }
+
+        @Override
+        public void write(final Writable key, final Writable value) throws IOException {
+            this.partitions[this.partitioner.getPartition(key, value, this.partitions.length)].append(key, value);
+        }
+
+        @Override
+        public void close(final TaskAttemptContext context) {
+        }
+    }
+
+    /**
+     * Reads a slice of an in-memory graph. As with a SequenceFile, the key and value instances are reused.
+     */
+    private static class BufferReader extends RecordReader<Writable, Writable> {
+
+        private final RecordBuffer buffer;
+        private final int start;
+        private final int end;
+        private final DataInputBuffer input = new DataInputBuffer();
+        private final Writable key;
+        private final Writable value;
+        private int current;
+
+        public BufferReader(final RecordBuffer.Slice slice, final Configuration conf) {
+            this.buffer = slice.buffer;
+            this.start = slice.start;
+            this.end = slice.end;
+            this.current = slice.start - 1;
+            this.key = ReflectionUtils.newInstance(slice.buffer.keyClass, conf);
+            this.value = ReflectionUtils.newInstance(slice.buffer.valueClass, conf);
+        }
+
+        @Override
+        public void initialize(final InputSplit split, final TaskAttemptContext context) {
+        }
+
+        @Override
+        public boolean nextKeyValue() throws IOException {
+            if (++this.current >= this.end)
+                return false;
+            final int keyStart = this.buffer.keyStart(this.current);
+            this.input.reset(this.buffer.data.getData(), keyStart, this.buffer.end(this.current) - keyStart);
+            this.key.readFields(this.input);
+            this.value.readFields(this.input);
+            return true;
+        }
+
+        @Override
+        public Writable getCurrentKey() {
+            return this.key;
+        }
+
+        @Override
+        public Writable getCurrentValue() {
+            return this.value;
+        }
+
+        @Override
+        public float getProgress() {
+            return this.end == this.start ? 1.0f : (float) (this.current - this.start) / (float) (this.end - this.start);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class CountingReader extends RecordReader {
+
+        private final RecordReader reader;
+        private final Counter counter;
+
+        public CountingReader(final RecordReader reader, final LocalReporter reporter) {
+            this.reader = reader;
+            this.counter = reporter.getCounter(LocalCounters.MAP_INPUT_RECORDS);
+        }
+
+        @Override
+        public void initialize(final InputSplit split, final TaskAttemptContext context) {
+        }
+
+        @Override
+        public boolean nextKeyValue() throws IOException, InterruptedException {
+            if (this.reader.nextKeyValue()) {
+                this.counter.increment(1l);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Object getCurrentKey() throws IOException, InterruptedException {
+            return this.reader.getCurrentKey();
+        }
+
+        @Override
+        public Object getCurrentValue() throws IOException, InterruptedException {
+            return this.reader.getCurrentValue();
+        }
+
+        @Override
+        public float getProgress() throws IOException, InterruptedException {
+            return this.reader.getProgress();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.reader.close();
+        }
+    }
+
+    /**
+     * Iterates the records of a buffer in the sorted order for a reducer (or combiner).
+     */
+    private static class BufferIterator implements RawKeyValueIterator {
+
+        private final RecordBuffer buffer;
+        private final Integer[] order;
+        private final DataInputBuffer key = new DataInputBuffer();
+        private final DataInputBuffer value = new DataInputBuffer();
+        private final Progress progress = new Progress();
+        private int current = -1;
+
+        public BufferIterator(final RecordBuffer buffer, final Integer[] order) {
+            this.buffer = buffer;
+            this.order = order;
+        }
+
+        public DataInputBuffer getKey() {
+            final int index = this.order[this.current];
+            this.key.reset(this.buffer.data.getData(), this.buffer.keyStart(index), this.buffer.valueStart(index) - this.buffer.keyStart(index));
+            return this.key;
+        }
+
+        public DataInputBuffer getValue() {
+            final int index = this.order[this.current];
+            this.value.reset(this.buffer.data.getData(), this.buffer.valueStart(index), this.buffer.end(index) - this.buffer.valueStart(index));
+            return this.value;
+        }
+
+        public boolean next() {
+            return ++this.current < this.order.length;
+        }
+
+        public void close() {
+        }
+
+        public Progress getProgress() {
+            return this.progress;
+        }
+    }
+}
@@ -1,12 +1,29 @@
 package com.thinkaurelius.faunus.mapreduce;
 
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.formats.BlueprintsGraphOutputMapReduce;
+import com.thinkaurelius.faunus.mapreduce.filter.FilterMap;
+import com.thinkaurelius.faunus.mapreduce.sideeffect.GroupCountMapReduce;
+import com.thinkaurelius.faunus.mapreduce.sideeffect.SideEffectMap;
+import com.thinkaurelius.faunus.mapreduce.transform.TransformMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.DefaultStringifier;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.util.ReflectionUtils;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -15,32 +32,95 @@ import java.util.List;
 public class MapSequence {
 
     public static final String MAP_CLASSES = Tokens.makeNamespace(MapSequence.class) + ".mapClasses";
+    public static final String STEP_CONFIGURATIONS = Tokens.makeNamespace(MapSequence.class) + ".stepConfigurations";
+
+    // these steps evaluate their closures (or scripts) with a static script engine, whose bindings the closures share
+    private static final List<String> SHARED_ENGINE_MAPS = Arrays.asList(
+            FilterMap.Map.class.getName(), TransformMap.Map.class.getName(), SideEffectMap.Map.class.getName(),
+            GroupCountMapReduce.Map.class.getName(), BlueprintsGraphOutputMapReduce.VertexMap.class.getName(),
+            BlueprintsGraphOutputMapReduce.EdgeMap.class.getName());
+
+    /**
+     * Store the configuration of each step of the sequence (only the keys that are specific to the step) in the
+     * configuration of the job. The step configurations are serialized into a single key.
+     *
+     * @param configuration      the configuration of the job
+     * @param stepConfigurations the configuration of each step, indexed by step
+     */
+    public static void setStepConfigurations(final Configuration configuration, final List<Configuration> stepConfigurations) throws IOException {
+        if (stepConfigurations.isEmpty())
+            return;
+        final MapWritable[] steps = new MapWritable[stepConfigurations.size()];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = new MapWritable();
+            for (final java.util.Map.Entry<String, String> entry : stepConfigurations.get(i)) {
+                steps[i].put(new Text(entry.getKey()), new Text(entry.getValue()));
+            }
+        }
+        DefaultStringifier.storeArray(configuration, steps, STEP_CONFIGURATIONS);
+    }
+
+    /**
+     * Get the configuration of each step of the sequence (only the keys that are specific to the step).
+     *
+     * @param configuration the configuration of the job
+     * @return the configuration of each step, indexed by step
+     */
+    public static MapWritable[] getStepConfigurations(final Configuration configuration) throws IOException {
+        if (null == configuration.get(STEP_CONFIGURATIONS, null))
+            return new MapWritable[0];
+        return DefaultStringifier.loadArray(configuration, STEP_CONFIGURATIONS, MapWritable.class);
+    }
+
+    /**
+     * Get the MultipleOutputs that are shared by the threads of a multi-threaded map task.
+     *
+     * @param context the context handed to a mapper (possibly wrapped by a MemoryMapContext)
+     * @return the shared outputs or null if the map task is not multi-threaded
+     */
+    public static MultipleOutputs getSharedOutputs(final TaskAttemptContext context) {
+        final Map.ThreadedContext threadedContext = MemoryMapper.unwrapContext(context, Map.ThreadedContext.class);
+        return null == threadedContext ? null : threadedContext.getOutputs();
+    }
 
     public static class Map extends MemoryMapper<Writable, Writable, Writable, Writable> {
 
         private List<Mapper<Writable, Writable, Writable, Writable>> mappers = new ArrayList<Mapper<Writable, Writable, Writable, Writable>>();
+        // the steps that are SequenceMappers are called directly, the others (null here) are invoked reflectively
+        private SequenceMapper<Writable, Writable, Writable, Writable>[] sequenceMappers;
         private List<Method> mapMethods = new ArrayList<Method>();
         private List<Method> cleanupMethods = new ArrayList<Method>();
         private int size = 0;
-        private MemoryMapContext memoryContext;
+        // the context of each step (but the last) passes the pairs emitted by that step to the next step
+        private MemoryMapContext[] memoryContexts;
+        private Mapper.Context context;
 
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
             if (this.mappers.size() == 0) {
                 try {
-                    final MemoryMapContext memoryContext = new MemoryMapContext(context);
                     final String[] mapClassNames = context.getConfiguration().getStrings(MAP_CLASSES, new String[0]);
-                    if (mapClassNames.length > 0) {
-                        for (int i = 0; i < mapClassNames.length; i++) {
-                            memoryContext.stageConfiguration(i);
-                            final Class<Mapper<Writable, Writable, Writable, Writable>> mapClass = (Class) Class.forName(mapClassNames[i]);
-                            final Mapper<Writable, Writable, Writable, Writable> mapper = mapClass.getConstructor().newInstance();
+                    this.sequenceMappers = new SequenceMapper[mapClassNames.length];
+                    this.memoryContexts = new MemoryMapper.MemoryMapContext[mapClassNames.length];
+                    final MapWritable[] stepConfigurations = getStepConfigurations(context.getConfiguration());
+                    for (int i = 0; i < mapClassNames.length; i++) {
+                        final MemoryMapContext memoryContext = new MemoryMapContext(context);
+                        memoryContext.stageConfiguration(i, i < stepConfigurations.length ? stepConfigurations[i] : new MapWritable());
+                        this.memoryContexts[i] = memoryContext;
+                        final Class<Mapper<Writable, Writable, Writable, Writable>> mapClass = (Class) Class.forName(mapClassNames[i]);
+                        final Mapper<Writable, Writable, Writable, Writable> mapper = mapClass.getConstructor().newInstance();
+                        this.mappers.add(mapper);
+                        if (mapper instanceof SequenceMapper) {
+                            this.sequenceMappers[i] = (SequenceMapper<Writable, Writable, Writable, Writable>) mapper;
+                            this.sequenceMappers[i].setup(memoryContext);
+                            this.mapMethods.add(null);
+                            this.cleanupMethods.add(null);
+                        } else {
                             try {
                                 mapClass.getMethod(Tokens.SETUP, Mapper.Context.class).invoke(mapper, memoryContext);
                             } catch (final NoSuchMethodException e) {
                                 // there is no setup method and that is okay.
                             }
-                            this.mappers.add(mapper);
                             for (final Method method : mapClass.getMethods()) {
                                 if (method.getName().equals(Tokens.MAP)) {
                                     this.mapMethods.add(method);
@@ -55,7 +135,11 @@ public class MapSequence {
                         }
                     }
                     this.size = this.mappers.size();
-                    this.memoryContext = new MemoryMapContext(context);
+                    this.context = context;
+                } catch (final IOException e) {
+                    throw e;
+                } catch (final InterruptedException e) {
+                    throw e;
                 } catch (final Exception e) {
                     throw new IOException(e);
                 }
@@ -64,38 +148,223 @@ public class MapSequence {
 
         @Override
         public void map(final Writable key, final Writable value, final Mapper<Writable, Writable, Writable, Writable>.Context context) throws IOException, InterruptedException {
-            try {
-                this.memoryContext.setContext(context);
-                this.memoryContext.write(key, value);
+            this.setContext(context);
+            this.mapStep(0, key, value);
+        }
 
-                for (int i = 0; i < this.size - 1; i++) {
-                    this.mapMethods.get(i).invoke(this.mappers.get(i), this.memoryContext.getCurrentKey(), this.memoryContext.getCurrentValue(), this.memoryContext);
-                    if (!this.memoryContext.nextKeyValue()) {
-                        break;
-                    }
+        private void setContext(final Mapper.Context context) {
+            if (this.context != context) {
+                for (final MemoryMapContext memoryContext : this.memoryContexts) {
+                    memoryContext.setContext(context);
                 }
+                this.context = context;
+            }
+        }
 
-                if (this.memoryContext.nextKeyValue()) {
-                    this.mapMethods.get(this.size - 1).invoke(this.mappers.get(this.size - 1), this.memoryContext.getCurrentKey(), this.memoryContext.getCurrentValue(), context);
+        /**
+         * Map the pair by the step and, unless it is the last step, the pairs it emits by the steps that follow it.
+         */
+        private void mapStep(final int step, final Writable key, final Writable value) throws IOException, InterruptedException {
+            final boolean last = step == this.size - 1;
+            final Mapper.Context stepContext = last ? this.context : this.memoryContexts[step];
+            final SequenceMapper<Writable, Writable, Writable, Writable> mapper = this.sequenceMappers[step];
+            if (null != mapper) {
+                mapper.map(key, value, stepContext);
+            } else {
+                try {
+                    this.mapMethods.get(step).invoke(this.mappers.get(step), key, value, stepContext);
+                } catch (final Exception e) {
+                    throw new IOException(e.getMessage(), e);
                 }
+            }
+        }
 
-            } catch (final Exception e) {
-                throw new IOException(e.getMessage(), e);
+        /**
+         * A pair emitted by a step is mapped by the next step right away (the recursion is bounded by the number of steps).
+         */
+        @Override
+        protected void emit(final MemoryMapContext memoryContext, final Writable key, final Writable value) throws IOException, InterruptedException {
+            this.mapStep(memoryContext.getStep() + 1, key, value);
+        }
+
+        /**
+         * If faunus.pipeline.map-threads is greater than 1, the input is mapped by that many threads.
+         * Every thread has its own instance of the map sequence (and thus its own reusable objects).
+         * Reads from and writes to the task context are serialized and the counters are those of the task.
+         * The steps that evaluate closures (or scripts) with a script engine shared by the JVM can not be threaded.
+         */
+        @Override
+        public void run(final Mapper.Context context) throws IOException, InterruptedException {
+            final int threads = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_MAP_THREADS, 1);
+            if (threads <= 1) {
+                super.run(context);
+                return;
+            }
+            for (final String mapClass : context.getConfiguration().getStrings(MAP_CLASSES, new String[0])) {
+                if (SHARED_ENGINE_MAPS.contains(mapClass))
+                    throw new IllegalStateException(mapClass + " shares its script engine with the other map threads -- set " + Tokens.FAUNUS_PIPELINE_MAP_THREADS + " to 1");
+            }
+
+            final MultipleOutputs outputs = new MultipleOutputs(context);
+            final List<MapThread> mapThreads = new ArrayList<MapThread>();
+            // the setup of the mappers evaluates the closures and thus is done one mapper at a time
+            for (int i = 0; i < threads; i++) {
+                final Map map = ReflectionUtils.newInstance(this.getClass(), context.getConfiguration());
+                final ThreadedContext threadedContext = map.new ThreadedContext(context, outputs);
+                map.setup(threadedContext);
+                mapThreads.add(new MapThread(map, threadedContext, context));
+            }
+            for (final MapThread thread : mapThreads) {
+                thread.start();
             }
+            Throwable error = null;
+            for (final MapThread thread : mapThreads) {
+                thread.join();
+                if (null == error)
+                    error = thread.error;
+            }
+            if (null != error)
+                throw new IOException(error.getMessage(), error);
+            outputs.close();
         }
 
+        /**
+         * The steps are cleaned up in order and whatever a step emits on cleanup is mapped by the steps that follow it.
+         */
         @Override
         public void cleanup(final Mapper<Writable, Writable, Writable, Writable>.Context context) throws IOException, InterruptedException {
-            try {
-                for (int i = 0; i < this.mappers.size(); i++) {
+            if (this.size > 0)
+                this.setContext(context);
+            for (int i = 0; i < this.size; i++) {
+                final boolean last = i == this.size - 1;
+                final Mapper.Context stepContext = last ? context : this.memoryContexts[i];
+                if (null != this.sequenceMappers[i]) {
+                    this.sequenceMappers[i].cleanup(stepContext);
+                } else {
                     final Method cleanup = this.cleanupMethods.get(i);
-                    if (null != cleanup)
-                        cleanup.invoke(this.mappers.get(i), context);
+                    if (null != cleanup) {
+                        try {
+                            cleanup.invoke(this.mappers.get(i), stepContext);
+                        } catch (final Exception e) {
+                            throw new IOException(e.getMessage(), e);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * The context of a map thread: reads are done by the MapThread and writes and counters go to the task context.
+         */
+        public class ThreadedContext extends Mapper.Context implements ContextWrapper {
+
+            private final Mapper.Context context;
+            private final MultipleOutputs outputs;
+
+            public ThreadedContext(final Mapper.Context context, final MultipleOutputs outputs) throws IOException, InterruptedException {
+                super(context.getConfiguration(), context.getTaskAttemptID() == null ? new TaskAttemptID() : context.getTaskAttemptID(), null, null, context.getOutputCommitter(), null, context.getInputSplit());
+                this.context = context;
+                this.outputs = outputs;
+            }
+
+            @Override
+            public void write(final Object key, final Object value) throws IOException, InterruptedException {
+                synchronized (this.context) {
+                    this.context.write(key, value);
+                }
+            }
+
+            @Override
+            public Counter getCounter(final String groupName, final String counterName) {
+                synchronized (this.context) {
+                    return this.context.getCounter(groupName, counterName);
+                }
+            }
+
+            @Override
+            public Counter getCounter(final Enum counterName) {
+                synchronized (this.context) {
+                    return this.context.getCounter(counterName);
+                }
+            }
+
+            @Override
+            public Configuration getConfiguration() {
+                return this.context.getConfiguration();
+            }
+
+            @Override
+            public void progress() {
+                this.context.progress();
+            }
+
+            @Override
+            public void setStatus(final String status) {
+                this.context.setStatus(status);
+            }
+
+            public Mapper.Context getContext() {
+                return this.context;
+            }
+
+            public MultipleOutputs getOutputs() {
+                return this.outputs;
+            }
+        }
+    }
+
+    private static class MapThread extends Thread {
+
+        private final Map map;
+        private final Map.ThreadedContext threadedContext;
+        private final Mapper.Context context;
+        private final DataOutputBuffer outputBuffer = new DataOutputBuffer();
+        private final DataInputBuffer inputBuffer = new DataInputBuffer();
+        private Writable key;
+        private Writable value;
+        private Throwable error = null;
+
+        public MapThread(final Map map, final Map.ThreadedContext threadedContext, final Mapper.Context context) {
+            this.map = map;
+            this.threadedContext = threadedContext;
+            this.context = context;
+            this.setDaemon(true);
+        }
+
+        /**
+         * The task's record reader reuses its key and value, so they are copied (serialized) while the reader is locked.
+         */
+        private boolean nextKeyValue() throws IOException, InterruptedException {
+            synchronized (this.context) {
+                if (!this.context.nextKeyValue())
+                    return false;
+                final Writable currentKey = (Writable) this.context.getCurrentKey();
+                final Writable currentValue = (Writable) this.context.getCurrentValue();
+                if (null == this.key) {
+                    final Configuration configuration = this.context.getConfiguration();
+                    this.key = ReflectionUtils.newInstance(currentKey.getClass(), configuration);
+                    this.value = ReflectionUtils.newInstance(currentValue.getClass(), configuration);
                 }
-            } catch (final Exception e) {
-                throw new IOException(e.getMessage(), e);
+                this.outputBuffer.reset();
+                currentKey.write(this.outputBuffer);
+                currentValue.write(this.outputBuffer);
             }
+            this.inputBuffer.reset(this.outputBuffer.getData(), this.outputBuffer.getLength());
+            this.key.readFields(this.inputBuffer);
+            this.value.readFields(this.inputBuffer);
+            return true;
         }
 
+        @Override
+        public void run() {
+            try {
+                while (this.nextKeyValue()) {
+                    this.map.map(this.key, this.value, this.threadedContext);
+                }
+                this.map.cleanup(this.threadedContext);
+            } catch (final Throwable e) {
+                this.error = e;
+            }
+        }
     }
 }
@@ -1,9 +1,11 @@
 package com.thinkaurelius.faunus.mapreduce;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.MapWritable;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 
 import java.io.IOException;
@@ -13,23 +15,46 @@ import java.util.Map;
  * MemoryMapper supports in-memory mapping for a chain of consecutive mappers.
  * This provides significant performance improvements as each map need not write its results to disk.
  * Note that MemoryMapper is not general-purpose and is specific to Faunus' current MapReduce library.
- * In particular, it assumes that the chain of mappers emits 0 or 1 key/value pairs for each input.
+ * A mapper in the chain may emit any number of key/value pairs for each input. Each pair is mapped by the next mapper
+ * of the chain as soon as it is emitted (depth-first), so a mapper may reuse and mutate its output objects between writes.
  *
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
-public class MemoryMapper<A, B, C, D> extends Mapper<A, B, C, D> {
+public abstract class MemoryMapper<A, B, C, D> extends Mapper<A, B, C, D> {
 
-    public class MemoryMapContext extends Mapper.Context {
+    /**
+     * A context that wraps (and delegates to) another context, ultimately that of the task.
+     */
+    public interface ContextWrapper {
+        public TaskAttemptContext getContext();
+    }
+
+    /**
+     * Get the context of the task by unwrapping the provided context until the requested type is reached.
+     *
+     * @param context the context handed to a mapper or reducer
+     * @param type    the type of context to unwrap to
+     * @return the first context of the requested type or null if there is no such context
+     */
+    public static <T> T unwrapContext(TaskAttemptContext context, final Class<T> type) {
+        while (!type.isInstance(context) && context instanceof ContextWrapper) {
+            context = ((ContextWrapper) context).getContext();
+        }
+        return type.isInstance(context) ? type.cast(context) : null;
+    }
+
+    /**
+     * Map a key/value pair emitted into the context by the next mapper of the chain (before the pair is emitted again).
+     */
+    protected abstract void emit(final MemoryMapContext context, final Writable key, final Writable value) throws IOException, InterruptedException;
 
-        private static final String DASH = "-";
-        private static final String EMPTY = "";
+    public class MemoryMapContext extends Mapper.Context implements ContextWrapper {
 
-        private final Configuration currentConfiguration = new Configuration();
+        private Configuration currentConfiguration;
 
         private Writable key = null;
         private Writable value = null;
-        private Writable tempKey = null;
-        private Writable tempValue = null;
+        private int step = 0;
         private Mapper.Context context;
         private Configuration globalConfiguration;
 
@@ -37,31 +62,40 @@ public class MemoryMapper<A, B, C, D> extends Mapper<A, B, C, D> {
             super(context.getConfiguration(), context.getTaskAttemptID() == null ? new TaskAttemptID() : context.getTaskAttemptID(), null, null, context.getOutputCommitter(), null, context.getInputSplit());
             this.context = context;
             this.globalConfiguration = context.getConfiguration();
+            this.currentConfiguration = this.globalConfiguration;
         }
 
         @Override
         public void write(final Object key, final Object value) throws IOException, InterruptedException {
             this.key = (Writable) key;
             this.value = (Writable) value;
+            try {
+                emit(this, this.key, this.value);
+            } finally {
+                this.key = null;
+                this.value = null;
+            }
         }
 
+        /**
+         * @return the key of the pair that is being mapped by the next mapper of the chain
+         */
         @Override
         public Writable getCurrentKey() {
-            this.tempKey = this.key;
-            this.key = null;
-            return this.tempKey;
+            return this.key;
         }
 
         @Override
         public Writable getCurrentValue() {
-            this.tempValue = this.value;
-            this.value = null;
-            return tempValue;
+            return this.value;
         }
 
+        /**
+         * The emitted pairs are not read back from the context, as they are mapped as they are written.
+         */
         @Override
         public boolean nextKeyValue() {
-            return this.key != null && this.value != null;
+            return false;
         }
 
         @Override
@@ -83,19 +117,22 @@ public class MemoryMapper<A, B, C, D> extends Mapper<A, B, C, D> {
             this.context = context;
         }
 
-        public void stageConfiguration(final int step) {
-            this.currentConfiguration.clear();
-            for (final Map.Entry<String, String> entry : this.globalConfiguration) {
-                final String key = entry.getKey();
-                if (!key.matches(".*-[0-9]+")) {
-                    this.currentConfiguration.set(key, entry.getValue());
-                }
-            }
-            for (final Map.Entry<String, String> entry : this.globalConfiguration) {
-                final String key = entry.getKey();
-                if (key.endsWith(DASH + step)) {
-                    this.currentConfiguration.set(key.replace(DASH + step, EMPTY), entry.getValue());
-                }
+        public Mapper.Context getContext() {
+            return this.context;
+        }
+
+        public int getStep() {
+            return this.step;
+        }
+
+        /**
+         * The configuration of the step is the configuration of the job overlaid with the keys specific to the step.
+         */
+        public void stageConfiguration(final int step, final MapWritable stepConfiguration) {
+            this.step = step;
+            this.currentConfiguration = new Configuration(this.globalConfiguration);
+            for (final Map.Entry<Writable, Writable> entry : stepConfiguration.entrySet()) {
+                this.currentConfiguration.set(entry.getKey().toString(), entry.getValue().toString());
             }
         }
     }
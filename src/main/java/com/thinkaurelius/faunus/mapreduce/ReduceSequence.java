@@ -0,0 +1,320 @@
+package com.thinkaurelius.faunus.mapreduce;
+
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.sideeffect.ScriptMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PathMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PropertyMap;
+import com.thinkaurelius.faunus.mapreduce.transform.PropertyMapMap;
+import com.thinkaurelius.faunus.mapreduce.transform.TransformMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.util.Progress;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ReduceSequence fuses the reduce side of a job with the map side of the job that follows it.
+ * The reducer of the job is run and each vertex it emits is handed to the MapSequence of the next job (as it would be
+ * had the vertex been written to and read from HDFS). If the next job is map-only, it is removed from the chain.
+ * If the next job has a reducer, the fused job emits the map output of the next job and the next job maps its input
+ * with ReduceSequence.Map, which passes the already mapped records straight through to the shuffle.
+ * A job can only be fused when its reducer emits the graph (NullWritable, FaunusVertex).
+ */
+public class ReduceSequence {
+
+    public static final String REDUCE_CLASS = Tokens.makeNamespace(ReduceSequence.class) + ".reduceClass";
+    public static final String MAP_CONFIGURATION = Tokens.makeNamespace(ReduceSequence.class) + ".mapConfiguration.";
+
+    // these map-only steps write the graph to the graph named output of the map side and thus around the reducer
+    private static final List<Class<? extends Mapper>> GRAPH_OUTPUT_MAPS = Arrays.<Class<? extends Mapper>>asList(
+            TransformMap.Map.class, PathMap.Map.class, PropertyMap.Map.class, PropertyMapMap.Map.class, ScriptMap.Map.class);
+
+    /**
+     * Determine whether the reduce side of the job can be fused with the map side of the next job.
+     */
+    public static boolean isFusible(final Job job, final Job next) {
+        try {
+            if (job.getNumReduceTasks() == 0 || null == job.getReducerClass() || Reduce.class.equals(job.getReducerClass()))
+                return false;
+            if (!NullWritable.class.equals(job.getOutputKeyClass()) || !FaunusVertex.class.equals(job.getOutputValueClass()))
+                return false;
+            if (next.getNumReduceTasks() == 0) {
+                for (final String mapClass : job.getConfiguration().getStrings(MapSequence.MAP_CLASSES, new String[0])) {
+                    for (final Class<? extends Mapper> graphOutputMap : GRAPH_OUTPUT_MAPS) {
+                        if (graphOutputMap.getName().equals(mapClass))
+                            return false;
+                    }
+                }
+            }
+            return true;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fuse the map side of the next job into the reduce side of the job.
+     *
+     * @param job  the job whose reducer emits the graph
+     * @param next the job that follows it in the chain
+     * @return whether the next job has been made redundant (it was map-only)
+     */
+    public static boolean fuse(final Job job, final Job next) throws ClassNotFoundException, IOException {
+        final Configuration configuration = job.getConfiguration();
+        configuration.setClass(REDUCE_CLASS, job.getReducerClass(), Reducer.class);
+        for (final java.util.Map.Entry<String, String> entry : getStepConfiguration(next.getConfiguration())) {
+            configuration.set(MAP_CONFIGURATION + entry.getKey(), entry.getValue());
+        }
+        job.setReducerClass(Reduce.class);
+        if (next.getNumReduceTasks() == 0) {
+            job.setOutputKeyClass(next.getOutputKeyClass());
+            job.setOutputValueClass(next.getOutputValueClass());
+            job.setJobName(job.getJobName() + "+" + next.getJobName());
+            return true;
+        } else {
+            job.setOutputKeyClass(next.getMapOutputKeyClass());
+            job.setOutputValueClass(next.getMapOutputValueClass());
+            next.setMapperClass(Map.class);
+            return false;
+        }
+    }
+
+    /**
+     * The keys that the steps of a job set: the step classes, the step configurations and the keys of each step
+     * configuration. The other keys of the job are those of the graph, which the job it is fused into shares.
+     */
+    private static Configuration getStepConfiguration(final Configuration configuration) throws IOException {
+        final Configuration stepConfiguration = new Configuration(false);
+        stepConfiguration.set(MapSequence.MAP_CLASSES, configuration.get(MapSequence.MAP_CLASSES, ""));
+        if (null != configuration.get(MapSequence.STEP_CONFIGURATIONS, null))
+            stepConfiguration.set(MapSequence.STEP_CONFIGURATIONS, configuration.get(MapSequence.STEP_CONFIGURATIONS));
+        for (final MapWritable step : MapSequence.getStepConfigurations(configuration)) {
+            for (final java.util.Map.Entry<Writable, Writable> entry : step.entrySet()) {
+                stepConfiguration.set(entry.getKey().toString(), entry.getValue().toString());
+            }
+        }
+        return stepConfiguration;
+    }
+
+    /**
+     * Runs the MapSequence of a job on the records that were already mapped by the reducer of the previous job.
+     * Only the graph written to the graph named output of the previous job still needs to be mapped.
+     */
+    public static class Map extends MapSequence.Map {
+
+        private boolean mapped;
+
+        @Override
+        public void setup(final Mapper.Context context) throws IOException, InterruptedException {
+            super.setup(context);
+            this.mapped = isMapped(context.getInputSplit());
+        }
+
+        @Override
+        public void map(final Writable key, final Writable value, final Mapper<Writable, Writable, Writable, Writable>.Context context) throws IOException, InterruptedException {
+            if (this.mapped)
+                context.write(key, value);
+            else
+                super.map(key, value, context);
+        }
+
+        private static boolean isMapped(final InputSplit split) {
+            if (split instanceof FileSplit)
+                return ((FileSplit) split).getPath().getName().startsWith(Tokens.PART);
+            else if (split instanceof LocalRunner.RecordBuffer.Slice)
+                return !((LocalRunner.RecordBuffer.Slice) split).isGraphOutput();
+            else
+                return false;
+        }
+    }
+
+    public static class Reduce extends Reducer<Writable, Writable, Writable, Writable> {
+
+        @Override
+        public void run(final Reducer.Context context) throws IOException, InterruptedException {
+            final Configuration configuration = context.getConfiguration();
+            final Reducer reducer = ReflectionUtils.newInstance(configuration.getClass(REDUCE_CLASS, Reducer.class, Reducer.class), configuration);
+            final MapSequence.Map map = new MapSequence.Map();
+            final FusedMapContext mapContext = new FusedMapContext(map, context, getMapConfiguration(configuration));
+            map.setup(mapContext);
+            reducer.run(new FusedReduceContext(reducer, context, map, mapContext));
+            map.cleanup(mapContext);
+        }
+
+        /**
+         * The configuration of the next job (its step configurations replace those of this job) and the output
+         * configuration of this job.
+         */
+        private static Configuration getMapConfiguration(final Configuration configuration) {
+            final Configuration mapConfiguration = new Configuration(false);
+            for (final java.util.Map.Entry<String, String> entry : configuration) {
+                if (entry.getKey().startsWith(MAP_CONFIGURATION))
+                    mapConfiguration.set(entry.getKey().substring(MAP_CONFIGURATION.length()), entry.getValue());
+            }
+            for (final java.util.Map.Entry<String, String> entry : configuration) {
+                final String key = entry.getKey();
+                if (!key.startsWith(MAP_CONFIGURATION) && null == mapConfiguration.get(key, null))
+                    mapConfiguration.set(key, entry.getValue());
+            }
+            return mapConfiguration;
+        }
+    }
+
+    /**
+     * The context of the fused mappers: writes and counters go to the context of the reduce task.
+     */
+    private static class FusedMapContext extends Mapper.Context implements MemoryMapper.ContextWrapper {
+
+        private final Reducer.Context context;
+        private final Configuration configuration;
+
+        public FusedMapContext(final Mapper mapper, final Reducer.Context context, final Configuration configuration) throws IOException, InterruptedException {
+            mapper.super(configuration, context.getTaskAttemptID(), null, null, context.getOutputCommitter(), null, null);
+            this.context = context;
+            this.configuration = configuration;
+        }
+
+        @Override
+        public void write(final Object key, final Object value) throws IOException, InterruptedException {
+            this.context.write(key, value);
+        }
+
+        @Override
+        public Counter getCounter(final String groupName, final String counterName) {
+            return this.context.getCounter(groupName, counterName);
+        }
+
+        @Override
+        public Counter getCounter(final Enum counterName) {
+            return this.context.getCounter(counterName);
+        }
+
+        @Override
+        public Configuration getConfiguration() {
+            return this.configuration;
+        }
+
+        @Override
+        public void progress() {
+            this.context.progress();
+        }
+
+        @Override
+        public void setStatus(final String status) {
+            this.context.setStatus(status);
+        }
+
+        public Reducer.Context getContext() {
+            return this.context;
+        }
+    }
+
+    /**
+     * The context of the fused reducer: input and counters come from the context of the reduce task and the
+     * emitted vertices are mapped by the fused mappers.
+     */
+    private static class FusedReduceContext extends Reducer.Context implements MemoryMapper.ContextWrapper {
+
+        private static final RawKeyValueIterator EMPTY = new RawKeyValueIterator() {
+            public DataInputBuffer getKey() {
+                return null;
+            }
+
+            public DataInputBuffer getValue() {
+                return null;
+            }
+
+            public boolean next() {
+                return false;
+            }
+
+            public void close() {
+            }
+
+            public Progress getProgress() {
+                return new Progress();
+            }
+        };
+
+        private final Reducer.Context context;
+        private final MapSequence.Map map;
+        private final FusedMapContext mapContext;
+
+        public FusedReduceContext(final Reducer reducer, final Reducer.Context context, final MapSequence.Map map, final FusedMapContext mapContext) throws IOException, InterruptedException {
+            reducer.super(context.getConfiguration(), context.getTaskAttemptID(), EMPTY, null, null, null, context.getOutputCommitter(), null, null,
+                    context.getMapOutputKeyClass(), context.getMapOutputValueClass());
+            this.context = context;
+            this.map = map;
+            this.mapContext = mapContext;
+        }
+
+        @Override
+        public boolean nextKey() throws IOException, InterruptedException {
+            return this.context.nextKey();
+        }
+
+        @Override
+        public boolean nextKeyValue() throws IOException, InterruptedException {
+            return this.context.nextKeyValue();
+        }
+
+        @Override
+        public Object getCurrentKey() {
+            return this.context.getCurrentKey();
+        }
+
+        @Override
+        public Object getCurrentValue() {
+            return this.context.getCurrentValue();
+        }
+
+        @Override
+        public Iterable getValues() throws IOException, InterruptedException {
+            return this.context.getValues();
+        }
+
+        @Override
+        public void write(final Object key, final Object value) throws IOException, InterruptedException {
+            this.map.map((Writable) key, (Writable) value, this.mapContext);
+        }
+
+        @Override
+        public Counter getCounter(final String groupName, final String counterName) {
+            return this.context.getCounter(groupName, counterName);
+        }
+
+        @Override
+        public Counter getCounter(final Enum counterName) {
+            return this.context.getCounter(counterName);
+        }
+
+        @Override
+        public void progress() {
+            this.context.progress();
+        }
+
+        @Override
+        public void setStatus(final String status) {
+            this.context.setStatus(status);
+        }
+
+        public TaskAttemptContext getContext() {
+            return this.context;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.thinkaurelius.faunus.mapreduce;
+
+import org.apache.hadoop.mapreduce.Mapper;
+
+import java.io.IOException;
+
+/**
+ * A SequenceMapper is a Mapper whose setup, map and cleanup methods are public.
+ * MapSequence calls the steps of a chain that are SequenceMappers directly (rather than via reflection).
+ * All the Faunus mappers are SequenceMappers. Other Mapper classes can still be chained, but are invoked reflectively.
+ */
+public abstract class SequenceMapper<KEYIN, VALUEIN, KEYOUT, VALUEOUT> extends Mapper<KEYIN, VALUEIN, KEYOUT, VALUEOUT> {
+
+    @Override
+    public void setup(final Mapper<KEYIN, VALUEIN, KEYOUT, VALUEOUT>.Context context) throws IOException, InterruptedException {
+    }
+
+    @Override
+    public void map(final KEYIN key, final VALUEIN value, final Mapper<KEYIN, VALUEIN, KEYOUT, VALUEOUT>.Context context) throws IOException, InterruptedException {
+        context.write((KEYOUT) key, (VALUEOUT) value);
+    }
+
+    @Override
+    public void cleanup(final Mapper<KEYIN, VALUEIN, KEYOUT, VALUEOUT>.Context context) throws IOException, InterruptedException {
+    }
+}
@@ -4,8 +4,11 @@ import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.TaggedLongWritable;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.formats.frontier.FrontierOutputFormat;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
@@ -36,34 +39,40 @@ public class BackFilterMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, LongWritable, Holder> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, Holder> {
 
         private int step;
         private boolean isVertex;
+        private boolean pathEnabled;
+        private boolean frontier;
         private FaunusVertex vertex;
         private final Holder<FaunusElement> holder = new Holder<FaunusElement>();
-        private final LongWritable longWritable = new LongWritable();
+        private final TaggedLongWritable longWritable = new TaggedLongWritable();
 
 
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
             this.step = context.getConfiguration().getInt(STEP, -1);
             this.isVertex = context.getConfiguration().getClass(CLASS, Element.class, Element.class).equals(Vertex.class);
-            this.vertex = new FaunusVertex(context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false));
+            this.pathEnabled = context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false);
+            this.frontier = context.getConfiguration().getBoolean(Tokens.FAUNUS_PIPELINE_FRONTIER, false);
+            this.vertex = new FaunusVertex(this.pathEnabled);
         }
 
         @Override
         public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, LongWritable, Holder>.Context context) throws IOException, InterruptedException {
             if (this.isVertex) {
                 if (value.hasPaths()) {
-                    for (final List<FaunusElement.MicroElement> path : value.getPaths()) {
+                    final FaunusElement.MicroPaths paths = value.getPaths();
+                    for (int i = 0; i < paths.size(); i++) {
+                        final List<FaunusElement.MicroElement> path = paths.get(i);
                         if (path.get(this.step) instanceof FaunusEdge.MicroEdge)
                             throw new IOException("Back does not support backing up to previous edges");
 
                         final long backElementId = path.get(this.step).getId();
-                        this.longWritable.set(backElementId);
+                        this.longWritable.set(backElementId, 'p');
                         this.vertex.reuse(backElementId);
-                        this.vertex.addPath(path, false);
+                        this.vertex.addPath(path, paths.getMultiplicity(i), false);
                         context.write(this.longWritable, this.holder.set('p', this.vertex));
                     }
                     value.clearPaths();
@@ -72,14 +81,16 @@ public class BackFilterMapReduce {
                 for (final Edge e : value.getEdges(Direction.OUT)) {
                     final FaunusEdge edge = (FaunusEdge) e;
                     if (edge.hasPaths()) {
-                        for (final List<FaunusElement.MicroElement> path : edge.getPaths()) {
+                        final FaunusElement.MicroPaths paths = edge.getPaths();
+                        for (int i = 0; i < paths.size(); i++) {
+                            final List<FaunusElement.MicroElement> path = paths.get(i);
                             if (path.get(this.step) instanceof FaunusEdge.MicroEdge)
                                 throw new IOException("Back does not support backing up to previous edges");
 
                             final long backElementId = path.get(this.step).getId();
-                            this.longWritable.set(backElementId);
+                            this.longWritable.set(backElementId, 'p');
                             this.vertex.reuse(backElementId);
-                            this.vertex.addPath(path, false);
+                            this.vertex.addPath(path, paths.getMultiplicity(i), false);
                             context.write(this.longWritable, this.holder.set('p', this.vertex));
                         }
                         edge.clearPaths();
@@ -93,33 +104,51 @@ public class BackFilterMapReduce {
                 }
             }
 
-            this.longWritable.set(value.getIdAsLong());
-            context.write(this.longWritable, this.holder.set('v', value));
+            if (this.frontier) {
+                // only the paths of the vertex are shuffled as the next job joins the rest of it back from the graph cache (see FrontierInputFormat)
+                final FaunusVertex active = FrontierOutputFormat.toFrontier(value, this.pathEnabled);
+                if (null != active) {
+                    this.longWritable.set(value.getIdAsLong(), 'v');
+                    context.write(this.longWritable, this.holder.set('v', active));
+                }
+            } else {
+                this.longWritable.set(value.getIdAsLong(), 'v');
+                context.write(this.longWritable, this.holder.set('v', value));
+            }
         }
     }
 
     public static class Combiner extends Reducer<LongWritable, Holder, LongWritable, Holder> {
         private FaunusVertex vertex;
+        private int pathSpillOver;
+        private int pathSample;
         private final Holder<FaunusVertex> holder = new Holder<FaunusVertex>();
 
         @Override
         public void setup(final Reducer.Context context) throws IOException, InterruptedException {
             this.vertex = new FaunusVertex(context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false));
+            this.pathSpillOver = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_PATH_SPILL_OVER, Tokens.DEFAULT_PATH_SPILL_OVER);
+            this.pathSample = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_PATH_SAMPLE, 0);
         }
 
         @Override
         public void reduce(final LongWritable key, final Iterable<Holder> values, final Reducer<LongWritable, Holder, LongWritable, Holder>.Context context) throws IOException, InterruptedException {
             this.vertex.reuse(key.get());
+            this.vertex.setPathSpillOver(this.pathSpillOver, context.getConfiguration());
+            this.vertex.setPathSample(this.pathSample);
             char outTag = 'x';
             for (final Holder holder : values) {
                 final char tag = holder.getTag();
                 if (tag == 'v') {
                     this.vertex.addAll((FaunusVertex) holder.get());
+                    holder.get().clearPaths();
                     outTag = 'v';
                 } else if (tag == 'p') {
                     this.vertex.getPaths(holder.get(), true);
+                    holder.get().clearPaths();
                 } else {
                     this.vertex.getPaths(holder.get(), false);
+                    holder.get().clearPaths();
                 }
             }
             context.write(key, this.holder.set(outTag, this.vertex));
@@ -129,27 +158,48 @@ public class BackFilterMapReduce {
     public static class Reduce extends Reducer<LongWritable, Holder, NullWritable, FaunusVertex> {
 
         private FaunusVertex vertex;
+        private int pathSpillOver;
+        private int pathSample;
 
         @Override
         public void setup(final Reducer.Context context) throws IOException, InterruptedException {
             this.vertex = new FaunusVertex(context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false));
+            this.pathSpillOver = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_PATH_SPILL_OVER, Tokens.DEFAULT_PATH_SPILL_OVER);
+            this.pathSample = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_PATH_SAMPLE, 0);
         }
 
 
         @Override
         public void reduce(final LongWritable key, final Iterable<Holder> values, final Reducer<LongWritable, Holder, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            // the vertex holder is sorted first (see TaggedLongWritable), so the path messages are folded straight into it
             this.vertex.reuse(key.get());
+            this.vertex.setPathSpillOver(this.pathSpillOver, context.getConfiguration());
+            this.vertex.setPathSample(this.pathSample);
+            FaunusVertex vertex = this.vertex;
+            boolean first = true;
             for (final Holder holder : values) {
                 final char tag = holder.getTag();
                 if (tag == 'v') {
-                    this.vertex.addAll((FaunusVertex) holder.get());
+                    if (first) {
+                        vertex = (FaunusVertex) holder.get();
+                        vertex.setPathSpillOver(this.pathSpillOver, context.getConfiguration());
+                        vertex.setPathSample(this.pathSample);
+                    } else {
+                        vertex.addAll((FaunusVertex) holder.get());
+                        holder.get().clearPaths();
+                    }
                 } else if (tag == 'p') {
-                    this.vertex.getPaths(holder.get(), true);
+                    vertex.getPaths(holder.get(), true);
+                    holder.get().clearPaths();
                 } else {
-                    this.vertex.getPaths(holder.get(), false);
+                    vertex.getPaths(holder.get(), false);
+                    holder.get().clearPaths();
                 }
+                first = false;
             }
-            context.write(NullWritable.get(), this.vertex);
+            context.write(NullWritable.get(), vertex);
+            // the spilled runs of the vertex are not needed once it is written
+            vertex.clearPaths();
         }
     }
 }
@@ -3,6 +3,7 @@ package com.thinkaurelius.faunus.mapreduce.filter;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.ElementChecker;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Compare;
@@ -54,7 +55,29 @@ public class IntervalFilterMap {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+    /**
+     * Create the start and end checkers of the interval from its configuration (also used to evaluate the interval
+     * while a vertex is read).
+     */
+    public static ElementChecker[] createElementCheckers(final Configuration configuration) throws IOException {
+        final String key = configuration.get(KEY);
+        final Class valueClass = configuration.getClass(VALUE_CLASS, String.class);
+        final Object startValue;
+        final Object endValue;
+        if (valueClass.equals(String.class)) {
+            startValue = configuration.get(START_VALUE);
+            endValue = configuration.get(END_VALUE);
+        } else if (Number.class.isAssignableFrom((valueClass))) {
+            startValue = configuration.getFloat(START_VALUE, Float.MIN_VALUE);
+            endValue = configuration.getFloat(END_VALUE, Float.MAX_VALUE);
+        } else {
+            throw new IOException("Class " + valueClass + " is an unsupported value class");
+        }
+
+        return new ElementChecker[]{new ElementChecker(key, Compare.GREATER_THAN_EQUAL, startValue), new ElementChecker(key, Compare.LESS_THAN, endValue)};
+    }
+
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
 
         private boolean isVertex;
         private ElementChecker startChecker;
@@ -63,22 +86,9 @@ public class IntervalFilterMap {
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
             this.isVertex = context.getConfiguration().getClass(CLASS, Element.class, Element.class).equals(Vertex.class);
-            final String key = context.getConfiguration().get(KEY);
-            final Class valueClass = context.getConfiguration().getClass(VALUE_CLASS, String.class);
-            final Object startValue;
-            final Object endValue;
-            if (valueClass.equals(String.class)) {
-                startValue = context.getConfiguration().get(START_VALUE);
-                endValue = context.getConfiguration().get(END_VALUE);
-            } else if (Number.class.isAssignableFrom((valueClass))) {
-                startValue = context.getConfiguration().getFloat(START_VALUE, Float.MIN_VALUE);
-                endValue = context.getConfiguration().getFloat(END_VALUE, Float.MAX_VALUE);
-            } else {
-                throw new IOException("Class " + valueClass + " is an unsupported value class");
-            }
-
-            this.startChecker = new ElementChecker(key, Compare.GREATER_THAN_EQUAL, startValue);
-            this.endChecker = new ElementChecker(key, Compare.LESS_THAN, endValue);
+            final ElementChecker[] checkers = createElementCheckers(context.getConfiguration());
+            this.startChecker = checkers[0];
+            this.endChecker = checkers[1];
         }
 
         @Override
@@ -3,6 +3,7 @@ package com.thinkaurelius.faunus.mapreduce.filter;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.ElementChecker;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Compare;
@@ -54,7 +55,40 @@ public class PropertyFilterMap {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+    /**
+     * Create the checker of the filter from its configuration (also used to evaluate the filter while a vertex is read).
+     */
+    public static ElementChecker createElementChecker(final Configuration configuration) throws IOException {
+        final String key = configuration.get(KEY);
+        final Class valueClass = configuration.getClass(VALUE_CLASS, String.class);
+        final String[] valueStrings = configuration.getStrings(VALUES);
+        final Object[] values = new Object[valueStrings.length];
+
+        if (valueClass.equals(Object.class)) {
+            for (int i = 0; i < valueStrings.length; i++) {
+                values[i] = null;
+            }
+        } else if (valueClass.equals(String.class)) {
+            for (int i = 0; i < valueStrings.length; i++) {
+                values[i] = (valueStrings[i].equals(Tokens.NULL)) ? null : valueStrings[i];
+            }
+        } else if (Number.class.isAssignableFrom((valueClass))) {
+            for (int i = 0; i < valueStrings.length; i++) {
+                values[i] = (valueStrings[i].equals(Tokens.NULL)) ? null : Float.valueOf(valueStrings[i]);
+            }
+        } else if (valueClass.equals(Boolean.class)) {
+            for (int i = 0; i < valueStrings.length; i++) {
+                values[i] = (valueStrings[i].equals(Tokens.NULL)) ? null : Boolean.valueOf(valueStrings[i]);
+            }
+        } else {
+            throw new IOException("Class " + valueClass + " is an unsupported value class");
+        }
+
+        final Compare compare = Compare.valueOf(configuration.get(COMPARE));
+        return new ElementChecker(key, compare, values);
+    }
+
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
 
         private boolean isVertex;
         private ElementChecker elementChecker;
@@ -62,33 +96,7 @@ public class PropertyFilterMap {
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
             this.isVertex = context.getConfiguration().getClass(CLASS, Element.class, Element.class).equals(Vertex.class);
-            final String key = context.getConfiguration().get(KEY);
-            final Class valueClass = context.getConfiguration().getClass(VALUE_CLASS, String.class);
-            final String[] valueStrings = context.getConfiguration().getStrings(VALUES);
-            final Object[] values = new Object[valueStrings.length];
-
-            if (valueClass.equals(Object.class)) {
-                for (int i = 0; i < valueStrings.length; i++) {
-                    values[i] = null;
-                }
-            } else if (valueClass.equals(String.class)) {
-                for (int i = 0; i < valueStrings.length; i++) {
-                    values[i] = (valueStrings[i].equals(Tokens.NULL)) ? null : valueStrings[i];
-                }
-            } else if (Number.class.isAssignableFrom((valueClass))) {
-                for (int i = 0; i < valueStrings.length; i++) {
-                    values[i] = (valueStrings[i].equals(Tokens.NULL)) ? null : Float.valueOf(valueStrings[i]);
-                }
-            } else if (valueClass.equals(Boolean.class)) {
-                for (int i = 0; i < valueStrings.length; i++) {
-                    values[i] = (valueStrings[i].equals(Tokens.NULL)) ? null : Boolean.valueOf(valueStrings[i]);
-                }
-            } else {
-                throw new IOException("Class " + valueClass + " is an unsupported value class");
-            }
-
-            final Compare compare = Compare.valueOf(context.getConfiguration().get(COMPARE));
-            this.elementChecker = new ElementChecker(key, compare, values);
+            this.elementChecker = createElementChecker(context.getConfiguration());
         }
 
         @Override
@@ -2,8 +2,10 @@ package com.thinkaurelius.faunus.mapreduce.sideeffect;
 
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.TaggedLongWritable;
 import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Edge;
 import org.apache.hadoop.conf.Configuration;
@@ -40,13 +42,13 @@ public class CommitVerticesMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, LongWritable, Holder> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, Holder> {
 
         private boolean drop;
 
         private FaunusVertex vertex;
         private final Holder<FaunusVertex> holder = new Holder<FaunusVertex>();
-        private final LongWritable longWritable = new LongWritable();
+        private final TaggedLongWritable longWritable = new TaggedLongWritable();
 
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
@@ -70,7 +72,7 @@ public class CommitVerticesMapReduce {
                 keep = this.drop && !hasPaths;
 
             if (keep) {
-                this.longWritable.set(value.getIdAsLong());
+                this.longWritable.set(value.getIdAsLong(), 'v');
                 context.write(this.longWritable, this.holder.set('v', value));
                 verticesKept++;
             } else {
@@ -80,14 +82,14 @@ public class CommitVerticesMapReduce {
                 for (final Edge edge : value.getEdges(OUT)) {
                     final Long id = (Long) edge.getVertex(IN).getId();
                     if (!id.equals(vertexId)) {
-                        this.longWritable.set(id);
+                        this.longWritable.set(id, 'k');
                         context.write(this.longWritable, this.holder);
                     }
                 }
                 for (final Edge edge : value.getEdges(IN)) {
                     final Long id = (Long) edge.getVertex(OUT).getId();
                     if (!id.equals(vertexId)) {
-                        this.longWritable.set(id);
+                        this.longWritable.set(id, 'k');
                         context.write(this.longWritable, this.holder);
                     }
                 }
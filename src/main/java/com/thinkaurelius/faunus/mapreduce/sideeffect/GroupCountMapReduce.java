@@ -3,6 +3,7 @@ package com.thinkaurelius.faunus.mapreduce.sideeffect;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.CounterMap;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.thinkaurelius.faunus.mapreduce.util.SafeMapperOutputs;
@@ -49,7 +50,7 @@ public class GroupCountMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, Text, LongWritable> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, Text, LongWritable> {
 
         private Closure keyClosure;
         private Closure valueClosure;
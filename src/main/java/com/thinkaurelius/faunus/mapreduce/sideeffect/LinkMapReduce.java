@@ -4,8 +4,10 @@ import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.TaggedLongWritable;
 import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.CounterMap;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Direction;
@@ -16,7 +18,6 @@ import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 
 import java.io.IOException;
-import java.util.List;
 
 import static com.tinkerpop.blueprints.Direction.IN;
 import static com.tinkerpop.blueprints.Direction.OUT;
@@ -55,13 +56,13 @@ public class LinkMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, LongWritable, Holder> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, Holder> {
 
         private Direction direction;
         private String label;
         private int step;
         private final Holder<FaunusElement> holder = new Holder<FaunusElement>();
-        private final LongWritable longWritable = new LongWritable();
+        private final TaggedLongWritable longWritable = new TaggedLongWritable();
         private boolean mergeDuplicates;
         private String mergeWeightKey;
 
@@ -88,8 +89,9 @@ public class LinkMapReduce {
                 long edgesCreated = 0;
                 if (this.mergeDuplicates) {
                     final CounterMap<Long> map = new CounterMap<Long>();
-                    for (final List<FaunusElement.MicroElement> path : value.getPaths()) {
-                        map.incr(path.get(this.step).getId(), 1);
+                    final FaunusElement.MicroPaths paths = value.getPaths();
+                    for (int i = 0; i < paths.size(); i++) {
+                        map.incr(paths.get(i).get(this.step).getId(), paths.getMultiplicity(i));
                     }
                     for (java.util.Map.Entry<Long, Long> entry : map.entrySet()) {
                         final long linkElementId = entry.getKey();
@@ -105,22 +107,26 @@ public class LinkMapReduce {
 
                         value.addEdge(this.direction, edge);
                         edgesCreated++;
-                        this.longWritable.set(linkElementId);
+                        this.longWritable.set(linkElementId, 'e');
                         context.write(this.longWritable, this.holder.set('e', edge));
                     }
                 } else {
-                    for (final List<FaunusElement.MicroElement> path : value.getPaths()) {
-                        final long linkElementId = path.get(this.step).getId();
-                        final FaunusEdge edge;
-                        if (this.direction.equals(IN))
-                            edge = new FaunusEdge(linkElementId, valueId, this.label);
-                        else
-                            edge = new FaunusEdge(valueId, linkElementId, this.label);
-                        edge.enablePath(this.pathEnabled);
-                        value.addEdge(this.direction, edge);
-                        edgesCreated++;
-                        this.longWritable.set(linkElementId);
-                        context.write(this.longWritable, this.holder.set('e', edge));
+                    final FaunusElement.MicroPaths paths = value.getPaths();
+                    for (int i = 0; i < paths.size(); i++) {
+                        final long linkElementId = paths.get(i).get(this.step).getId();
+                        // an edge per traverser on the path
+                        for (long j = 0; j < paths.getMultiplicity(i); j++) {
+                            final FaunusEdge edge;
+                            if (this.direction.equals(IN))
+                                edge = new FaunusEdge(linkElementId, valueId, this.label);
+                            else
+                                edge = new FaunusEdge(valueId, linkElementId, this.label);
+                            edge.enablePath(this.pathEnabled);
+                            value.addEdge(this.direction, edge);
+                            edgesCreated++;
+                            this.longWritable.set(linkElementId, 'e');
+                            context.write(this.longWritable, this.holder.set('e', edge));
+                        }
                     }
                 }
                 if (this.direction.equals(OUT))
@@ -130,7 +136,7 @@ public class LinkMapReduce {
 
             }
 
-            this.longWritable.set(valueId);
+            this.longWritable.set(valueId, 'v');
             context.write(this.longWritable, this.holder.set('v', value));
         }
     }
@@ -3,6 +3,7 @@ package com.thinkaurelius.faunus.mapreduce.sideeffect;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.CounterMap;
 import com.thinkaurelius.faunus.mapreduce.util.ElementPicker;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
@@ -45,7 +46,7 @@ public class ValueGroupCountMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, WritableComparable, LongWritable> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, WritableComparable, LongWritable> {
 
         private String property;
         private WritableHandler handler;
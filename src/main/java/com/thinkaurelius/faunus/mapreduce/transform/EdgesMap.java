@@ -1,8 +1,11 @@
 package com.thinkaurelius.faunus.mapreduce.transform;
 
 import com.thinkaurelius.faunus.FaunusEdge;
+import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
@@ -31,13 +34,15 @@ public class EdgesMap {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
 
         private boolean processVertices;
+        private long pathRetain;
 
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
             this.processVertices = context.getConfiguration().getBoolean(PROCESS_VERTICES, true);
+            this.pathRetain = context.getConfiguration().getLong(FaunusCompiler.PATH_RETAIN, FaunusElement.MicroPath.RETAIN_ALL);
         }
 
         @Override
@@ -50,14 +55,14 @@ public class EdgesMap {
 
             long edgesProcessed = 0;
             for (final Edge edge : value.getEdges(Direction.IN)) {
-                ((FaunusEdge) edge).startPath();
+                ((FaunusEdge) edge).startPath(this.pathRetain);
                 edgesProcessed++;
             }
             context.getCounter(Counters.IN_EDGES_PROCESSED).increment(edgesProcessed);
 
             edgesProcessed = 0;
             for (final Edge edge : value.getEdges(Direction.OUT)) {
-                ((FaunusEdge) edge).startPath();
+                ((FaunusEdge) edge).startPath(this.pathRetain);
                 edgesProcessed++;
             }
             context.getCounter(Counters.OUT_EDGES_PROCESSED).increment(edgesProcessed);
@@ -3,6 +3,7 @@ package com.thinkaurelius.faunus.mapreduce.transform;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.ElementPicker;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.thinkaurelius.faunus.mapreduce.util.SafeMapperOutputs;
@@ -70,7 +71,7 @@ public class OrderMapReduce {
         return comparatorClass;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, WritableComparable, Text> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, WritableComparable, Text> {
 
         private String key;
         private boolean isVertex;
@@ -5,6 +5,7 @@ import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.thinkaurelius.faunus.mapreduce.util.SafeMapperOutputs;
 import com.tinkerpop.blueprints.Direction;
@@ -17,7 +18,6 @@ import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 
 import java.io.IOException;
-import java.util.List;
 
 /**
  * @author Marko A. Rodriguez (http://markorodriguez.com)
@@ -28,7 +28,9 @@ public class PathMap {
 
     public enum Counters {
         VERTICES_PROCESSED,
-        OUT_EDGES_PROCESSED
+        OUT_EDGES_PROCESSED,
+        PATHS_SAMPLED,
+        PATHS_COUNTED
     }
 
     public static Configuration createConfiguration(final Class<? extends Element> klass) {
@@ -38,7 +40,7 @@ public class PathMap {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, NullWritable, Text> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, Text> {
 
         private boolean isVertex;
         private final Text textWritable = new Text();
@@ -56,20 +58,14 @@ public class PathMap {
         @Override
         public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, NullWritable, Text>.Context context) throws IOException, InterruptedException {
             if (this.isVertex && value.hasPaths()) {
-                for (final List<FaunusElement.MicroElement> path : value.getPaths()) {
-                    this.textWritable.set(path.toString());
-                    this.outputs.write(Tokens.SIDEEFFECT, NullWritable.get(), this.textWritable);
-                }
+                this.writePaths(value.getPaths(), context);
                 context.getCounter(Counters.VERTICES_PROCESSED).increment(1l);
             } else {
                 long edgesProcessed = 0;
                 for (final Edge e : value.getEdges(Direction.OUT)) {
                     final FaunusEdge edge = (FaunusEdge) e;
                     if (edge.hasPaths()) {
-                        for (final List<FaunusElement.MicroElement> path : edge.getPaths()) {
-                            this.textWritable.set(path.toString());
-                            this.outputs.write(Tokens.SIDEEFFECT, NullWritable.get(), this.textWritable);
-                        }
+                        this.writePaths(edge.getPaths(), context);
                         edgesProcessed++;
                     }
                 }
@@ -79,6 +75,18 @@ public class PathMap {
             this.outputs.write(Tokens.GRAPH, NullWritable.get(), value);
         }
 
+        // a path is written once per traverser on it (the unsampled traversers are only counted)
+        private void writePaths(final FaunusElement.MicroPaths paths, final Mapper.Context context) throws IOException, InterruptedException {
+            for (int i = 0; i < paths.size(); i++) {
+                this.textWritable.set(paths.get(i).toString());
+                for (long j = 0; j < paths.getMultiplicity(i); j++) {
+                    this.outputs.write(Tokens.SIDEEFFECT, NullWritable.get(), this.textWritable);
+                }
+            }
+            context.getCounter(Counters.PATHS_SAMPLED).increment(paths.count() - paths.unsampledCount());
+            context.getCounter(Counters.PATHS_COUNTED).increment(paths.count());
+        }
+
         @Override
         public void cleanup(final Mapper<NullWritable, FaunusVertex, NullWritable, Text>.Context context) throws IOException, InterruptedException {
             this.outputs.close();
@@ -1,7 +1,10 @@
 package com.thinkaurelius.faunus.mapreduce.transform;
 
+import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
@@ -32,20 +35,22 @@ public class VertexMap {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
 
         private Collection<Long> ids;
+        private long pathRetain;
 
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
             //todo: make as list and double up repeats
             this.ids = VertexMap.Map.getLongCollection(context.getConfiguration(), IDS, new HashSet<Long>());
+            this.pathRetain = context.getConfiguration().getLong(FaunusCompiler.PATH_RETAIN, FaunusElement.MicroPath.RETAIN_ALL);
         }
 
         @Override
         public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
             if (this.ids.contains(value.getIdAsLong())) {
-                value.startPath();
+                value.startPath(this.pathRetain);
                 context.getCounter(Counters.VERTICES_PROCESSED).increment(1l);
             } else {
                 value.clearPaths();
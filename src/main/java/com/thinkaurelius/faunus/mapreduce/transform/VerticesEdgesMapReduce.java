@@ -4,8 +4,11 @@ import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.TaggedLongWritable;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.formats.frontier.FrontierOutputFormat;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
@@ -17,6 +20,7 @@ import org.apache.hadoop.mapreduce.Reducer;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import static com.tinkerpop.blueprints.Direction.*;
@@ -40,14 +44,15 @@ public class VerticesEdgesMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, LongWritable, Holder> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, Holder> {
 
         private Direction direction;
         private String[] labels;
         private boolean pathEnabled;
+        private boolean frontier;
 
         private final Holder<FaunusElement> holder = new Holder<FaunusElement>();
-        private final LongWritable longWritable = new LongWritable();
+        private final TaggedLongWritable longWritable = new TaggedLongWritable();
         private FaunusEdge edge;
 
         @Override
@@ -55,6 +60,7 @@ public class VerticesEdgesMapReduce {
             this.direction = Direction.valueOf(context.getConfiguration().get(DIRECTION));
             this.labels = context.getConfiguration().getStrings(LABELS, new String[0]);
             this.pathEnabled = context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false);
+            this.frontier = context.getConfiguration().getBoolean(Tokens.FAUNUS_PIPELINE_FRONTIER, false);
             this.edge = new FaunusEdge(this.pathEnabled);
 
         }
@@ -71,14 +77,16 @@ public class VerticesEdgesMapReduce {
                         this.edge.reuse(edge.getIdAsLong(), edge.getVertexId(OUT), edge.getVertexId(IN), edge.getLabel());
 
                         if (this.pathEnabled) {
-                            final List<List<FaunusElement.MicroElement>> paths = clonePaths(value, new FaunusEdge.MicroEdge(edge.getIdAsLong()));
+                            final FaunusElement.MicroPaths paths = clonePaths(value, new FaunusEdge.MicroEdge(edge.getIdAsLong()));
                             edge.addPaths(paths, false);
                             this.edge.addPaths(paths, false);
+                            // deletes the runs of the paths if they spilled
+                            paths.clear();
                         } else {
                             edge.getPaths(value, false);
                             this.edge.getPaths(value, false);
                         }
-                        this.longWritable.set(edge.getVertexId(OUT));
+                        this.longWritable.set(edge.getVertexId(OUT), 'p');
                         context.write(this.longWritable, this.holder.set('p', this.edge));
                         edgesTraversed++;
                     }
@@ -90,14 +98,16 @@ public class VerticesEdgesMapReduce {
                         this.edge.reuse(edge.getIdAsLong(), edge.getVertexId(OUT), edge.getVertexId(IN), edge.getLabel());
 
                         if (this.pathEnabled) {
-                            final List<List<FaunusElement.MicroElement>> paths = clonePaths(value, new FaunusEdge.MicroEdge(edge.getIdAsLong()));
+                            final FaunusElement.MicroPaths paths = clonePaths(value, new FaunusEdge.MicroEdge(edge.getIdAsLong()));
                             edge.addPaths(paths, false);
                             this.edge.addPaths(paths, false);
+                            // deletes the runs of the paths if they spilled
+                            paths.clear();
                         } else {
                             edge.getPaths(value, false);
                             this.edge.getPaths(value, false);
                         }
-                        this.longWritable.set(edge.getVertexId(IN));
+                        this.longWritable.set(edge.getVertexId(IN), 'p');
                         context.write(this.longWritable, this.holder.set('p', this.edge));
                         edgesTraversed++;
                     }
@@ -108,19 +118,24 @@ public class VerticesEdgesMapReduce {
             }
 
 
-            this.longWritable.set(value.getIdAsLong());
-            context.write(this.longWritable, this.holder.set('v', value));
+            if (this.frontier) {
+                // only the paths of the vertex are shuffled as the next job joins the rest of it back from the graph cache (see FrontierInputFormat)
+                final FaunusVertex active = FrontierOutputFormat.toFrontier(value, this.pathEnabled);
+                if (null != active) {
+                    this.longWritable.set(value.getIdAsLong(), 'v');
+                    context.write(this.longWritable, this.holder.set('v', active));
+                }
+            } else {
+                this.longWritable.set(value.getIdAsLong(), 'v');
+                context.write(this.longWritable, this.holder.set('v', value));
+            }
         }
 
-        // TODO: this is horribly inefficient due to an efficiency of object reuse in path calculations
-        private List<List<FaunusElement.MicroElement>> clonePaths(final FaunusVertex vertex, final FaunusEdge.MicroEdge edge) {
-            final List<List<FaunusElement.MicroElement>> paths = new ArrayList<List<FaunusElement.MicroElement>>();
-            for (List<FaunusElement.MicroElement> path : vertex.getPaths()) {
-                final List<FaunusElement.MicroElement> p = new ArrayList<FaunusElement.MicroElement>();
-                p.addAll(path);
-                p.add(edge);
-                paths.add(p);
-            }
+        // the paths to the edge share the paths of the vertex as their prefix (see FaunusElement.MicroPath)
+        private FaunusElement.MicroPaths clonePaths(final FaunusVertex vertex, final FaunusEdge.MicroEdge edge) {
+            final FaunusElement.MicroPaths vertexPaths = vertex.getPaths();
+            final FaunusElement.MicroPaths paths = new FaunusElement.MicroPaths();
+            vertexPaths.addTo(paths, edge);
             return paths;
         }
 
@@ -131,9 +146,11 @@ public class VerticesEdgesMapReduce {
         private Direction direction;
         private String[] labels;
         private FaunusVertex vertex;
+        private boolean frontier;
 
         @Override
         public void setup(final Reducer.Context context) throws IOException, InterruptedException {
+            this.frontier = context.getConfiguration().getBoolean(Tokens.FAUNUS_PIPELINE_FRONTIER, false);
             this.direction = Direction.valueOf(context.getConfiguration().get(DIRECTION));
             if (!this.direction.equals(BOTH))
                 this.direction = this.direction.opposite();
@@ -142,29 +159,115 @@ public class VerticesEdgesMapReduce {
             this.vertex = new FaunusVertex(context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false));
         }
 
+        /**
+         * The vertex holder is sorted first (see TaggedLongWritable), so each path message is folded into its edge
+         * as it streams by. Messages that arrive before the vertex (e.g. without the secondary sort) are held until it does.
+         */
         @Override
         public void reduce(final LongWritable key, final Iterable<Holder> values, final Reducer<LongWritable, Holder, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
             this.vertex.reuse(key.get());
-            final List<FaunusEdge> edges = new ArrayList<FaunusEdge>();
+            FaunusVertex vertex = this.vertex;
+            EdgeIndex index = null;
+            List<FaunusEdge> pending = null;
+            boolean first = true;
             for (final Holder holder : values) {
                 final char tag = holder.getTag();
                 if (tag == 'v') {
-                    this.vertex.addAll((FaunusVertex) holder.get());
+                    if (first)
+                        vertex = (FaunusVertex) holder.get();
+                    else {
+                        vertex.addAll((FaunusVertex) holder.get());
+                        holder.get().clearPaths();
+                    }
+                    index = new EdgeIndex(vertex.getEdges(this.direction, this.labels));
+                } else if (null != index) {
+                    this.getPaths(vertex, index, (FaunusEdge) holder.get());
                 } else {
-                    edges.add((FaunusEdge) holder.get());
+                    if (null == pending)
+                        pending = new ArrayList<FaunusEdge>();
+                    pending.add((FaunusEdge) holder.get());
                 }
+                first = false;
             }
 
-            for (final Edge e : this.vertex.getEdges(this.direction, this.labels)) {
-                for (final FaunusEdge edge : edges) {
-                    if (e.getId().equals(edge.getId())) {
-                        ((FaunusEdge) e).getPaths(edge, false);
-                        break;
+            if (null != pending) {
+                if (null == index)
+                    index = new EdgeIndex(vertex.getEdges(this.direction, this.labels));
+                for (final FaunusEdge edge : pending) {
+                    this.getPaths(vertex, index, edge);
+                }
+            }
+
+            context.write(NullWritable.get(), vertex);
+            // the spilled runs of the vertex are not needed once it is written
+            vertex.clearPaths();
+        }
+
+        private void getPaths(final FaunusVertex vertex, final EdgeIndex index, final FaunusEdge message) {
+            // in frontier mode the vertex only has its edges with paths (see FrontierOutputFormat), so the other edges come with their messages
+            if (!index.getPaths(message) && this.frontier)
+                index.addEdge(vertex, message, this.direction);
+        }
+    }
+
+    /**
+     * The edges of a vertex indexed by edge id.
+     * An edge only takes the paths of the first message with its id (it then stays indexed as null).
+     */
+    private static class EdgeIndex {
+
+        private final java.util.Map<Long, FaunusEdge> edges = new HashMap<Long, FaunusEdge>();
+        private java.util.Map<Long, List<FaunusEdge>> duplicates = null;
+
+        public EdgeIndex(final Iterable<Edge> edges) {
+            for (final Edge e : edges) {
+                final FaunusEdge edge = (FaunusEdge) e;
+                final FaunusEdge existing = this.edges.put(edge.getIdAsLong(), edge);
+                if (null != existing) {
+                    // the same edge on both sides of a self-loop
+                    this.edges.put(edge.getIdAsLong(), existing);
+                    if (null == this.duplicates)
+                        this.duplicates = new HashMap<Long, List<FaunusEdge>>();
+                    List<FaunusEdge> list = this.duplicates.get(edge.getIdAsLong());
+                    if (null == list) {
+                        list = new ArrayList<FaunusEdge>();
+                        this.duplicates.put(edge.getIdAsLong(), list);
+                    }
+                    list.add(edge);
+                }
+            }
+        }
+
+        /**
+         * @return whether an edge with the id of the message is (or was) in the index
+         */
+        public boolean getPaths(final FaunusEdge message) {
+            if (!this.edges.containsKey(message.getIdAsLong()))
+                return false;
+            final FaunusEdge edge = this.edges.put(message.getIdAsLong(), null);
+            if (null != edge) {
+                edge.getPaths(message, false);
+                if (null != this.duplicates) {
+                    final List<FaunusEdge> list = this.duplicates.remove(message.getIdAsLong());
+                    if (null != list) {
+                        for (final FaunusEdge duplicate : list) {
+                            duplicate.getPaths(message, false);
+                        }
                     }
                 }
             }
+            return true;
+        }
 
-            context.write(NullWritable.get(), this.vertex);
+        /**
+         * Add the edge of the message to the sides of the vertex that the index covers.
+         */
+        public void addEdge(final FaunusVertex vertex, final FaunusEdge message, final Direction direction) {
+            if (!direction.equals(OUT) && message.getVertexId(IN) == vertex.getIdAsLong())
+                vertex.addEdge(IN, message);
+            if (!direction.equals(IN) && message.getVertexId(OUT) == vertex.getIdAsLong())
+                vertex.addEdge(OUT, message);
+            this.edges.put(message.getIdAsLong(), null);
         }
     }
 }
\ No newline at end of file
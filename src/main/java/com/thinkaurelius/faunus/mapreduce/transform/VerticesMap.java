@@ -1,8 +1,11 @@
 package com.thinkaurelius.faunus.mapreduce.transform;
 
 import com.thinkaurelius.faunus.FaunusEdge;
+import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
@@ -30,18 +33,20 @@ public class VerticesMap {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
 
         private boolean processEdges;
+        private long pathRetain;
 
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
             this.processEdges = context.getConfiguration().getBoolean(PROCESS_EDGES, true);
+            this.pathRetain = context.getConfiguration().getLong(FaunusCompiler.PATH_RETAIN, FaunusElement.MicroPath.RETAIN_ALL);
         }
 
         @Override
         public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
-            value.startPath();
+            value.startPath(this.pathRetain);
             long edgesProcessed = 0;
             if (this.processEdges) {
                 for (final Edge edge : value.getEdges(Direction.BOTH)) {
@@ -3,8 +3,11 @@ package com.thinkaurelius.faunus.mapreduce.transform;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.TaggedLongWritable;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.formats.frontier.FrontierOutputFormat;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
@@ -37,21 +40,25 @@ public class VerticesVerticesMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, LongWritable, Holder> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, Holder> {
 
         private Direction direction;
         private String[] labels;
+        private boolean pathEnabled;
+        private boolean frontier;
 
         private FaunusVertex vertex;
         private final Holder<FaunusVertex> holder = new Holder<FaunusVertex>();
-        private final LongWritable longWritable = new LongWritable();
+        private final TaggedLongWritable longWritable = new TaggedLongWritable();
 
 
         @Override
         public void setup(final Mapper.Context context) throws IOException, InterruptedException {
             this.direction = Direction.valueOf(context.getConfiguration().get(DIRECTION));
             this.labels = context.getConfiguration().getStrings(LABELS, new String[0]);
-            this.vertex = new FaunusVertex(context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false));
+            this.pathEnabled = context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false);
+            this.frontier = context.getConfiguration().getBoolean(Tokens.FAUNUS_PIPELINE_FRONTIER, false);
+            this.vertex = new FaunusVertex(this.pathEnabled);
         }
 
         @Override
@@ -63,7 +70,7 @@ public class VerticesVerticesMapReduce {
                     for (final Edge edge : value.getEdges(OUT, this.labels)) {
                         this.vertex.reuse(((FaunusEdge) edge).getVertexId(IN));
                         this.vertex.getPaths(value, false);
-                        this.longWritable.set(this.vertex.getIdAsLong());
+                        this.longWritable.set(this.vertex.getIdAsLong(), 'p');
                         context.write(this.longWritable, this.holder.set('p', this.vertex));
                         edgesTraversed++;
                     }
@@ -73,7 +80,7 @@ public class VerticesVerticesMapReduce {
                     for (final Edge edge : value.getEdges(IN, this.labels)) {
                         this.vertex.reuse(((FaunusEdge) edge).getVertexId(OUT));
                         this.vertex.getPaths(value, false);
-                        this.longWritable.set(this.vertex.getIdAsLong());
+                        this.longWritable.set(this.vertex.getIdAsLong(), 'p');
                         context.write(this.longWritable, this.holder.set('p', this.vertex));
                         edgesTraversed++;
                     }
@@ -82,34 +89,106 @@ public class VerticesVerticesMapReduce {
                 context.getCounter(Counters.EDGES_TRAVERSED).increment(edgesTraversed);
             }
 
-            this.longWritable.set(value.getIdAsLong());
-            context.write(this.longWritable, this.holder.set('v', value));
+            if (this.frontier) {
+                // only the paths of the vertex are shuffled as the next job joins the rest of it back from the graph cache (see FrontierInputFormat)
+                final FaunusVertex active = FrontierOutputFormat.toFrontier(value, this.pathEnabled);
+                if (null != active) {
+                    this.longWritable.set(value.getIdAsLong(), 'v');
+                    context.write(this.longWritable, this.holder.set('v', active));
+                }
+            } else {
+                this.longWritable.set(value.getIdAsLong(), 'v');
+                context.write(this.longWritable, this.holder.set('v', value));
+            }
+        }
+    }
+
+    /**
+     * Sums the path messages of each destination vertex into a single message (the vertex itself passes through untouched).
+     * When paths are disabled, a message is a bare vertex that only carries its id and path count.
+     */
+    public static class Combiner extends Reducer<LongWritable, Holder, LongWritable, Holder> {
+
+        private FaunusVertex vertex;
+        private int pathSpillOver;
+        private int pathSample;
+        private final Holder<FaunusVertex> holder = new Holder<FaunusVertex>();
+        private final TaggedLongWritable longWritable = new TaggedLongWritable();
+
+        @Override
+        public void setup(final Reducer.Context context) throws IOException, InterruptedException {
+            this.vertex = new FaunusVertex(context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false));
+            this.pathSpillOver = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_PATH_SPILL_OVER, Tokens.DEFAULT_PATH_SPILL_OVER);
+            this.pathSample = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_PATH_SAMPLE, 0);
+        }
+
+        @Override
+        public void reduce(final LongWritable key, final Iterable<Holder> values, final Reducer<LongWritable, Holder, LongWritable, Holder>.Context context) throws IOException, InterruptedException {
+            this.vertex.reuse(key.get());
+            this.vertex.setPathSpillOver(this.pathSpillOver, context.getConfiguration());
+            this.vertex.setPathSample(this.pathSample);
+            boolean messages = false;
+            for (final Holder holder : values) {
+                if (holder.getTag() == 'v') {
+                    context.write(key, holder);
+                } else {
+                    // the reducer appends the vertex to the paths
+                    this.vertex.getPaths(holder.get(), false);
+                    holder.get().clearPaths();
+                    messages = true;
+                }
+            }
+            if (messages) {
+                this.longWritable.set(key.get(), 'p');
+                context.write(this.longWritable, this.holder.set('p', this.vertex));
+            }
         }
     }
 
     public static class Reduce extends Reducer<LongWritable, Holder, NullWritable, FaunusVertex> {
 
         private FaunusVertex vertex;
+        private int pathSpillOver;
+        private int pathSample;
 
         @Override
         public void setup(final Reducer.Context context) throws IOException, InterruptedException {
             this.vertex = new FaunusVertex(context.getConfiguration().getBoolean(FaunusCompiler.PATH_ENABLED, false));
+            this.pathSpillOver = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_PATH_SPILL_OVER, Tokens.DEFAULT_PATH_SPILL_OVER);
+            this.pathSample = context.getConfiguration().getInt(Tokens.FAUNUS_PIPELINE_PATH_SAMPLE, 0);
         }
 
         @Override
         public void reduce(final LongWritable key, final Iterable<Holder> values, final Reducer<LongWritable, Holder, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            // the vertex holder is sorted first (see TaggedLongWritable), so the path messages are folded straight into it
             this.vertex.reuse(key.get());
+            this.vertex.setPathSpillOver(this.pathSpillOver, context.getConfiguration());
+            this.vertex.setPathSample(this.pathSample);
+            FaunusVertex vertex = this.vertex;
+            boolean first = true;
             for (final Holder holder : values) {
                 final char tag = holder.getTag();
                 if (tag == 'v') {
-                    this.vertex.addAll((FaunusVertex) holder.get());
+                    if (first) {
+                        vertex = (FaunusVertex) holder.get();
+                        vertex.setPathSpillOver(this.pathSpillOver, context.getConfiguration());
+                        vertex.setPathSample(this.pathSample);
+                    } else {
+                        vertex.addAll((FaunusVertex) holder.get());
+                        holder.get().clearPaths();
+                    }
                 } else if (tag == 'p') {
-                    this.vertex.getPaths(holder.get(), true);
+                    vertex.getPaths(holder.get(), true);
+                    holder.get().clearPaths();
                 } else {
-                    this.vertex.getPaths(holder.get(), false);
+                    vertex.getPaths(holder.get(), false);
+                    holder.get().clearPaths();
                 }
+                first = false;
             }
-            context.write(NullWritable.get(), this.vertex);
+            context.write(NullWritable.get(), vertex);
+            // the spilled runs of the vertex are not needed once it is written
+            vertex.clearPaths();
         }
     }
 }
\ No newline at end of file
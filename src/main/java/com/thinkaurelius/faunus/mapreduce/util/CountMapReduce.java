@@ -3,6 +3,7 @@ package com.thinkaurelius.faunus.mapreduce.util;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.SequenceMapper;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Element;
@@ -33,7 +34,7 @@ public class CountMapReduce {
         return configuration;
     }
 
-    public static class Map extends Mapper<NullWritable, FaunusVertex, NullWritable, LongWritable> {
+    public static class Map extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, LongWritable> {
 
         private boolean isVertex;
         private final LongWritable longWritable = new LongWritable();
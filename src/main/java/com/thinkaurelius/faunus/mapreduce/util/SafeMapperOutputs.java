@@ -2,6 +2,8 @@ package com.thinkaurelius.faunus.mapreduce.util;
 
 import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.LocalRunner;
+import com.thinkaurelius.faunus.mapreduce.MapSequence;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
@@ -16,22 +18,35 @@ public class SafeMapperOutputs {
     private final MultipleOutputs outputs;
     private final Mapper.Context context;
     private final boolean testing;
+    private final LocalRunner.RecordBuffer graph;
+    // the threads of a multi-threaded map task share the outputs of the task
+    private final boolean shared;
 
     public SafeMapperOutputs(final Mapper.Context context) {
         this.context = context;
-        this.outputs = new MultipleOutputs(this.context);
+        final MultipleOutputs sharedOutputs = MapSequence.getSharedOutputs(this.context);
+        this.shared = null != sharedOutputs;
+        this.outputs = this.shared ? sharedOutputs : new MultipleOutputs(this.context);
         this.testing = this.context.getConfiguration().getBoolean(FaunusCompiler.TESTING, false);
+        this.graph = LocalRunner.getGraphBuffer(this.context);
     }
 
     public void write(final String type, final Writable key, final Writable value) throws IOException, InterruptedException {
         if (this.testing) {
             if (type.equals(Tokens.SIDEEFFECT))
                 this.context.write(key, value);
-        } else
-            this.outputs.write(type, key, value);
+        } else {
+            synchronized (this.outputs) {
+                if (null != this.graph && type.equals(Tokens.GRAPH))
+                    this.graph.append(key, value);
+                else
+                    this.outputs.write(type, key, value);
+            }
+        }
     }
 
     public void close() throws IOException, InterruptedException {
-        this.outputs.close();
+        if (!this.shared)
+            this.outputs.close();
     }
 }
@@ -2,6 +2,7 @@ package com.thinkaurelius.faunus.mapreduce.util;
 
 import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
+import com.thinkaurelius.faunus.mapreduce.LocalRunner;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
@@ -16,18 +17,22 @@ public class SafeReducerOutputs {
     private final MultipleOutputs outputs;
     private final Reducer.Context context;
     private final boolean testing;
+    private final LocalRunner.RecordBuffer graph;
 
     public SafeReducerOutputs(final Reducer.Context context) {
         this.context = context;
         this.outputs = new MultipleOutputs(this.context);
         this.testing = this.context.getConfiguration().getBoolean(FaunusCompiler.TESTING, false);
+        this.graph = LocalRunner.getGraphBuffer(this.context);
     }
 
     public void write(final String type, final Writable key, final Writable value) throws IOException, InterruptedException {
         if (this.testing) {
             if (type.equals(Tokens.SIDEEFFECT))
                 this.context.write(key, value);
-        } else
+        } else if (null != this.graph && type.equals(Tokens.GRAPH))
+            this.graph.append(key, value);
+        else
             this.outputs.write(type, key, value);
     }
 
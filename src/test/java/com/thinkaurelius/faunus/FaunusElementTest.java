@@ -1,12 +1,14 @@
 package com.thinkaurelius.faunus;
 
 import junit.framework.TestCase;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.WritableUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -152,4 +154,240 @@ public class FaunusElementTest extends TestCase {
         assertEquals(new HashSet(path2).size(), 1);
     }
 
+    public void testPathAppend() {
+        List<FaunusElement.MicroElement> path = (List) Arrays.asList(new FaunusVertex.MicroVertex(1l), new FaunusEdge.MicroEdge(5l));
+        FaunusElement.MicroPath path1 = FaunusElement.MicroPath.append(path, new FaunusVertex.MicroVertex(2l));
+        FaunusElement.MicroPath path2 = FaunusElement.MicroPath.append(path1, new FaunusEdge.MicroEdge(6l));
+        assertEquals(path.size(), 2);
+        assertEquals(path1.size(), 3);
+        assertEquals(path2.size(), 4);
+        assertEquals(path2.subList(0, 3), path1);
+        assertEquals(path2.get(0).getId(), 1l);
+        assertTrue(path2.get(1) instanceof FaunusEdge.MicroEdge);
+        assertEquals(path2.get(3).getId(), 6l);
+        assertEquals(path2.toString(), "[v[1], e[5], v[2], e[6]]");
+        assertSame(path2.getPrefix(3), path1);
+        try {
+            path2.get(4);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            assertTrue(true);
+        }
+    }
+
+    public void testPathSerialization() throws IOException {
+        FaunusVertex vertex1 = new FaunusVertex(10);
+        vertex1.enablePath(true);
+        FaunusElement.MicroPath prefix = FaunusElement.MicroPath.append((List) Arrays.asList(new FaunusVertex.MicroVertex(1l), new FaunusEdge.MicroEdge(5l)), new FaunusVertex.MicroVertex(2l));
+        for (long id = 20; id < 30; id++) {
+            vertex1.addPath(FaunusElement.MicroPath.append(prefix, new FaunusEdge.MicroEdge(id)), true);
+        }
+        vertex1.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(3l)), true);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes));
+        FaunusVertex vertex2 = new FaunusVertex(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(vertex2.pathCount(), 11);
+        assertEquals(vertex2.getPaths(), vertex1.getPaths());
+        // the paths that are read share their common prefix
+        FaunusElement.MicroPath path1 = (FaunusElement.MicroPath) vertex2.getPaths().get(0);
+        FaunusElement.MicroPath path2 = (FaunusElement.MicroPath) vertex2.getPaths().get(9);
+        assertSame(path1.getPrefix(3), path2.getPrefix(3));
+        assertEquals(vertex2.getPaths().get(10).toString(), "[v[3], v[10]]");
+
+        // each path but the first only writes the edge it does not share and the vertex (2 bytes of lengths, 1 byte of types, 2 vlongs and its multiplicity)
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        FaunusVertex vertex3 = new FaunusVertex(10);
+        vertex3.enablePath(true);
+        vertex3.write(new DataOutputStream(empty));
+        assertTrue(bytes.size() - empty.size() < 11 * 6 + 10);
+    }
+
+    public void testRetainedPath() throws IOException {
+        // only the elements at positions 0 and 2 are retained
+        FaunusElement.MicroPath path = FaunusElement.MicroPath.start(new FaunusVertex.MicroVertex(1l), 5l);
+        path = FaunusElement.MicroPath.append(path, new FaunusEdge.MicroEdge(5l));
+        path = FaunusElement.MicroPath.append(path, new FaunusVertex.MicroVertex(2l));
+        path = FaunusElement.MicroPath.append(path, new FaunusEdge.MicroEdge(6l));
+        path = FaunusElement.MicroPath.append(path, new FaunusVertex.MicroVertex(3l));
+        assertEquals(path.size(), 5);
+        assertEquals(path.get(0).getId(), 1l);
+        assertEquals(path.get(2).getId(), 2l);
+        assertEquals(path.getRetained().length, 2);
+        assertEquals(path.toString(), "[v[1], null, v[2], null, null]");
+        try {
+            path.get(1);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(true);
+        }
+
+        FaunusVertex vertex1 = new FaunusVertex(10);
+        vertex1.enablePath(true);
+        vertex1.addPath(path, false);
+        vertex1.addPath(FaunusElement.MicroPath.append(path.getPrefix(4), new FaunusVertex.MicroVertex(4l)), false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes));
+        FaunusVertex vertex2 = new FaunusVertex(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(vertex2.pathCount(), 2);
+        assertEquals(vertex2.getPaths(), vertex1.getPaths());
+        assertEquals(vertex2.getPaths().get(1).get(2).getId(), 2l);
+        assertEquals(((FaunusElement.MicroPath) vertex2.getPaths().get(1)).getRetain(), 5l);
+    }
+
+    public void testPathMultiplicity() throws IOException {
+        FaunusVertex vertex1 = new FaunusVertex(10);
+        vertex1.enablePath(true);
+        FaunusElement.MicroPath prefix = FaunusElement.MicroPath.append((List) Arrays.asList(new FaunusVertex.MicroVertex(1l)), new FaunusEdge.MicroEdge(5l));
+        for (int i = 0; i < 3; i++) {
+            vertex1.addPath(prefix, true);
+        }
+        vertex1.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(1l), new FaunusEdge.MicroEdge(5l), new FaunusVertex.MicroVertex(10l)), false);
+        vertex1.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(2l), new FaunusVertex.MicroVertex(10l)), 2l, false);
+        assertEquals(vertex1.getPaths().size(), 2);
+        assertEquals(vertex1.getPaths().getMultiplicity(0), 4l);
+        assertEquals(vertex1.getPaths().getMultiplicity(1), 2l);
+        assertEquals(vertex1.pathCount(), 6l);
+
+        // the multiplicities are kept as paths are extended and merged
+        FaunusEdge edge = new FaunusEdge(11l, 10l, 12l, "knows");
+        edge.enablePath(true);
+        edge.getPaths(vertex1, true);
+        edge.getPaths(vertex1, true);
+        assertEquals(edge.getPaths().size(), 2);
+        assertEquals(edge.getPaths().getMultiplicity(0), 8l);
+        assertEquals(edge.pathCount(), 12l);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes));
+        FaunusVertex vertex2 = new FaunusVertex(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(vertex2.getPaths(), vertex1.getPaths());
+        assertEquals(vertex2.getPaths().getMultiplicity(0), 4l);
+        assertEquals(vertex2.pathCount(), 6l);
+
+        Iterator<List<FaunusElement.MicroElement>> itty = vertex2.getPaths().iterator();
+        itty.next();
+        itty.remove();
+        assertEquals(vertex2.pathCount(), 2l);
+        vertex2.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(2l), new FaunusVertex.MicroVertex(10l)), false);
+        assertEquals(vertex2.getPaths().size(), 1);
+        assertEquals(vertex2.pathCount(), 3l);
+    }
+
+    public void testPathSpill() throws IOException {
+        FaunusVertex vertex1 = new FaunusVertex(10);
+        vertex1.enablePath(true);
+        vertex1.setPathSpillOver(4);
+        FaunusElement.MicroPaths paths = new FaunusElement.MicroPaths();
+        for (long id = 0; id < 10; id++) {
+            List<FaunusElement.MicroElement> path = (List) Arrays.asList(new FaunusVertex.MicroVertex(id % 7), new FaunusEdge.MicroEdge(5l));
+            vertex1.addPath(path, true);
+            paths.add(FaunusElement.MicroPath.append(path, new FaunusVertex.MicroVertex(10l)));
+        }
+        assertTrue(vertex1.getPaths().isSpilled());
+        assertEquals(vertex1.pathCount(), 10l);
+
+        // the spilled paths are streamed into the written vertex
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes));
+        assertTrue(vertex1.getPaths().isSpilled());
+        FaunusVertex vertex2 = new FaunusVertex(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(vertex2.pathCount(), 10l);
+        assertEquals(new HashSet(vertex2.getPaths()), new HashSet(paths));
+
+        // a vertex read with a spill budget spills as it reads its paths
+        Configuration configuration = new Configuration();
+        configuration.setInt(Tokens.FAUNUS_PIPELINE_PATH_SPILL_OVER, 4);
+        FaunusVertex vertex3 = new FaunusVertex();
+        vertex3.setConf(configuration);
+        vertex3.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(vertex3.getPaths().isSpilled());
+        assertEquals(vertex3.pathCount(), 10l);
+
+        // the spilled paths are streamed into the element they are handed to, which spills as well
+        FaunusEdge edge = new FaunusEdge(11l, 10l, 12l, "knows");
+        edge.enablePath(true);
+        edge.getPaths(vertex3, true);
+        assertTrue(vertex3.getPaths().isSpilled());
+        assertTrue(edge.getPaths().isSpilled());
+        assertEquals(edge.pathCount(), 10l);
+        assertEquals(edge.getPaths().size(), 7);
+
+        // accessing the paths reads the spilled paths back, but more paths spill again
+        assertEquals(new HashSet(vertex1.getPaths()), new HashSet(paths));
+        assertFalse(vertex1.getPaths().isSpilled());
+        assertEquals(vertex1.pathCount(), 10l);
+        vertex1.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(8l), new FaunusVertex.MicroVertex(10l)), false);
+        assertTrue(vertex1.getPaths().isSpilled());
+        assertEquals(vertex1.pathCount(), 11l);
+    }
+
+    public void testPathSpillToLocalDirs() throws IOException {
+        FaunusVertex vertex1 = new FaunusVertex(10);
+        vertex1.enablePath(true);
+        for (long id = 0; id < 10; id++) {
+            vertex1.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(id), new FaunusVertex.MicroVertex(10l)), false);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes));
+
+        File localDir = File.createTempFile("faunus", "local");
+        localDir.delete();
+        localDir.mkdirs();
+        Configuration configuration = new Configuration();
+        configuration.setInt(Tokens.FAUNUS_PIPELINE_PATH_SPILL_OVER, 4);
+        configuration.set("mapred.local.dir", localDir.getAbsolutePath());
+        FaunusVertex vertex2 = new FaunusVertex();
+        vertex2.setConf(configuration);
+
+        // the runs are written to the local directories of the task
+        vertex2.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(vertex2.getPaths().isSpilled());
+        File runs = new File(localDir, "faunus-paths");
+        assertEquals(runs.list().length, 2);
+
+        // the runs of the paths read over are deleted
+        vertex2.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(vertex2.pathCount(), 10l);
+        assertEquals(runs.list().length, 2);
+
+        vertex2.clearPaths();
+        assertEquals(runs.list().length, 0);
+        runs.delete();
+        localDir.delete();
+    }
+
+    public void testPathSample() throws IOException {
+        FaunusVertex vertex1 = new FaunusVertex(10);
+        vertex1.enablePath(true);
+        vertex1.setPathSample(3);
+        for (long id = 0; id < 20; id++) {
+            vertex1.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(id), new FaunusVertex.MicroVertex(10l)), 2l, false);
+        }
+        assertEquals(vertex1.getPaths().size(), 3);
+        assertTrue(vertex1.getPaths().isSampled());
+        assertEquals(vertex1.getPaths().unsampledCount(), 34l);
+        assertEquals(vertex1.pathCount(), 40l);
+
+        // the unsampled traversers are written and follow the paths as they are extended
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes));
+        FaunusVertex vertex2 = new FaunusVertex(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(vertex2.getPaths(), vertex1.getPaths());
+        assertEquals(vertex2.getPaths().unsampledCount(), 34l);
+        assertEquals(vertex2.pathCount(), 40l);
+        FaunusEdge edge = new FaunusEdge(11l, 10l, 12l, "knows");
+        edge.enablePath(true);
+        edge.getPaths(vertex2, true);
+        assertEquals(edge.getPaths().size(), 3);
+        assertEquals(edge.pathCount(), 40l);
+
+        // removing a sampled path removes the same share of the unsampled traversers
+        Iterator<List<FaunusElement.MicroElement>> itty = vertex2.getPaths().iterator();
+        itty.next();
+        itty.remove();
+        assertEquals(vertex2.getPaths().size(), 2);
+        assertEquals(vertex2.getPaths().unsampledCount(), 23l);
+        assertEquals(vertex2.pathCount(), 27l);
+    }
 }
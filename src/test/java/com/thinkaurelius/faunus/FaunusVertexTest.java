@@ -16,9 +16,11 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.tinkerpop.blueprints.Direction.*;
 
@@ -222,6 +224,323 @@ public class FaunusVertexTest extends BaseTest {
         assertEquals(asList(vertex2.getEdges(BOTH)).size(), 1);
     }
 
+    public void testPrimitiveAdjacencySerialization() throws IOException {
+        FaunusVertex vertex1 = new FaunusVertex(10);
+        vertex1.addEdge(OUT, new FaunusEdge(vertex1.getIdAsLong(), 2, "knows"));
+        vertex1.addEdge(OUT, new FaunusEdge(vertex1.getIdAsLong(), 3, "knows")).setProperty("weight", 0.5d);
+        vertex1.addEdge(IN, new FaunusEdge(4, vertex1.getIdAsLong(), "created"));
+        vertex1.setProperty("name", "marko");
+
+        ByteArrayOutputStream bytes1 = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes1));
+
+        final Configuration configuration = new Configuration();
+        configuration.setBoolean(Tokens.FAUNUS_VERTEX_PRIMITIVE_ADJACENCY, true);
+        FaunusVertex vertex2 = new FaunusVertex();
+        vertex2.setConf(configuration);
+        assertTrue(vertex2.isPrimitiveAdjacency());
+        vertex2.readFields(new DataInputStream(new ByteArrayInputStream(bytes1.toByteArray())));
+
+        ByteArrayOutputStream bytes2 = new ByteArrayOutputStream();
+        vertex2.write(new DataOutputStream(bytes2));
+        assertTrue(Arrays.equals(bytes1.toByteArray(), bytes2.toByteArray()));
+
+        assertEquals(vertex2.getProperty("name"), "marko");
+        assertEquals(asList(vertex2.getEdges(OUT, "knows")).size(), 2);
+        assertEquals(asList(vertex2.getEdges(IN)).size(), 1);
+        int weighted = 0;
+        for (final Edge edge : vertex2.getEdges(OUT)) {
+            assertEquals(edge.getVertex(OUT).getId(), 10l);
+            assertEquals(edge.getLabel(), "knows");
+            if (edge.getVertex(IN).getId().equals(3l)) {
+                assertEquals(edge.getProperty("weight"), 0.5d);
+                weighted++;
+            } else {
+                assertEquals(edge.getVertex(IN).getId(), 2l);
+                assertNull(edge.getProperty("weight"));
+            }
+        }
+        assertEquals(weighted, 1);
+        final Edge created = vertex2.getEdges(IN).iterator().next();
+        assertEquals(created.getVertex(OUT).getId(), 4l);
+        assertEquals(created.getVertex(IN).getId(), 10l);
+
+        // mutations to materialized edges are retained
+        created.setProperty("weight", 1.0d);
+        assertEquals(vertex2.getEdges(IN).iterator().next().getProperty("weight"), 1.0d);
+
+        vertex2.removeEdgesToFrom(new HashSet<Long>(Arrays.asList(2l)));
+        assertEquals(asList(vertex2.getEdges(OUT)).size(), 1);
+        assertEquals(vertex2.getEdges(OUT).iterator().next().getVertex(IN).getId(), 3l);
+
+        final Iterator<Edge> itty = vertex2.getEdges(BOTH).iterator();
+        itty.next();
+        itty.remove();
+        assertEquals(asList(vertex2.getEdges(BOTH)).size(), 1);
+
+        FaunusVertex vertex3 = new FaunusVertex(10l);
+        vertex3.addAll(vertex2);
+        vertex3.addEdge(OUT, "knows", 5l);
+        assertEquals(asList(vertex3.getEdges(BOTH)).size(), 2);
+        vertex3.enablePath(true);
+        for (final Edge edge : vertex3.getEdges(BOTH)) {
+            assertFalse(((FaunusEdge) edge).hasPaths());
+        }
+    }
+
+    public void testLazyDeserialization() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.setBoolean(Tokens.FAUNUS_VERTEX_LAZY_DESERIALIZATION, true);
+
+        for (final FaunusVertex vertex1 : generateGraph(ExampleGraph.GRAPH_OF_THE_GODS_2, new Configuration()).values()) {
+            ByteArrayOutputStream bytes1 = new ByteArrayOutputStream();
+            vertex1.write(new DataOutputStream(bytes1));
+
+            FaunusVertex vertex2 = new FaunusVertex();
+            vertex2.setConf(configuration);
+            assertTrue(vertex2.isLazyDeserialization());
+            vertex2.readFields(new DataInputStream(new ByteArrayInputStream(bytes1.toByteArray())));
+            assertEquals(vertex2.getIdAsLong(), vertex1.getIdAsLong());
+            assertFalse(vertex2.hasPaths());
+
+            // nothing accessed, so the vertex is written back out unchanged
+            ByteArrayOutputStream bytes2 = new ByteArrayOutputStream();
+            vertex2.write(new DataOutputStream(bytes2));
+            assertTrue(Arrays.equals(bytes1.toByteArray(), bytes2.toByteArray()));
+
+            assertEquals(vertex2.getEdgeLabels(BOTH), vertex1.getEdgeLabels(BOTH));
+            assertEquals(vertex2.getEdgeLabels(OUT), vertex1.getEdgeLabels(OUT));
+            for (final String label : vertex1.getEdgeLabels(OUT)) {
+                assertEquals(asList(vertex2.getEdges(OUT, label)).size(), asList(vertex1.getEdges(OUT, label)).size());
+            }
+            assertEquals(vertex2.getProperties(), vertex1.getProperties());
+
+            // partially decoded vertices are still written out in full
+            ByteArrayOutputStream bytes3 = new ByteArrayOutputStream();
+            vertex2.write(new DataOutputStream(bytes3));
+            FaunusVertex vertex3 = new FaunusVertex(new DataInputStream(new ByteArrayInputStream(bytes3.toByteArray())));
+            assertEquals(vertex3.getProperties(), vertex1.getProperties());
+            assertEquals(asList(vertex3.getEdges(BOTH)).size(), asList(vertex1.getEdges(BOTH)).size());
+            assertEquals(asList(vertex3.getEdges(IN)).size(), asList(vertex1.getEdges(IN)).size());
+        }
+
+        FaunusVertex vertex1 = new FaunusVertex(1l);
+        vertex1.addEdge(OUT, new FaunusEdge(1l, 2l, "knows"));
+        vertex1.addEdge(OUT, new FaunusEdge(1l, 3l, "created")).setProperty("weight", 0.4d);
+        vertex1.addEdge(IN, new FaunusEdge(4l, 1l, "knows"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes));
+
+        FaunusVertex vertex2 = new FaunusVertex();
+        vertex2.setLazyDeserialization(true);
+        vertex2.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        vertex2.removeEdges(Tokens.Action.DROP, OUT, "knows");
+        assertEquals(vertex2.getEdgeLabels(OUT).size(), 1);
+        assertEquals(vertex2.getEdges(OUT).iterator().next().getProperty("weight"), 0.4d);
+
+        FaunusVertex vertex3 = new FaunusVertex(1l);
+        vertex3.addAll(vertex2);
+        vertex3.addEdge(IN, "knows", 5l);
+        assertEquals(asList(vertex3.getEdges(IN, "knows")).size(), 2);
+        assertEquals(asList(vertex3.getEdges(OUT)).size(), 1);
+        assertEquals(asList(vertex2.getEdges(IN)).size(), 1);
+    }
+
+    public void testLazyDeserializationWithPaths() throws Exception {
+        FaunusVertex vertex1 = new FaunusVertex(1l);
+        vertex1.enablePath(true);
+        FaunusEdge edge1 = new FaunusEdge(1l, 2l, "knows");
+        edge1.enablePath(true);
+        edge1.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(1l), new FaunusEdge.MicroEdge(7l)), false);
+        edge1.addPath((List) Arrays.asList(new FaunusVertex.MicroVertex(1l), new FaunusEdge.MicroEdge(8l)), false);
+        vertex1.addEdge(OUT, edge1);
+        ByteArrayOutputStream bytes1 = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes1));
+
+        FaunusVertex vertex2 = new FaunusVertex();
+        vertex2.setLazyDeserialization(true);
+        vertex2.readFields(new DataInputStream(new ByteArrayInputStream(bytes1.toByteArray())));
+        ByteArrayOutputStream bytes2 = new ByteArrayOutputStream();
+        vertex2.write(new DataOutputStream(bytes2));
+        assertTrue(Arrays.equals(bytes1.toByteArray(), bytes2.toByteArray()));
+
+        FaunusEdge edge2 = (FaunusEdge) vertex2.getEdges(OUT, "knows").iterator().next();
+        assertEquals(edge2.pathCount(), 2);
+        assertEquals(edge2.getPaths(), edge1.getPaths());
+    }
+
+    public void testTypeDictionarySerialization() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.set(Tokens.FAUNUS_GRAPH_DICTIONARY, "name,type,age,father,mother,brother,battled,lives,pet");
+        final Configuration lazyConfiguration = new Configuration(configuration);
+        lazyConfiguration.setBoolean(Tokens.FAUNUS_VERTEX_LAZY_DESERIALIZATION, true);
+
+        for (final FaunusVertex vertex1 : generateGraph(ExampleGraph.GRAPH_OF_THE_GODS_2, new Configuration()).values()) {
+            ByteArrayOutputStream plainBytes = new ByteArrayOutputStream();
+            vertex1.write(new DataOutputStream(plainBytes));
+
+            // plain data is still readable when a dictionary is configured
+            FaunusVertex vertex2 = new FaunusVertex();
+            vertex2.setConf(configuration);
+            assertNotNull(vertex2.getTypeDictionary());
+            vertex2.readFields(new DataInputStream(new ByteArrayInputStream(plainBytes.toByteArray())));
+            assertEquals(vertex2.getProperties(), vertex1.getProperties());
+
+            ByteArrayOutputStream encodedBytes = new ByteArrayOutputStream();
+            vertex2.write(new DataOutputStream(encodedBytes));
+            assertTrue(encodedBytes.size() < plainBytes.size());
+
+            for (final Configuration conf : Arrays.asList(configuration, lazyConfiguration)) {
+                FaunusVertex vertex3 = new FaunusVertex();
+                vertex3.setConf(conf);
+                vertex3.readFields(new DataInputStream(new ByteArrayInputStream(encodedBytes.toByteArray())));
+                assertEquals(vertex3.getIdAsLong(), vertex1.getIdAsLong());
+                assertEquals(vertex3.getProperties(), vertex1.getProperties());
+                assertEquals(vertex3.getEdgeLabels(BOTH), vertex1.getEdgeLabels(BOTH));
+                for (final Direction direction : Arrays.asList(OUT, IN)) {
+                    for (final String label : vertex1.getEdgeLabels(direction)) {
+                        assertEquals(asList(vertex3.getEdges(direction, label)).size(), asList(vertex1.getEdges(direction, label)).size());
+                    }
+                }
+            }
+
+            try {
+                new FaunusVertex(new DataInputStream(new ByteArrayInputStream(encodedBytes.toByteArray())));
+                assertTrue(false);
+            } catch (IOException e) {
+                assertTrue(true);
+            }
+        }
+
+        // types that are not in the dictionary are written as strings
+        FaunusVertex vertex1 = new FaunusVertex(1l);
+        vertex1.setConf(configuration);
+        vertex1.setProperty("name", "marko");
+        vertex1.setProperty("location", "santa fe");
+        vertex1.addEdge(OUT, new FaunusEdge(1l, 2l, "knows")).setProperty("since", 2010);
+        vertex1.addEdge(OUT, new FaunusEdge(1l, 3l, "father"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vertex1.write(new DataOutputStream(bytes));
+
+        FaunusVertex vertex2 = new FaunusVertex();
+        vertex2.setConf(configuration);
+        vertex2.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(vertex2.getProperty("name"), "marko");
+        assertEquals(vertex2.getProperty("location"), "santa fe");
+        assertEquals(vertex2.getEdges(OUT, "knows").iterator().next().getProperty("since"), 2010);
+        assertEquals(asList(vertex2.getEdges(OUT, "father")).size(), 1);
+    }
+
+    public void testSortedAdjacencySerialization() throws Exception {
+        for (final boolean primitive : Arrays.asList(false, true)) {
+            final Configuration configuration = new Configuration();
+            configuration.setBoolean(Tokens.FAUNUS_VERTEX_SORTED_ADJACENCY, true);
+            configuration.setBoolean(Tokens.FAUNUS_VERTEX_PRIMITIVE_ADJACENCY, primitive);
+            final Configuration lazyConfiguration = new Configuration(configuration);
+            lazyConfiguration.setBoolean(Tokens.FAUNUS_VERTEX_LAZY_DESERIALIZATION, true);
+
+            for (final FaunusVertex vertex1 : generateGraph(ExampleGraph.GRAPH_OF_THE_GODS_2, new Configuration()).values()) {
+                FaunusVertex vertex2 = new FaunusVertex();
+                vertex2.setConf(configuration);
+                vertex2.addAll(vertex1);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                vertex2.write(new DataOutputStream(bytes));
+
+                // the encoding is recorded in the vertex, so the default configuration can read it
+                for (final Configuration conf : Arrays.asList(new Configuration(), configuration, lazyConfiguration)) {
+                    FaunusVertex vertex3 = new FaunusVertex();
+                    vertex3.setConf(conf);
+                    vertex3.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+                    assertEquals(vertex3.getIdAsLong(), vertex1.getIdAsLong());
+                    assertEquals(vertex3.getProperties(), vertex1.getProperties());
+                    for (final Direction direction : Arrays.asList(OUT, IN)) {
+                        for (final String label : vertex1.getEdgeLabels(direction)) {
+                            final Set<Long> ids1 = new HashSet<Long>();
+                            for (final Edge edge : vertex1.getEdges(direction, label)) {
+                                ids1.add(((FaunusEdge) edge).getVertexId(direction.opposite()));
+                                ids1.add(((FaunusEdge) edge).getIdAsLong());
+                            }
+                            final Set<Long> ids3 = new HashSet<Long>();
+                            for (final Edge edge : vertex3.getEdges(direction, label)) {
+                                ids3.add(((FaunusEdge) edge).getVertexId(direction.opposite()));
+                                ids3.add(((FaunusEdge) edge).getIdAsLong());
+                                assertEquals(((FaunusEdge) edge).getVertexId(direction), vertex1.getIdAsLong());
+                            }
+                            assertEquals(ids1, ids3);
+                        }
+                    }
+                }
+            }
+
+            FaunusVertex vertex1 = new FaunusVertex(1l);
+            vertex1.setConf(configuration);
+            for (long i = 1000; i > 0; i--) {
+                vertex1.addEdge(OUT, new FaunusEdge(1000000000l + i, 1l, 2000000000l + (i * 10), "knows"));
+            }
+            vertex1.addEdge(OUT, new FaunusEdge(5l, 1l, 2000000000l, "knows")).setProperty("weight", 0.5d);
+            ByteArrayOutputStream sortedBytes = new ByteArrayOutputStream();
+            vertex1.write(new DataOutputStream(sortedBytes));
+            vertex1.setSortedAdjacency(false);
+            ByteArrayOutputStream plainBytes = new ByteArrayOutputStream();
+            vertex1.write(new DataOutputStream(plainBytes));
+            assertTrue(sortedBytes.size() < plainBytes.size());
+
+            FaunusVertex vertex2 = new FaunusVertex(new DataInputStream(new ByteArrayInputStream(sortedBytes.toByteArray())));
+            assertEquals(asList(vertex2.getEdges(OUT, "knows")).size(), 1001);
+            long previous = -1l;
+            int weighted = 0;
+            for (final Edge edge : vertex2.getEdges(OUT)) {
+                final FaunusEdge faunusEdge = (FaunusEdge) edge;
+                assertTrue(faunusEdge.getVertexId(IN) > previous);
+                previous = faunusEdge.getVertexId(IN);
+                assertEquals(faunusEdge.getVertexId(OUT), 1l);
+                if (null != faunusEdge.getProperty("weight")) {
+                    assertEquals(faunusEdge.getIdAsLong(), 5l);
+                    weighted++;
+                } else
+                    assertEquals(faunusEdge.getIdAsLong(), 1000000000l + ((faunusEdge.getVertexId(IN) - 2000000000l) / 10));
+            }
+            assertEquals(weighted, 1);
+        }
+    }
+
+    public void testSortedAdjacencyWithLargeIds() throws Exception {
+        final long[] vertexIds = new long[]{Long.MIN_VALUE, -5l, 1l, (1l << 62) - 1l, 1l << 62, Long.MAX_VALUE - 1l, Long.MAX_VALUE, Long.MAX_VALUE};
+        for (final boolean primitive : Arrays.asList(false, true)) {
+            final Configuration configuration = new Configuration();
+            configuration.setBoolean(Tokens.FAUNUS_VERTEX_SORTED_ADJACENCY, true);
+            configuration.setBoolean(Tokens.FAUNUS_VERTEX_PRIMITIVE_ADJACENCY, primitive);
+            final Configuration lazyConfiguration = new Configuration(configuration);
+            lazyConfiguration.setBoolean(Tokens.FAUNUS_VERTEX_LAZY_DESERIALIZATION, true);
+
+            FaunusVertex vertex1 = new FaunusVertex(1l);
+            vertex1.setConf(configuration);
+            final Set<String> edges1 = new HashSet<String>();
+            for (int i = 0; i < vertexIds.length; i++) {
+                vertex1.addEdge(OUT, new FaunusEdge(i, 1l, vertexIds[i], "knows"));
+                edges1.add(i + ":" + vertexIds[i]);
+            }
+            vertex1.addEdge(OUT, new FaunusEdge(100l, 1l, Long.MAX_VALUE, "knows")).setProperty("weight", 0.5d);
+            edges1.add(100l + ":" + Long.MAX_VALUE);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            vertex1.write(new DataOutputStream(bytes));
+
+            for (final Configuration conf : Arrays.asList(new Configuration(), configuration, lazyConfiguration)) {
+                FaunusVertex vertex2 = new FaunusVertex();
+                vertex2.setConf(conf);
+                vertex2.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+                final Set<String> edges2 = new HashSet<String>();
+                for (final Edge edge : vertex2.getEdges(OUT, "knows")) {
+                    final FaunusEdge faunusEdge = (FaunusEdge) edge;
+                    edges2.add(faunusEdge.getIdAsLong() + ":" + faunusEdge.getVertexId(IN));
+                    if (faunusEdge.getIdAsLong() == 100l)
+                        assertEquals(faunusEdge.<Double>getProperty("weight"), Double.valueOf(0.5d));
+                }
+                assertEquals(edges2, edges1);
+            }
+        }
+    }
+
     public void testRemovingEdges() {
         FaunusVertex vertex = new FaunusVertex(1l);
         vertex.setProperty("name", "marko");
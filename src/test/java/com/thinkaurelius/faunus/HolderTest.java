@@ -1,5 +1,6 @@
 package com.thinkaurelius.faunus;
 
+import com.tinkerpop.blueprints.Direction;
 import junit.framework.TestCase;
 import org.apache.hadoop.io.WritableComparator;
 
@@ -28,6 +29,24 @@ public class HolderTest extends TestCase {
         assertEquals(0, WritableComparator.get(Holder.class).compare(bytes1.toByteArray(), 0, bytes1.size(), bytes1.toByteArray(), 0, bytes1.size()));
     }
 
+    public void testRawComparisonWithOffsets() throws IOException {
+        Holder<FaunusVertex> holder1 = new Holder<FaunusVertex>('v', new FaunusVertex(1000l));
+        Holder<FaunusVertex> holder2 = new Holder<FaunusVertex>('p', new FaunusVertex(5l));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(Long.MAX_VALUE);
+        holder1.write(out);
+        final int start2 = bytes.size();
+        holder2.write(out);
+        final byte[] data = bytes.toByteArray();
+
+        assertEquals(1, WritableComparator.get(Holder.class).compare(data, 8, start2 - 8, data, start2, data.length - start2));
+        assertEquals(-1, WritableComparator.get(Holder.class).compare(data, start2, data.length - start2, data, 8, start2 - 8));
+        assertEquals(1, holder1.compareTo(holder2));
+        assertEquals(1, WritableComparator.get(Holder.class).compare(holder1, holder2));
+    }
+
     public void testSerialization1() throws IOException {
         FaunusVertex vertex = new FaunusVertex(1l);
         Holder<FaunusVertex> holder1 = new Holder<FaunusVertex>('a', vertex);
@@ -46,6 +65,44 @@ public class HolderTest extends TestCase {
         assertEquals(holder1.compareTo(holder2), 0);
     }
 
+    public void testSerialization2() throws IOException {
+        FaunusEdge edge = new FaunusEdge(5l, 1l, 2l, "knows");
+        edge.incrPath(3);
+        Holder<FaunusEdge> holder1 = new Holder<FaunusEdge>('p', edge);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        holder1.write(new DataOutputStream(bytes));
+        Holder<FaunusEdge> holder2 = new Holder<FaunusEdge>(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(holder1, holder2);
+        assertTrue(holder2.get() instanceof FaunusEdge);
+        assertEquals(holder2.get().getLabel(), "knows");
+        assertEquals(holder2.get().pathCount(), 3);
+        assertEquals(holder2.getTag(), 'p');
+    }
+
+    public void testSerializedSize() throws IOException {
+        FaunusVertex vertex = new FaunusVertex(1l);
+        vertex.setProperty("name", "marko");
+        vertex.addEdge(Direction.OUT, new FaunusEdge(5l, 1l, 2l, "knows"));
+
+        ByteArrayOutputStream element = new ByteArrayOutputStream();
+        vertex.write(new DataOutputStream(element));
+        ByteArrayOutputStream holder = new ByteArrayOutputStream();
+        new Holder<FaunusVertex>('v', vertex).write(new DataOutputStream(holder));
+        // a single byte holds the tag and the class of the element
+        assertEquals(holder.size(), element.size() + 1);
+    }
+
+    public void testNonAsciiTag() {
+        try {
+            new Holder<FaunusVertex>('\u00e9', new FaunusVertex(1l));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(true);
+        }
+    }
+
     /*public void testRawComparator() throws IOException {
         Holder.Comparator comparator = new Holder.Comparator();
         comparator.compare()
@@ -0,0 +1,61 @@
+package com.thinkaurelius.faunus;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Times the sort of serialized TaggedLongWritable keys with the raw-byte comparator and with a comparator that
+ * deserializes both keys before it compares them (as WritableComparator does for keys without a raw comparator).
+ * It is not part of the unit tests: run its main() by hand.
+ */
+public class TaggedLongWritableBenchmark {
+
+    public static void main(final String[] args) throws Exception {
+        final int size = args.length > 0 ? Integer.valueOf(args[0]) : 1000000;
+        final int rounds = args.length > 1 ? Integer.valueOf(args[1]) : 10;
+        final Random random = new Random(123);
+        final DataOutputBuffer buffer = new DataOutputBuffer();
+        final TaggedLongWritable key = new TaggedLongWritable();
+        final int[] starts = new int[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = buffer.getLength();
+            key.set(Math.abs(random.nextLong()) % (size / 10), random.nextInt(5) == 0 ? 'v' : 'p');
+            key.write(buffer);
+        }
+        final int length = buffer.getLength() / size;
+        final byte[] bytes = buffer.getData();
+
+        final WritableComparator raw = WritableComparator.get(TaggedLongWritable.class);
+        final WritableComparator deserializing = new WritableComparator(TaggedLongWritable.class, true) {
+            @Override
+            public int compare(final WritableComparable a, final WritableComparable b) {
+                return raw.compare(a, b);
+            }
+        };
+
+        for (final WritableComparator comparator : Arrays.asList(deserializing, raw)) {
+            long time = 0;
+            for (int round = 0; round < rounds; round++) {
+                final Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = starts[i];
+                }
+                final long startTime = System.nanoTime();
+                Arrays.sort(order, new Comparator<Integer>() {
+                    public int compare(final Integer a, final Integer b) {
+                        return comparator.compare(bytes, a, length, bytes, b, length);
+                    }
+                });
+                // the first half of the rounds warm up the JIT
+                if (round >= rounds / 2)
+                    time = time + (System.nanoTime() - startTime);
+            }
+            System.out.println("Sort of " + size + " keys with the " + (comparator == raw ? "raw-byte" : "deserializing") + " comparator: " + (time / (rounds - rounds / 2) / 1000000) + "ms");
+        }
+    }
+}
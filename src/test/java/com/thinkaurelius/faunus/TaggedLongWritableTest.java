@@ -0,0 +1,129 @@
+package com.thinkaurelius.faunus;
+
+import junit.framework.TestCase;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapreduce.lib.partition.HashPartitioner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+public class TaggedLongWritableTest extends TestCase {
+
+    private static byte[] toBytes(final TaggedLongWritable key) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        key.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static int compare(final WritableComparator comparator, final TaggedLongWritable a, final TaggedLongWritable b) throws IOException {
+        final byte[] bytes1 = toBytes(a);
+        final byte[] bytes2 = toBytes(b);
+        // pad the second key to ensure the start offsets are respected
+        final byte[] padded = new byte[bytes2.length + 5];
+        System.arraycopy(bytes2, 0, padded, 5, bytes2.length);
+        final int raw = comparator.compare(bytes1, 0, bytes1.length, padded, 5, bytes2.length);
+        assertEquals(raw, comparator.compare(a, b));
+        return raw;
+    }
+
+    public void testSerialization() throws IOException {
+        TaggedLongWritable key1 = new TaggedLongWritable(10l, 'p');
+        TaggedLongWritable key2 = new TaggedLongWritable();
+        key2.readFields(new DataInputStream(new ByteArrayInputStream(toBytes(key1))));
+        assertEquals(key2.get(), 10l);
+        assertEquals(key2.getTag(), 'p');
+        assertEquals(key1, key2);
+        assertEquals(key1.hashCode(), new LongWritable(10l).hashCode());
+    }
+
+    public void testSerializedSize() throws IOException {
+        // a fixed-width long and a single byte tag
+        assertEquals(toBytes(new TaggedLongWritable(10l, 'p')).length, 9);
+        assertEquals(toBytes(new TaggedLongWritable(Long.MIN_VALUE, 'v')).length, 9);
+    }
+
+    public void testPartitioner() {
+        final TaggedLongWritable.Partitioner partitioner = new TaggedLongWritable.Partitioner();
+        final HashPartitioner<LongWritable, NullWritable> hashPartitioner = new HashPartitioner<LongWritable, NullWritable>();
+        final Random random = new Random(321);
+        for (int i = 0; i < 1000; i++) {
+            final long id = i < 10 ? i - 5 : random.nextLong();
+            final int partitions = 1 + random.nextInt(20);
+            final int partition = hashPartitioner.getPartition(new LongWritable(id), NullWritable.get(), partitions);
+            assertEquals(partitioner.getPartition(new TaggedLongWritable(id, 'v'), NullWritable.get(), partitions), partition);
+            assertEquals(partitioner.getPartition(new TaggedLongWritable(id, 'p'), NullWritable.get(), partitions), partition);
+            assertEquals(TaggedLongWritable.Partitioner.getPartition(id, partitions), partition);
+        }
+    }
+
+    public void testSortComparator() throws IOException {
+        final WritableComparator comparator = WritableComparator.get(TaggedLongWritable.class);
+        assertTrue(comparator instanceof TaggedLongWritable.Comparator);
+
+        assertEquals(compare(comparator, new TaggedLongWritable(1l, 'p'), new TaggedLongWritable(2l, 'v')), -1);
+        assertEquals(compare(comparator, new TaggedLongWritable(2l, 'v'), new TaggedLongWritable(1l, 'p')), 1);
+        assertEquals(compare(comparator, new TaggedLongWritable(-5l, 'v'), new TaggedLongWritable(3l, 'v')), -1);
+        assertEquals(compare(comparator, new TaggedLongWritable(1l, 'v'), new TaggedLongWritable(1l, 'v')), 0);
+        // the vertex sorts before all other tags of its id
+        for (final char tag : new char[]{'a', 'e', 'k', 'p', 'x', 'z'}) {
+            assertEquals(compare(comparator, new TaggedLongWritable(7l, 'v'), new TaggedLongWritable(7l, tag)), -1);
+            assertEquals(compare(comparator, new TaggedLongWritable(7l, tag), new TaggedLongWritable(7l, 'v')), 1);
+        }
+        assertEquals(compare(comparator, new TaggedLongWritable(7l, 'e'), new TaggedLongWritable(7l, 'p')), -1);
+    }
+
+    public void testGroupingComparator() throws IOException {
+        final WritableComparator comparator = new TaggedLongWritable.GroupingComparator();
+        assertEquals(compare(comparator, new TaggedLongWritable(7l, 'v'), new TaggedLongWritable(7l, 'p')), 0);
+        assertEquals(compare(comparator, new TaggedLongWritable(7l, 'p'), new TaggedLongWritable(8l, 'v')), -1);
+        assertEquals(compare(comparator, new TaggedLongWritable(9l, 'p'), new TaggedLongWritable(8l, 'p')), 1);
+    }
+
+    public void testRawSort() throws IOException {
+        final int size = 10000;
+        final Random random = new Random(123);
+        final DataOutputBuffer buffer = new DataOutputBuffer();
+        final TaggedLongWritable key = new TaggedLongWritable();
+        final int[] starts = new int[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = buffer.getLength();
+            key.set(Math.abs(random.nextLong()) % (size / 10), random.nextInt(5) == 0 ? 'v' : 'p');
+            key.write(buffer);
+        }
+        final int length = buffer.getLength() / size;
+        final byte[] bytes = buffer.getData();
+
+        final WritableComparator raw = WritableComparator.get(TaggedLongWritable.class);
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = starts[i];
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(final Integer a, final Integer b) {
+                return raw.compare(bytes, a, length, bytes, b, length);
+            }
+        });
+
+        // the keys are sorted by id and the vertex key of an id comes first
+        final TaggedLongWritable previous = new TaggedLongWritable();
+        final TaggedLongWritable current = new TaggedLongWritable();
+        for (int i = 0; i < size; i++) {
+            current.readFields(new DataInputStream(new ByteArrayInputStream(bytes, order[i], length)));
+            if (i > 0) {
+                assertTrue(previous.get() <= current.get());
+                if (previous.get() == current.get())
+                    assertFalse(current.getTag() == 'v' && previous.getTag() != 'v');
+            }
+            previous.set(current.get(), current.getTag());
+        }
+    }
+}
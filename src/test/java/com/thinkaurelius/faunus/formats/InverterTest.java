@@ -1,5 +1,7 @@
 package com.thinkaurelius.faunus.formats;
 
+import com.thinkaurelius.faunus.formats.columnar.ColumnarInputFormat;
+import com.thinkaurelius.faunus.formats.columnar.ColumnarOutputFormat;
 import com.thinkaurelius.faunus.formats.graphson.GraphSONInputFormat;
 import com.thinkaurelius.faunus.formats.graphson.GraphSONOutputFormat;
 import com.thinkaurelius.faunus.formats.noop.NoOpOutputFormat;
@@ -26,6 +28,7 @@ public class InverterTest extends TestCase {
         assertEquals(Inverter.invertInputFormat(TitanHBaseInputFormat.class), TitanHBaseOutputFormat.class);
         assertEquals(Inverter.invertInputFormat(TitanCassandraInputFormat.class), TitanCassandraOutputFormat.class);
         assertEquals(Inverter.invertInputFormat(ScriptInputFormat.class), ScriptOutputFormat.class);
+        assertEquals(Inverter.invertInputFormat(ColumnarInputFormat.class), ColumnarOutputFormat.class);
         try {
             Inverter.invertInputFormat(TextInputFormat.class);
             assertFalse(true);
@@ -40,6 +43,7 @@ public class InverterTest extends TestCase {
         assertEquals(Inverter.invertOutputFormat(TitanCassandraOutputFormat.class), TitanCassandraInputFormat.class);
         assertEquals(Inverter.invertOutputFormat(TitanHBaseOutputFormat.class), TitanHBaseInputFormat.class);
         assertEquals(Inverter.invertOutputFormat(ScriptOutputFormat.class), ScriptInputFormat.class);
+        assertEquals(Inverter.invertOutputFormat(ColumnarOutputFormat.class), ColumnarInputFormat.class);
         try {
             Inverter.invertOutputFormat(NoOpOutputFormat.class);
             assertFalse(true);
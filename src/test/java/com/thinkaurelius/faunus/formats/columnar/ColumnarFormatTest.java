@@ -0,0 +1,76 @@
+package com.thinkaurelius.faunus.formats.columnar;
+
+import com.thinkaurelius.faunus.BaseTest;
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexProjection;
+import com.thinkaurelius.faunus.formats.VertexQueryFilter;
+import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
+import com.tinkerpop.blueprints.Direction;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ColumnarFormatTest extends BaseTest {
+
+    public void testRoundTrip() throws Exception {
+        for (final ExampleGraph example : new ExampleGraph[]{ExampleGraph.TINKERGRAPH, ExampleGraph.GRAPH_OF_THE_GODS}) {
+            // a row group size of 5 spreads the graph over several row groups
+            final File file = write(generateGraph(example), 5);
+            final Map<Long, FaunusVertex> graph = read(file, new EmptyConfiguration());
+            identicalStructure(graph, example);
+            file.delete();
+        }
+    }
+
+    public void testProjection() throws Exception {
+        final File file = write(generateGraph(ExampleGraph.TINKERGRAPH), 2);
+        final Configuration configuration = new EmptyConfiguration();
+        configuration.set(VertexProjection.FAUNUS_GRAPH_INPUT_PROJECTION_PROPERTIES, "name");
+        configuration.set(VertexProjection.FAUNUS_GRAPH_INPUT_PROJECTION_OUT_LABELS, "knows");
+        configuration.set(VertexProjection.FAUNUS_GRAPH_INPUT_PROJECTION_IN_LABELS, "");
+        final Map<Long, FaunusVertex> graph = read(file, configuration);
+        assertEquals(graph.size(), 6);
+        for (final FaunusVertex vertex : graph.values()) {
+            assertEquals(vertex.getPropertyKeys().size(), 1);
+            assertNotNull(vertex.getProperty("name"));
+            assertEquals(count(vertex.getEdges(Direction.IN)), 0);
+            assertEquals(count(vertex.getEdges(Direction.OUT)), count(vertex.getEdges(Direction.OUT, "knows")));
+        }
+        assertEquals(graph.get(1l).getProperty("name"), "marko");
+        assertEquals(count(graph.get(1l).getEdges(Direction.OUT)), 2);
+        assertNotNull(graph.get(1l).getEdges(Direction.OUT, "knows").iterator().next().getProperty("weight"));
+        file.delete();
+    }
+
+    private static File write(final Map<Long, FaunusVertex> graph, final int rowGroupSize) throws Exception {
+        final File file = File.createTempFile("faunus", "columnar");
+        final ColumnarRecordWriter writer = new ColumnarRecordWriter(new DataOutputStream(new FileOutputStream(file)), rowGroupSize);
+        for (final FaunusVertex vertex : graph.values()) {
+            writer.write(NullWritable.get(), vertex);
+        }
+        writer.close(null);
+        return file;
+    }
+
+    private static Map<Long, FaunusVertex> read(final File file, final Configuration configuration) throws Exception {
+        final ColumnarRecordReader reader = new ColumnarRecordReader(VertexQueryFilter.create(configuration), VertexProjection.create(configuration));
+        reader.initialize(new FileSplit(new Path(file.toURI()), 0, file.length(), new String[]{}), new TaskAttemptContext(new Configuration(), new TaskAttemptID()));
+        final Map<Long, FaunusVertex> graph = new HashMap<Long, FaunusVertex>();
+        while (reader.nextKeyValue()) {
+            assertEquals(reader.getCurrentKey(), NullWritable.get());
+            final FaunusVertex vertex = reader.getCurrentValue();
+            graph.put(vertex.getIdAsLong(), vertex);
+        }
+        reader.close();
+        return graph;
+    }
+}
@@ -0,0 +1,149 @@
+package com.thinkaurelius.faunus.formats.frontier;
+
+import com.thinkaurelius.faunus.BaseTest;
+import com.thinkaurelius.faunus.FaunusEdge;
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.hdfs.GraphCache;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class FrontierFormatTest extends BaseTest {
+
+    private static final int PARTITIONS = 2;
+
+    public void testAllVertices() throws Exception {
+        final File cache = writeCache(generateGraph(ExampleGraph.GRAPH_OF_THE_GODS));
+        final Configuration configuration = new Configuration();
+        configuration.set(FrontierInputFormat.FAUNUS_GRAPH_INPUT_FRONTIER_GRAPH, cache.getAbsolutePath());
+        final Map<Long, FaunusVertex> graph = read(configuration, PARTITIONS);
+        identicalStructure(graph, ExampleGraph.GRAPH_OF_THE_GODS);
+    }
+
+    public void testFrontierJoin() throws Exception {
+        final Map<Long, FaunusVertex> graph = generateGraph(ExampleGraph.GRAPH_OF_THE_GODS);
+        final File cache = writeCache(graph);
+
+        // hercules, its battled edges and jupiter have paths, the other vertices are not on the frontier
+        long hercules = -1l;
+        long jupiter = -1l;
+        for (final FaunusVertex vertex : graph.values()) {
+            if (vertex.getProperty("name").equals("hercules"))
+                hercules = vertex.getIdAsLong();
+            else if (vertex.getProperty("name").equals("jupiter"))
+                jupiter = vertex.getIdAsLong();
+        }
+        graph.get(hercules).incrPath(2);
+        for (final Edge edge : graph.get(hercules).getEdges(Direction.OUT, "battled")) {
+            ((FaunusEdge) edge).incrPath(1);
+        }
+        graph.get(jupiter).incrPath(1);
+        for (final FaunusVertex vertex : graph.values()) {
+            if (vertex.getIdAsLong() != hercules && vertex.getIdAsLong() != jupiter)
+                assertNull(FrontierOutputFormat.toFrontier(vertex, false));
+        }
+        final File frontier = writeFrontier(graph);
+
+        final Configuration configuration = new Configuration();
+        configuration.set(FrontierInputFormat.FAUNUS_GRAPH_INPUT_FRONTIER_GRAPH, cache.getAbsolutePath());
+        configuration.set(FrontierInputFormat.FAUNUS_GRAPH_INPUT_FRONTIER_LOCATION, frontier.getAbsolutePath());
+        final Map<Long, FaunusVertex> active = read(configuration, GraphCache.getPartition(hercules, PARTITIONS) == GraphCache.getPartition(jupiter, PARTITIONS) ? 1 : 2);
+        assertEquals(active.size(), 2);
+
+        final FaunusVertex vertex = active.get(hercules);
+        assertEquals(vertex.pathCount(), 2);
+        assertEquals(vertex.getProperty("name"), "hercules");
+        assertEquals(count(vertex.getEdges(Direction.OUT)), count(graph.get(hercules).getEdges(Direction.OUT)));
+        assertEquals(count(vertex.getEdges(Direction.IN)), count(graph.get(hercules).getEdges(Direction.IN)));
+        for (final Edge edge : vertex.getEdges(Direction.OUT)) {
+            assertEquals(((FaunusEdge) edge).pathCount(), edge.getLabel().equals("battled") ? 1 : 0);
+        }
+        assertEquals(active.get(jupiter).pathCount(), 1);
+        assertEquals(active.get(jupiter).getProperty("name"), "jupiter");
+    }
+
+    private static File writeCache(final Map<Long, FaunusVertex> graph) throws Exception {
+        final File location = createDirectory("cache");
+        final Configuration configuration = new Configuration();
+        final FileSystem fs = FileSystem.getLocal(configuration);
+        final List<Map<Long, FaunusVertex>> partitions = partition(graph);
+        for (int i = 0; i < PARTITIONS; i++) {
+            final SequenceFile.Writer writer = SequenceFile.createWriter(fs, configuration, new Path(location.getAbsolutePath(), "part-r-0000" + i), LongWritable.class, FaunusVertex.class);
+            for (final FaunusVertex vertex : partitions.get(i).values()) {
+                writer.append(new LongWritable(vertex.getIdAsLong()), vertex);
+            }
+            writer.close();
+        }
+        return location;
+    }
+
+    private static File writeFrontier(final Map<Long, FaunusVertex> graph) throws Exception {
+        final File location = createDirectory("frontier");
+        final Configuration configuration = new Configuration();
+        final FileSystem fs = FileSystem.getLocal(configuration);
+        final List<Map<Long, FaunusVertex>> partitions = partition(graph);
+        for (int i = 0; i < PARTITIONS; i++) {
+            final SequenceFile.Writer writer = SequenceFile.createWriter(fs, configuration, new Path(location.getAbsolutePath(), "graph-r-0000" + i), NullWritable.class, FaunusVertex.class);
+            final FrontierOutputFormat.FrontierRecordWriter frontierWriter = new FrontierOutputFormat.FrontierRecordWriter(writer, false);
+            for (final FaunusVertex vertex : partitions.get(i).values()) {
+                frontierWriter.write(NullWritable.get(), vertex);
+            }
+            frontierWriter.close(null);
+        }
+        return location;
+    }
+
+    private static List<Map<Long, FaunusVertex>> partition(final Map<Long, FaunusVertex> graph) {
+        final List<Map<Long, FaunusVertex>> partitions = new ArrayList<Map<Long, FaunusVertex>>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new TreeMap<Long, FaunusVertex>());
+        }
+        for (final FaunusVertex vertex : graph.values()) {
+            partitions.get(GraphCache.getPartition(vertex.getIdAsLong(), PARTITIONS)).put(vertex.getIdAsLong(), vertex);
+        }
+        return partitions;
+    }
+
+    private static Map<Long, FaunusVertex> read(final Configuration configuration, final int expectedSplits) throws Exception {
+        final FrontierInputFormat inputFormat = new FrontierInputFormat();
+        final List<InputSplit> splits = inputFormat.getSplits(new JobContext(configuration, new JobID()));
+        assertEquals(splits.size(), expectedSplits);
+        final Map<Long, FaunusVertex> graph = new HashMap<Long, FaunusVertex>();
+        for (final InputSplit split : splits) {
+            final TaskAttemptContext context = new TaskAttemptContext(configuration, new TaskAttemptID());
+            final RecordReader<NullWritable, FaunusVertex> reader = inputFormat.createRecordReader(split, context);
+            reader.initialize(split, context);
+            while (reader.nextKeyValue()) {
+                graph.put(reader.getCurrentValue().getIdAsLong(), reader.getCurrentValue());
+            }
+            reader.close();
+        }
+        return graph;
+    }
+
+    private static File createDirectory(final String name) throws Exception {
+        final File directory = File.createTempFile("faunus", name);
+        directory.delete();
+        directory.mkdirs();
+        directory.deleteOnExit();
+        return directory;
+    }
+}
@@ -2,6 +2,7 @@ package com.thinkaurelius.faunus.formats.graphson;
 
 import com.thinkaurelius.faunus.BaseTest;
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.formats.VertexProjection;
 import com.thinkaurelius.faunus.formats.VertexQueryFilter;
 import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
 import com.tinkerpop.blueprints.Direction;
@@ -71,4 +72,28 @@ public class GraphSONRecordReaderTest extends BaseTest {
         assertEquals(counter, 12);
         reader.close();
     }
+
+    public void testRecordReaderWithProjection() throws Exception {
+        Configuration config = new Configuration();
+        config.set(VertexProjection.FAUNUS_GRAPH_INPUT_PROJECTION_PROPERTIES, "name");
+        config.set(VertexProjection.FAUNUS_GRAPH_INPUT_PROJECTION_OUT_LABELS, "battled");
+        config.set(VertexProjection.FAUNUS_GRAPH_INPUT_PROJECTION_IN_LABELS, "");
+        GraphSONRecordReader reader = new GraphSONRecordReader(VertexQueryFilter.create(new EmptyConfiguration()));
+        reader.initialize(new FileSplit(new Path(GraphSONRecordReaderTest.class.getResource("graph-of-the-gods.json").toURI()), 0, Long.MAX_VALUE, new String[]{}),
+                new TaskAttemptContext(config, new TaskAttemptID()));
+        int counter = 0;
+        int battled = 0;
+        while (reader.nextKeyValue()) {
+            counter++;
+            FaunusVertex vertex = reader.getCurrentValue();
+            assertEquals(vertex.getPropertyKeys().size(), 1);
+            assertNotNull(vertex.getProperty("name"));
+            assertEquals(((List) vertex.getEdges(Direction.IN)).size(), 0);
+            assertEquals(((List) vertex.getEdges(Direction.OUT)).size(), ((List) vertex.getEdges(Direction.OUT, "battled")).size());
+            battled = battled + ((List) vertex.getEdges(Direction.OUT)).size();
+        }
+        assertEquals(counter, 12);
+        assertEquals(battled, 3);
+        reader.close();
+    }
 }
@@ -0,0 +1,122 @@
+package com.thinkaurelius.faunus.hdfs;
+
+import com.thinkaurelius.faunus.BaseTest;
+import com.thinkaurelius.faunus.FaunusGraph;
+import com.thinkaurelius.faunus.FaunusPipeline;
+import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.formats.graphson.GraphSONInputFormat;
+import com.thinkaurelius.faunus.formats.graphson.GraphSONOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class GraphCacheTest extends BaseTest {
+
+    public void testFingerprints() throws Exception {
+        final FaunusGraph graph = createGraph();
+        final GraphCache cache = new GraphCache(graph);
+        assertEquals(cache.getInputFingerprint(), new GraphCache(createGraph()).getInputFingerprint());
+        assertEquals(cache.getStateFingerprint(), new GraphCache(createGraph()).getStateFingerprint());
+        final String location = cache.getLocation().toString();
+
+        // the output configuration is not part of the fingerprint
+        graph.setOutputLocation("another-output");
+        assertEquals(new GraphCache(graph).getLocation().toString(), location);
+
+        // the input configuration is part of the fingerprint
+        graph.getConf().set("faunus.graph.input.vertex-query-filter", "v.query().limit(0)");
+        assertFalse(new GraphCache(graph).getInputFingerprint().equals(cache.getInputFingerprint()));
+    }
+
+    public void testTraversalFromCache() throws Exception {
+        final File cacheLocation = File.createTempFile("faunus", "cache");
+        cacheLocation.delete();
+
+        FaunusGraph graph = createGraph();
+        graph.setGraphCacheLocation(cacheLocation.getAbsolutePath());
+        final GraphCache cache = new GraphCache(graph);
+        assertFalse(cache.isCached());
+
+        final List<String> names = traverse(graph);
+        assertTrue(cache.isCached());
+        assertEquals(names.size(), 3);
+        // the second traversal reads the cached graph
+        assertEquals(traverse(graph), names);
+
+        graph.invalidateGraphCache();
+        assertFalse(cache.isCached());
+        graph.refreshGraphCache();
+        assertTrue(cache.isCached());
+        graph.invalidateGraphCache();
+    }
+
+    public void testPathTraversalFromCache() throws Exception {
+        final List<String> expected = traversePaths(createGraph(), false);
+        assertEquals(expected.size(), 3);
+
+        final File cacheLocation = File.createTempFile("faunus", "cache");
+        cacheLocation.delete();
+        final FaunusGraph graph = createGraph();
+        graph.setGraphCacheLocation(cacheLocation.getAbsolutePath());
+        // the first traversal caches the graph and the second reads the cached graph (with paths enabled)
+        assertEquals(traversePaths(graph, true), expected);
+        assertTrue(new GraphCache(graph).isCached());
+        assertEquals(traversePaths(graph, true), expected);
+        graph.invalidateGraphCache();
+    }
+
+    private static FaunusGraph createGraph() throws Exception {
+        final FaunusGraph graph = new FaunusGraph();
+        graph.setGraphInputFormat(GraphSONInputFormat.class);
+        graph.setInputLocation(new File(GraphSONInputFormat.class.getResource("graph-of-the-gods.json").toURI()).getAbsolutePath());
+        graph.setGraphOutputFormat(GraphSONOutputFormat.class);
+        graph.setSideEffectOutputFormat(TextOutputFormat.class);
+        graph.setOutputLocationOverwrite(true);
+        graph.setGraphCache(true);
+        graph.getConf().setBoolean(Tokens.FAUNUS_PIPELINE_LOCAL, true);
+        graph.getConf().setInt(Tokens.FAUNUS_PIPELINE_LOCAL_THREADS, 2);
+        return graph;
+    }
+
+    private static List<String> traverse(final FaunusGraph graph) throws Exception {
+        final File output = File.createTempFile("faunus", "output");
+        output.delete();
+        graph.setOutputLocation(output.getAbsolutePath());
+        new FaunusPipeline(graph).V().out("battled").property("name").submit();
+        return readSideEffects(output);
+    }
+
+    private static List<String> traversePaths(final FaunusGraph graph, final boolean cache) throws Exception {
+        final File output = File.createTempFile("faunus", "output");
+        output.delete();
+        graph.setOutputLocation(output.getAbsolutePath());
+        graph.setGraphCache(cache);
+        new FaunusPipeline(graph).V().out("battled").path().submit();
+        return readSideEffects(output);
+    }
+
+    private static List<String> readSideEffects(final File output) throws Exception {
+        final List<String> names = new ArrayList<String>();
+        for (final File job : output.listFiles()) {
+            if (job.getName().startsWith(Tokens.JOB)) {
+                for (final File file : job.listFiles()) {
+                    if (file.getName().startsWith(Tokens.SIDEEFFECT)) {
+                        final BufferedReader reader = new BufferedReader(new FileReader(file));
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            names.add(line);
+                        }
+                        reader.close();
+                    }
+                }
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+}
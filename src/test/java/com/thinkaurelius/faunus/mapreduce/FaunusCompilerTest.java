@@ -1,16 +1,26 @@
 package com.thinkaurelius.faunus.mapreduce;
 
+import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusGraph;
 import com.thinkaurelius.faunus.FaunusPipeline;
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.TaggedLongWritable;
+import com.thinkaurelius.faunus.formats.VertexPredicate;
+import com.thinkaurelius.faunus.formats.VertexProjection;
+import com.thinkaurelius.faunus.formats.frontier.FrontierInputFormat;
 import com.thinkaurelius.faunus.formats.titan.TitanOutputFormat;
 import com.thinkaurelius.faunus.formats.titan.cassandra.TitanCassandraOutputFormat;
 import com.thinkaurelius.faunus.mapreduce.transform.VerticesMap;
 import com.thinkaurelius.faunus.mapreduce.transform.VerticesVerticesMapReduce;
 import com.thinkaurelius.faunus.mapreduce.util.CountMapReduce;
+import com.thinkaurelius.faunus.mapreduce.util.EmptyConfiguration;
+import com.tinkerpop.blueprints.Direction;
 import junit.framework.TestCase;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.MapWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 
 /**
@@ -70,8 +80,9 @@ public class FaunusCompilerTest extends TestCase {
         assertEquals(mapClasses.length, 2);
         assertEquals(mapClasses[0], VerticesMap.Map.class.getName());
         assertEquals(mapClasses[1], VerticesVerticesMapReduce.Map.class.getName());
-        assertEquals(compiler.jobs.get(0).getConfiguration().getStrings(VerticesVerticesMapReduce.LABELS + "-1").length, 1);
-        assertEquals(compiler.jobs.get(0).getConfiguration().getStrings(VerticesVerticesMapReduce.LABELS + "-1")[0], "knows");
+        final MapWritable[] stepConfigurations = MapSequence.getStepConfigurations(compiler.jobs.get(0).getConfiguration());
+        assertEquals(stepConfigurations.length, 2);
+        assertEquals(stepConfigurations[1].get(new Text(VerticesVerticesMapReduce.LABELS)), new Text("knows"));
         assertEquals(compiler.jobs.get(0).getCombinerClass(), null);
         assertEquals(compiler.jobs.get(0).getReducerClass(), VerticesVerticesMapReduce.Reduce.class);
 
@@ -84,6 +95,39 @@ public class FaunusCompilerTest extends TestCase {
 
     }
 
+    public void testJobFusion() throws Exception {
+        FaunusPipeline pipe = new FaunusPipeline(new FaunusGraph());
+        FaunusCompiler compiler = pipe.getCompiler();
+        pipe.V().out("knows").out("created")._();
+        compiler.completeSequence();
+        assertEquals(compiler.jobs.size(), 3);
+
+        compiler.fuseJobs();
+        assertEquals(compiler.jobs.size(), 2);
+
+        // the reducer of the first job maps the vertices for the shuffle of the second job
+        assertEquals(compiler.jobs.get(0).getMapperClass(), MapSequence.Map.class);
+        assertEquals(compiler.jobs.get(0).getReducerClass(), ReduceSequence.Reduce.class);
+        assertEquals(compiler.jobs.get(0).getConfiguration().getClass(ReduceSequence.REDUCE_CLASS, null), VerticesVerticesMapReduce.Reduce.class);
+        assertEquals(compiler.jobs.get(0).getPartitionerClass(), TaggedLongWritable.Partitioner.class);
+        assertEquals(compiler.jobs.get(0).getOutputKeyClass(), TaggedLongWritable.class);
+        assertEquals(compiler.jobs.get(0).getOutputValueClass(), Holder.class);
+        assertEquals(compiler.jobs.get(0).getConfiguration().getStrings(ReduceSequence.MAP_CONFIGURATION + MapSequence.MAP_CLASSES)[0], VerticesVerticesMapReduce.Map.class.getName());
+        // only the keys that the fused steps set are carried over (not the defaults of the configuration)
+        assertEquals(compiler.jobs.get(0).getConfiguration().get(ReduceSequence.MAP_CONFIGURATION + VerticesVerticesMapReduce.LABELS), "created");
+        assertNotNull(compiler.jobs.get(0).getConfiguration().get(ReduceSequence.MAP_CONFIGURATION + MapSequence.STEP_CONFIGURATIONS));
+        assertNull(compiler.jobs.get(0).getConfiguration().get(ReduceSequence.MAP_CONFIGURATION + "fs.default.name"));
+
+        // the reducer of the second job runs the trailing map-only job
+        assertEquals(compiler.jobs.get(1).getMapperClass(), ReduceSequence.Map.class);
+        assertEquals(compiler.jobs.get(1).getReducerClass(), ReduceSequence.Reduce.class);
+        assertEquals(compiler.jobs.get(1).getConfiguration().getStrings(ReduceSequence.MAP_CONFIGURATION + MapSequence.MAP_CLASSES)[0], IdentityMap.Map.class.getName());
+
+        // fused jobs are not fused again
+        compiler.fuseJobs();
+        assertEquals(compiler.jobs.size(), 2);
+    }
+
     public void testConfigurationPersistence() throws Exception {
         Configuration conf = new Configuration();
         conf.setInt("mapred.reduce.tasks", 2);
@@ -114,4 +158,96 @@ public class FaunusCompilerTest extends TestCase {
         assertEquals(graph.getConf().getInt("mapred.reduce.tasks", -1), 2);
         assertEquals(compiler.getConf().getInt("mapred.reduce.tasks", -1), 2);
     }
+
+    public void testInputProjection() throws Exception {
+        FaunusPipeline pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().out("knows").property("name");
+        pipe.getCompiler().completeSequence();
+        VertexProjection projection = VertexProjection.derive(pipe.getCompiler().jobs);
+        assertFalse(projection.isAll());
+        assertTrue(projection.containsProperty("name"));
+        assertFalse(projection.containsProperty("age"));
+        assertTrue(projection.containsLabel(Direction.OUT, "knows"));
+        assertFalse(projection.containsLabel(Direction.OUT, "created"));
+        assertFalse(projection.containsLabel(Direction.IN, "knows"));
+
+        pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().filter("{it.age > 30}").out("knows");
+        pipe.getCompiler().completeSequence();
+        assertTrue(VertexProjection.derive(pipe.getCompiler().jobs).isAll());
+    }
+
+    public void testVertexPredicate() throws Exception {
+        FaunusPipeline pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().has("type", "demigod").interval("age", 10, 50).property("name");
+        pipe.getCompiler().completeSequence();
+        Configuration configuration = new EmptyConfiguration();
+        assertTrue(VertexPredicate.derive(pipe.getCompiler().jobs, configuration));
+        VertexPredicate predicate = VertexPredicate.create(configuration);
+        assertTrue(predicate.doesFilter());
+        assertTrue(predicate.isDrop());
+
+        FaunusVertex vertex = new FaunusVertex(1l);
+        vertex.setProperty("type", "demigod");
+        vertex.setProperty("age", 30);
+        assertTrue(predicate.isLegal(vertex));
+        vertex.setProperty("age", 5000);
+        assertFalse(predicate.isLegal(vertex));
+        assertFalse(predicate.filter(vertex));
+
+        pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().has("type", "demigod").in("father").property("name");
+        pipe.getCompiler().completeSequence();
+        configuration = new EmptyConfiguration();
+        assertTrue(VertexPredicate.derive(pipe.getCompiler().jobs, configuration));
+        predicate = VertexPredicate.create(configuration);
+        assertFalse(predicate.isDrop());
+        assertTrue(predicate.getProjection().containsProperty("name"));
+        assertFalse(predicate.getProjection().containsProperty("type"));
+        assertTrue(predicate.getProjection().containsLabel(Direction.IN, "father"));
+        assertFalse(predicate.getProjection().containsLabel(Direction.OUT, "father"));
+
+        vertex = new FaunusVertex(1l);
+        vertex.setProperty("type", "god");
+        vertex.setProperty("name", "jupiter");
+        assertTrue(predicate.filter(vertex));
+        assertNull(vertex.getProperty("type"));
+        assertEquals(vertex.getProperty("name"), "jupiter");
+
+        pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().out("father").has("type", "god");
+        pipe.getCompiler().completeSequence();
+        assertFalse(VertexPredicate.derive(pipe.getCompiler().jobs, new EmptyConfiguration()));
+    }
+
+    public void testFrontierPipeline() throws Exception {
+        FaunusPipeline pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().has("type", "demigod").out("battled").inE("battled").outV().property("name");
+        pipe.getCompiler().completeSequence();
+        assertTrue(FrontierInputFormat.isFrontierPipeline(pipe.getCompiler().jobs));
+
+        // a step that can alter the graph needs the whole graph in every job
+        pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().out("battled").sideEffect("{it.visited = true}").out("lives");
+        pipe.getCompiler().completeSequence();
+        assertFalse(FrontierInputFormat.isFrontierPipeline(pipe.getCompiler().jobs));
+    }
+
+    public void testPathRetain() throws Exception {
+        FaunusPipeline pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().as("x").out("battled").as("y").out("lives").back("x");
+        pipe.getCompiler().completeSequence();
+        assertEquals(FaunusCompiler.derivePathRetain(pipe.getCompiler().jobs), 1l);
+
+        pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().as("x").out("battled").as("y").out("lives").back("y").back("x");
+        pipe.getCompiler().completeSequence();
+        assertEquals(FaunusCompiler.derivePathRetain(pipe.getCompiler().jobs), 3l);
+
+        // path() reads whole paths
+        pipe = new FaunusPipeline(new FaunusGraph());
+        pipe.V().as("x").out("battled").back("x").path();
+        pipe.getCompiler().completeSequence();
+        assertEquals(FaunusCompiler.derivePathRetain(pipe.getCompiler().jobs), FaunusElement.MicroPath.RETAIN_ALL);
+    }
 }
@@ -0,0 +1,75 @@
+package com.thinkaurelius.faunus.mapreduce;
+
+import com.thinkaurelius.faunus.FaunusGraph;
+import com.thinkaurelius.faunus.FaunusPipeline;
+import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.formats.graphson.GraphSONInputFormat;
+import com.thinkaurelius.faunus.formats.graphson.GraphSONOutputFormat;
+import junit.framework.TestCase;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LocalRunnerTest extends TestCase {
+
+    public void testRecordBufferSortAndSlice() throws Exception {
+        final LocalRunner.RecordBuffer buffer = new LocalRunner.RecordBuffer();
+        for (final long id : new long[]{5l, 3l, 9l, 3l, 1l}) {
+            buffer.append(new LongWritable(id), new Text("v" + id));
+        }
+        assertEquals(buffer.size(), 5);
+        final Integer[] order = buffer.sort(new LongWritable.Comparator());
+        assertEquals(Arrays.asList(order), Arrays.asList(4, 1, 3, 0, 2));
+
+        final LocalRunner.RecordBuffer other = new LocalRunner.RecordBuffer();
+        other.appendAll(buffer);
+        assertEquals(other.size(), 5);
+        assertEquals(Arrays.asList(other.sort(new LongWritable.Comparator())), Arrays.asList(order));
+
+        assertEquals(LocalRunner.RecordBuffer.slice(Arrays.asList(buffer, other), 4).size(), 4);
+        assertEquals(LocalRunner.RecordBuffer.slice(Arrays.asList(buffer, other), 20).size(), 10);
+    }
+
+    public void testTraversalInProcess() throws Exception {
+        final File output = File.createTempFile("faunus", "local");
+        output.delete();
+
+        final FaunusGraph graph = new FaunusGraph();
+        graph.setGraphInputFormat(GraphSONInputFormat.class);
+        graph.setInputLocation(new File(GraphSONInputFormat.class.getResource("graph-of-the-gods.json").toURI()).getAbsolutePath());
+        graph.setGraphOutputFormat(GraphSONOutputFormat.class);
+        graph.setSideEffectOutputFormat(TextOutputFormat.class);
+        graph.setOutputLocation(output.getAbsolutePath());
+        graph.setOutputLocationOverwrite(true);
+        graph.getConf().setBoolean(Tokens.FAUNUS_PIPELINE_LOCAL, true);
+        graph.getConf().setInt(Tokens.FAUNUS_PIPELINE_LOCAL_THREADS, 2);
+
+        new FaunusPipeline(graph).V().out("battled").property("name").submit();
+
+        final List<String> names = new ArrayList<String>();
+        for (final File job : output.listFiles()) {
+            if (job.getName().startsWith(Tokens.JOB)) {
+                for (final File file : job.listFiles()) {
+                    if (file.getName().startsWith(Tokens.SIDEEFFECT)) {
+                        final BufferedReader reader = new BufferedReader(new FileReader(file));
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            names.add(line);
+                        }
+                        reader.close();
+                    }
+                }
+            }
+        }
+        Collections.sort(names);
+        assertEquals(names, Arrays.asList("cerberus", "hydra", "nemean"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.thinkaurelius.faunus.mapreduce;
+
+import com.thinkaurelius.faunus.FaunusEdge;
+import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.filter.PropertyFilterMap;
+import com.tinkerpop.blueprints.Compare;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times the dispatch of a vertex through a chain of reflectively invoked Mappers and of SequenceMappers, and the
+ * pass-through of serialized vertices through a chain of filters with and without lazy deserialization.
+ * It is not part of the unit tests: run its main() by hand.
+ */
+public class MapSequenceBenchmark {
+
+    public static void main(final String[] args) throws Exception {
+        final int rounds = args.length > 0 ? Integer.valueOf(args[0]) : 200;
+        dispatch(rounds);
+        passThrough(rounds / 10);
+    }
+
+    private static void dispatch(final int rounds) throws Exception {
+        final List<FaunusVertex> vertices = new ArrayList<FaunusVertex>();
+        for (long i = 0; i < 1000; i++) {
+            vertices.add(new FaunusVertex(i));
+        }
+        for (final Class<? extends Mapper> stepClass : Arrays.<Class<? extends Mapper>>asList(MapSequenceTest.ReflectivePassThrough.class, MapSequenceTest.PassThrough.class)) {
+            final Configuration config = new Configuration();
+            final String[] mapClasses = new String[6];
+            Arrays.fill(mapClasses, stepClass.getName());
+            config.setStrings(MapSequence.MAP_CLASSES, mapClasses);
+            final MapSequence.Map map = new MapSequence.Map();
+            final CountingContext context = new CountingContext(map, config, false);
+            map.setup(context);
+            long time = 0;
+            for (int round = 0; round < rounds; round++) {
+                final long startTime = System.nanoTime();
+                for (final FaunusVertex vertex : vertices) {
+                    map.map(NullWritable.get(), vertex, context);
+                }
+                // the first half of the rounds warm up the JIT
+                if (round >= rounds / 2)
+                    time = time + (System.nanoTime() - startTime);
+            }
+            map.cleanup(context);
+            System.out.println("Dispatch through 6 " + stepClass.getSimpleName() + " steps: " + (time / ((rounds - rounds / 2) * vertices.size())) + "ns/vertex (" + context.writes + " writes)");
+        }
+    }
+
+    private static void passThrough(final int rounds) throws Exception {
+        final List<byte[]> records = new ArrayList<byte[]>();
+        final DataOutputBuffer buffer = new DataOutputBuffer();
+        for (long i = 0; i < 1000; i++) {
+            final FaunusVertex vertex = new FaunusVertex(i);
+            vertex.setProperty("name", "vertex" + i);
+            vertex.setProperty("age", (int) i);
+            for (long j = 1; j <= 50; j++) {
+                vertex.addEdge(Direction.OUT, new FaunusEdge(i, (i + j) % 1000, j % 2 == 0 ? "knows" : "created")).setProperty("weight", 0.5d);
+                vertex.addEdge(Direction.IN, new FaunusEdge((i + j) % 1000, i, "knows"));
+            }
+            buffer.reset();
+            vertex.write(buffer);
+            records.add(Arrays.copyOf(buffer.getData(), buffer.getLength()));
+        }
+
+        for (final boolean lazy : new boolean[]{false, true}) {
+            final Configuration config = new Configuration();
+            config.setBoolean(Tokens.FAUNUS_VERTEX_LAZY_DESERIALIZATION, lazy);
+            config.setStrings(MapSequence.MAP_CLASSES, PropertyFilterMap.Map.class.getName(), PropertyFilterMap.Map.class.getName(), PropertyFilterMap.Map.class.getName());
+            final Configuration stepConfiguration = PropertyFilterMap.createConfiguration(Vertex.class, "age", Compare.GREATER_THAN, 10);
+            MapSequence.setStepConfigurations(config, Arrays.asList(stepConfiguration, stepConfiguration, stepConfiguration));
+            final MapSequence.Map map = new MapSequence.Map();
+            final CountingContext context = new CountingContext(map, config, true);
+            map.setup(context);
+            final DataInputBuffer in = new DataInputBuffer();
+            long time = 0;
+            for (int round = 0; round < rounds; round++) {
+                final long startTime = System.nanoTime();
+                for (final byte[] bytes : records) {
+                    final FaunusVertex vertex = new FaunusVertex();
+                    vertex.setConf(config);
+                    in.reset(bytes, bytes.length);
+                    vertex.readFields(in);
+                    map.map(NullWritable.get(), vertex, context);
+                }
+                // the first half of the rounds warm up the JIT
+                if (round >= rounds / 2)
+                    time = time + (System.nanoTime() - startTime);
+            }
+            map.cleanup(context);
+            System.out.println("Pass-through of " + records.size() + " vertices with lazy deserialization " + lazy + ": " + (time / ((rounds - rounds / 2) * records.size())) + "ns/vertex (" + context.bytes + " bytes written)");
+        }
+    }
+
+    private static class CountingContext extends Mapper.Context {
+
+        private final boolean serialize;
+        private final DataOutputBuffer buffer = new DataOutputBuffer();
+        private long writes = 0;
+        private long bytes = 0;
+
+        public CountingContext(final Mapper mapper, final Configuration configuration, final boolean serialize) throws IOException, InterruptedException {
+            mapper.super(configuration, new TaskAttemptID(), null, null, null, null, null);
+            this.serialize = serialize;
+        }
+
+        @Override
+        public void write(final Object key, final Object value) throws IOException {
+            this.writes++;
+            if (this.serialize) {
+                this.buffer.reset();
+                ((Writable) value).write(this.buffer);
+                this.bytes = this.bytes + this.buffer.getLength();
+            }
+        }
+    }
+}
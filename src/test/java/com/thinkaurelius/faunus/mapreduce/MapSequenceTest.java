@@ -1,12 +1,30 @@
 package com.thinkaurelius.faunus.mapreduce;
 
 import com.thinkaurelius.faunus.BaseTest;
+import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
+import com.thinkaurelius.faunus.Tokens;
+import com.thinkaurelius.faunus.mapreduce.filter.FilterMap;
+import com.thinkaurelius.faunus.mapreduce.filter.PropertyFilterMap;
+import com.tinkerpop.blueprints.Compare;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mrunit.mapreduce.MapReduceDriver;
+import org.apache.hadoop.mrunit.types.Pair;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,6 +49,194 @@ public class MapSequenceTest extends BaseTest {
         identicalStructure(results, ExampleGraph.TINKERGRAPH);
     }
 
+    public void testMultiThreadedVertexFiltering() throws Exception {
+        Configuration config = new Configuration();
+        config.setStrings(MapSequence.MAP_CLASSES, IdentityMap.Map.class.getName(), IdentityMap.Map.class.getName(), IdentityMap.Map.class.getName());
+        config.setInt(Tokens.FAUNUS_PIPELINE_MAP_THREADS, 4);
+        this.mapReduceDriver.withConfiguration(config);
+        final Map<Long, FaunusVertex> results = runWithGraph(generateGraph(BaseTest.ExampleGraph.GRAPH_OF_THE_GODS, config), mapReduceDriver);
+        assertEquals(results.size(), 12);
+        identicalStructure(results, ExampleGraph.GRAPH_OF_THE_GODS);
+        assertEquals(this.mapReduceDriver.getCounters().findCounter(IdentityMap.Counters.VERTEX_COUNT).getValue(), 36l);
+    }
+
+    public void testMultiThreadedClosureRejected() throws Exception {
+        Configuration config = new Configuration();
+        config.setStrings(MapSequence.MAP_CLASSES, IdentityMap.Map.class.getName(), FilterMap.Map.class.getName());
+        config.setInt(Tokens.FAUNUS_PIPELINE_MAP_THREADS, 4);
+        this.mapReduceDriver.withConfiguration(config);
+        try {
+            runWithGraph(generateGraph(BaseTest.ExampleGraph.TINKERGRAPH, config), mapReduceDriver);
+            fail("A closure step shares its script engine with the other map threads");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().contains(FilterMap.Map.class.getName()));
+        }
+    }
+
+    public void testFanOut() throws Exception {
+        Configuration config = new Configuration();
+        config.setStrings(MapSequence.MAP_CLASSES, Explode.class.getName(), Duplicate.class.getName(), IdentityMap.Map.class.getName());
+        this.mapReduceDriver.withConfiguration(config);
+        for (final FaunusVertex vertex : generateGraph(BaseTest.ExampleGraph.TINKERGRAPH, config).values()) {
+            this.mapReduceDriver.withInput(NullWritable.get(), vertex);
+        }
+        // more pairs than the buffer holds are emitted by the first step and the second step emits the same vertex twice
+        assertEquals(this.mapReduceDriver.run().size(), 6 * 100 * 2);
+        assertEquals(this.mapReduceDriver.getCounters().findCounter(IdentityMap.Counters.VERTEX_COUNT).getValue(), 6l * 100l * 2l);
+    }
+
+    public void testFanOutWithReusedObjects() throws Exception {
+        final Configuration config = new Configuration();
+        config.setStrings(MapSequence.MAP_CLASSES, Reuse.class.getName(), Forward.class.getName(), Forward.class.getName());
+        final MapSequence.Map map = new MapSequence.Map();
+        final CollectingContext context = new CollectingContext(map, config);
+        map.setup(context);
+        map.map(NullWritable.get(), new FaunusVertex(1l), context);
+        map.map(NullWritable.get(), new FaunusVertex(2l), context);
+        map.cleanup(context);
+        // the first step mutates its key and values between writes, so each pair must be mapped before the next write
+        assertEquals(context.pairs, Arrays.asList("10:10", "11:11", "12:12", "13:13", "20:20", "21:21", "22:22", "23:23"));
+    }
+
+    public void testLazyPassThrough() throws Exception {
+        final List<byte[]> records = new ArrayList<byte[]>();
+        final DataOutputBuffer buffer = new DataOutputBuffer();
+        for (long i = 0; i < 1000; i++) {
+            final FaunusVertex vertex = new FaunusVertex(i);
+            vertex.setProperty("name", "vertex" + i);
+            vertex.setProperty("age", (int) i);
+            for (long j = 1; j <= 50; j++) {
+                vertex.addEdge(Direction.OUT, new FaunusEdge(i, (i + j) % 1000, j % 2 == 0 ? "knows" : "created")).setProperty("weight", 0.5d);
+                vertex.addEdge(Direction.IN, new FaunusEdge((i + j) % 1000, i, "knows"));
+            }
+            buffer.reset();
+            vertex.write(buffer);
+            final byte[] bytes = new byte[buffer.getLength()];
+            System.arraycopy(buffer.getData(), 0, bytes, 0, bytes.length);
+            records.add(bytes);
+        }
+
+        long totalBytes = -1;
+        for (final boolean lazy : new boolean[]{false, true}) {
+            final Configuration config = new Configuration();
+            config.setBoolean(Tokens.FAUNUS_VERTEX_LAZY_DESERIALIZATION, lazy);
+            config.setStrings(MapSequence.MAP_CLASSES, PropertyFilterMap.Map.class.getName(), PropertyFilterMap.Map.class.getName(), PropertyFilterMap.Map.class.getName());
+            final Configuration stepConfiguration = PropertyFilterMap.createConfiguration(Vertex.class, "age", Compare.GREATER_THAN, 10);
+            MapSequence.setStepConfigurations(config, Arrays.asList(stepConfiguration, stepConfiguration, stepConfiguration));
+            this.setUp();
+            this.mapReduceDriver.withConfiguration(config);
+
+            final DataInputBuffer in = new DataInputBuffer();
+            for (final byte[] bytes : records) {
+                final FaunusVertex vertex = new FaunusVertex();
+                vertex.setConf(config);
+                in.reset(bytes, bytes.length);
+                vertex.readFields(in);
+                this.mapReduceDriver.withInput(NullWritable.get(), vertex);
+            }
+            long bytesWritten = 0;
+            for (final Pair<Writable, Writable> pair : this.mapReduceDriver.run()) {
+                buffer.reset();
+                pair.getSecond().write(buffer);
+                bytesWritten = bytesWritten + buffer.getLength();
+            }
+            if (totalBytes != -1)
+                assertEquals(totalBytes, bytesWritten);
+            totalBytes = bytesWritten;
+        }
+    }
+
+    public void testDispatch() throws Exception {
+        final Configuration config = new Configuration();
+        config.setStrings(MapSequence.MAP_CLASSES, DirectPassThrough.class.getName(), ReflectivePassThrough.class.getName(), DirectPassThrough.class.getName(), PassThrough.class.getName());
+        final MapSequence.Map map = new MapSequence.Map();
+        final CollectingContext context = new CollectingContext(map, config);
+        map.setup(context);
+        for (long id = 1; id <= 3; id++) {
+            map.map(NullWritable.get(), new FaunusVertex(id), context);
+        }
+        map.cleanup(context);
+        // the SequenceMapper steps fail if they are invoked reflectively
+        assertEquals(context.pairs, Arrays.asList("(null):1", "(null):2", "(null):3"));
+    }
+
+    public static class Explode extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+        @Override
+        public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            for (long i = 0; i < 100; i++) {
+                context.write(key, new FaunusVertex(value.getIdAsLong() * 100 + i));
+            }
+        }
+    }
+
+    public static class Duplicate extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+        @Override
+        public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            context.write(key, value);
+            context.write(key, value);
+        }
+    }
+
+    public static class Reuse extends SequenceMapper<NullWritable, FaunusVertex, LongWritable, FaunusVertex> {
+
+        private final LongWritable id = new LongWritable();
+        private final FaunusVertex[] vertices = new FaunusVertex[]{new FaunusVertex(), new FaunusVertex()};
+
+        @Override
+        public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, LongWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            for (int i = 0; i < 4; i++) {
+                this.id.set(value.getIdAsLong() * 10 + i);
+                context.write(this.id, this.vertices[i % 2].reuse(value.getIdAsLong() * 10 + i));
+            }
+        }
+    }
+
+    // the default map of a SequenceMapper writes its input as is (whatever the types of the key and value)
+    public static class Forward extends SequenceMapper<Writable, Writable, Writable, Writable> {
+    }
+
+    public static class PassThrough extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+        @Override
+        public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            context.write(key, value);
+        }
+    }
+
+    public static class DirectPassThrough extends SequenceMapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+        @Override
+        public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            // the frames between this step and the MapSequence that calls it must not be those of reflection
+            for (final StackTraceElement frame : new Throwable().getStackTrace()) {
+                if (frame.getClassName().equals(MapSequence.Map.class.getName()))
+                    break;
+                if (frame.getClassName().startsWith("java.lang.reflect.") || frame.getClassName().startsWith("sun.reflect.") || frame.getClassName().startsWith("jdk.internal.reflect."))
+                    throw new IllegalStateException("The step was invoked reflectively");
+            }
+            context.write(key, value);
+        }
+    }
+
+    public static class ReflectivePassThrough extends Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex> {
+        @Override
+        public void map(final NullWritable key, final FaunusVertex value, final Mapper<NullWritable, FaunusVertex, NullWritable, FaunusVertex>.Context context) throws IOException, InterruptedException {
+            context.write(key, value);
+        }
+    }
+
+    private static class CollectingContext extends Mapper.Context {
+
+        private final List<String> pairs = new ArrayList<String>();
+
+        public CollectingContext(final Mapper mapper, final Configuration configuration) throws IOException, InterruptedException {
+            mapper.super(configuration, new TaskAttemptID(), null, null, null, null, null);
+        }
+
+        @Override
+        public void write(final Object key, final Object value) {
+            this.pairs.add(key + ":" + ((FaunusVertex) value).getIdAsLong());
+        }
+    }
+
     /*public void testMapReduceOneJob() throws Exception {
         Configuration config = new Configuration();
         config.setStrings(MapSequence.MAP_CLASSES, VerticesVerticesMapReduce.Map.class.getName());
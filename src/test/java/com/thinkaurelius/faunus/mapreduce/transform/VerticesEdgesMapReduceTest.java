@@ -4,6 +4,7 @@ import com.thinkaurelius.faunus.BaseTest;
 import com.thinkaurelius.faunus.FaunusEdge;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
@@ -12,7 +13,11 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mrunit.mapreduce.MapReduceDriver;
+import org.apache.hadoop.mrunit.mapreduce.ReduceDriver;
+import org.apache.hadoop.mrunit.types.Pair;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -28,6 +33,37 @@ public class VerticesEdgesMapReduceTest extends BaseTest {
         mapReduceDriver.setReducer(new VerticesEdgesMapReduce.Reduce());
     }
 
+    public void testReduceMessagesBeforeAndAfterVertex() throws Exception {
+        Configuration config = VerticesEdgesMapReduce.createConfiguration(Direction.IN, "created");
+        for (final boolean vertexFirst : Arrays.asList(true, false)) {
+            FaunusVertex vertex = new FaunusVertex(1l);
+            vertex.addEdge(Direction.OUT, new FaunusEdge(9l, 1l, 3l, "created"));
+            vertex.addEdge(Direction.OUT, new FaunusEdge(10l, 1l, 4l, "created"));
+            vertex.addEdge(Direction.OUT, new FaunusEdge(7l, 1l, 2l, "knows"));
+
+            FaunusEdge message1 = new FaunusEdge(9l, 1l, 3l, "created");
+            message1.incrPath(2);
+            FaunusEdge message2 = new FaunusEdge(10l, 1l, 4l, "created");
+            message2.incrPath(1);
+
+            final List<Holder> values = vertexFirst ?
+                    Arrays.asList(new Holder('v', vertex), new Holder('p', message1), new Holder('p', message2)) :
+                    Arrays.asList(new Holder('p', message1), new Holder('v', vertex), new Holder('p', message2));
+
+            ReduceDriver<LongWritable, Holder, NullWritable, FaunusVertex> reduceDriver = new ReduceDriver<LongWritable, Holder, NullWritable, FaunusVertex>(new VerticesEdgesMapReduce.Reduce());
+            reduceDriver.withConfiguration(config);
+            reduceDriver.withInput(new LongWritable(1l), values);
+            final List<Pair<NullWritable, FaunusVertex>> results = reduceDriver.run();
+            assertEquals(results.size(), 1);
+            final FaunusVertex result = results.get(0).getSecond();
+            assertEquals(result.getIdAsLong(), 1l);
+            for (final Edge edge : result.getEdges(Direction.OUT)) {
+                final long id = ((FaunusEdge) edge).getIdAsLong();
+                assertEquals(((FaunusEdge) edge).pathCount(), id == 9l ? 2 : (id == 10l ? 1 : 0));
+            }
+        }
+    }
+
     public void testOutCreatedTraversalWithPaths() throws Exception {
         Configuration config = VerticesEdgesMapReduce.createConfiguration(Direction.OUT, "created");
         config.setBoolean(FaunusCompiler.PATH_ENABLED, true);
@@ -71,6 +107,30 @@ public class VerticesEdgesMapReduceTest extends BaseTest {
         assertEquals(mapReduceDriver.getCounters().findCounter(VerticesEdgesMapReduce.Counters.EDGES_TRAVERSED).getValue(), 4);
     }
 
+    public void testOutCreatedTraversalFrontier() throws Exception {
+        Configuration config = VerticesEdgesMapReduce.createConfiguration(Direction.OUT, "created");
+        config.setBoolean(Tokens.FAUNUS_PIPELINE_FRONTIER, true);
+        mapReduceDriver.withConfiguration(config);
+
+        // only the vertices with traversed edges are emitted and they carry nothing but those edges (on both sides)
+        Map<Long, FaunusVertex> graph = runWithGraph(startPath(generateGraph(ExampleGraph.TINKERGRAPH, config), Vertex.class), mapReduceDriver);
+        assertEquals(graph.size(), 5);
+        assertFalse(graph.containsKey(2l));
+        for (final FaunusVertex vertex : graph.values()) {
+            assertEquals(vertex.pathCount(), 0);
+            assertEquals(vertex.getPropertyKeys().size(), 0);
+            for (final Edge edge : vertex.getEdges(Direction.BOTH)) {
+                assertEquals(edge.getLabel(), "created");
+                assertEquals(((FaunusEdge) edge).pathCount(), 1);
+            }
+        }
+        assertEquals(count(graph.get(1l).getEdges(Direction.OUT)), 1);
+        assertEquals(count(graph.get(4l).getEdges(Direction.OUT)), 2);
+        assertEquals(count(graph.get(3l).getEdges(Direction.IN)), 3);
+        assertEquals(count(graph.get(3l).getEdges(Direction.OUT)), 0);
+        assertEquals(count(graph.get(5l).getEdges(Direction.IN)), 1);
+    }
+
     public void testOutAllTraversalWithPaths() throws Exception {
         Configuration config = VerticesEdgesMapReduce.createConfiguration(Direction.OUT);
         config.setBoolean(FaunusCompiler.PATH_ENABLED, true);
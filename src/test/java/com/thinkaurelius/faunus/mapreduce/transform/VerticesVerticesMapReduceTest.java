@@ -1,8 +1,10 @@
 package com.thinkaurelius.faunus.mapreduce.transform;
 
 import com.thinkaurelius.faunus.BaseTest;
+import com.thinkaurelius.faunus.FaunusElement;
 import com.thinkaurelius.faunus.FaunusVertex;
 import com.thinkaurelius.faunus.Holder;
+import com.thinkaurelius.faunus.Tokens;
 import com.thinkaurelius.faunus.mapreduce.FaunusCompiler;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Vertex;
@@ -11,6 +13,7 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mrunit.mapreduce.MapReduceDriver;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -43,6 +46,24 @@ public class VerticesVerticesMapReduceTest extends BaseTest {
         identicalStructure(graph, ExampleGraph.TINKERGRAPH);
     }
 
+    public void testOutCreatedTraversalFrontier() throws Exception {
+        Configuration config = VerticesVerticesMapReduce.createConfiguration(Direction.OUT, "created");
+        config.setBoolean(Tokens.FAUNUS_PIPELINE_FRONTIER, true);
+        mapReduceDriver.withConfiguration(config);
+
+        // only the vertices that receive paths are emitted and they carry nothing but their paths
+        Map<Long, FaunusVertex> graph = runWithGraph(startPath(generateGraph(ExampleGraph.TINKERGRAPH, config), Vertex.class), mapReduceDriver);
+        assertEquals(graph.size(), 2);
+        assertEquals(graph.get(3l).pathCount(), 3);
+        assertEquals(graph.get(5l).pathCount(), 1);
+        for (final FaunusVertex vertex : graph.values()) {
+            assertEquals(vertex.getPropertyKeys().size(), 0);
+            assertEquals(count(vertex.getEdges(Direction.BOTH)), 0);
+        }
+
+        assertEquals(mapReduceDriver.getCounters().findCounter(VerticesVerticesMapReduce.Counters.EDGES_TRAVERSED).getValue(), 4);
+    }
+
     public void testOutAllTraversal() throws Exception {
         Configuration config = VerticesVerticesMapReduce.createConfiguration(Direction.OUT, "knows", "created");
         mapReduceDriver.withConfiguration(config);
@@ -94,6 +115,41 @@ public class VerticesVerticesMapReduceTest extends BaseTest {
         identicalStructure(graph, ExampleGraph.TINKERGRAPH);
     }
 
+    public void testBothAllTraversalWithCombiner() throws Exception {
+        Configuration config = VerticesVerticesMapReduce.createConfiguration(Direction.BOTH);
+        mapReduceDriver.setCombiner(new VerticesVerticesMapReduce.Combiner());
+        mapReduceDriver.withConfiguration(config);
+
+        Map<Long, FaunusVertex> graph = runWithGraph(startPath(generateGraph(ExampleGraph.TINKERGRAPH, config), Vertex.class), mapReduceDriver);
+        assertEquals(graph.size(), 6);
+        assertEquals(graph.get(1l).pathCount(), 3);
+        assertEquals(graph.get(2l).pathCount(), 1);
+        assertEquals(graph.get(3l).pathCount(), 3);
+        assertEquals(graph.get(4l).pathCount(), 3);
+        assertEquals(graph.get(5l).pathCount(), 1);
+        assertEquals(graph.get(6l).pathCount(), 1);
+
+        assertEquals(mapReduceDriver.getCounters().findCounter(VerticesVerticesMapReduce.Counters.EDGES_TRAVERSED).getValue(), 12);
+        identicalStructure(graph, ExampleGraph.TINKERGRAPH);
+    }
+
+    public void testOutCreatedTraversalWithPathsAndCombiner() throws Exception {
+        Configuration config = VerticesVerticesMapReduce.createConfiguration(Direction.OUT, "created");
+        config.setBoolean(FaunusCompiler.PATH_ENABLED, true);
+        mapReduceDriver.setCombiner(new VerticesVerticesMapReduce.Combiner());
+        mapReduceDriver.withConfiguration(config);
+
+        Map<Long, FaunusVertex> graph = runWithGraph(startPath(generateGraph(ExampleGraph.TINKERGRAPH, config), Vertex.class), mapReduceDriver);
+        assertEquals(graph.size(), 6);
+        assertEquals(graph.get(3l).pathCount(), 3);
+        assertEquals(graph.get(5l).pathCount(), 1);
+        for (final List<FaunusElement.MicroElement> path : graph.get(3l).getPaths()) {
+            assertEquals(path.size(), 2);
+            assertEquals(path.get(1).getId(), 3l);
+        }
+        identicalStructure(graph, ExampleGraph.TINKERGRAPH);
+    }
+
     public void testBothCreatedTraversal() throws Exception {
         Configuration config = VerticesVerticesMapReduce.createConfiguration(Direction.BOTH, "created");
         mapReduceDriver.withConfiguration(config);